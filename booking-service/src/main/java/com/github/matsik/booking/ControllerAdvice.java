@@ -1,10 +1,15 @@
 package com.github.matsik.booking;
 
 import com.github.matsik.booking.client.command.exception.BookingCommandDeliveryException;
+import com.github.matsik.booking.client.command.exception.PartitionExpansionInProgressException;
+import com.github.matsik.booking.client.query.exception.InvalidCursorException;
+import com.github.matsik.booking.client.query.exception.InvalidDateRangeException;
 import com.github.matsik.booking.client.query.exception.UserBookingNotFoundException;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -20,11 +25,28 @@ public class ControllerAdvice {
         return ProblemDetail.forStatusAndDetail(HttpStatus.NOT_FOUND, exception.getMessage());
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    public ProblemDetail onInvalidCursorException(InvalidCursorException exception) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, exception.getMessage());
+    }
+
+    @ExceptionHandler(InvalidDateRangeException.class)
+    public ProblemDetail onInvalidDateRangeException(InvalidDateRangeException exception) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, exception.getMessage());
+    }
+
     @ExceptionHandler(BookingCommandDeliveryException.class)
     public ProblemDetail onBookingCommandDeliveryException(BookingCommandDeliveryException ex) {
         return ProblemDetail.forStatusAndDetail(HttpStatus.INTERNAL_SERVER_ERROR, ex.getMessage());
     }
 
+    @ExceptionHandler(PartitionExpansionInProgressException.class)
+    public ResponseEntity<ProblemDetail> onPartitionExpansionInProgressException(PartitionExpansionInProgressException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage()));
+    }
+
     @ExceptionHandler(MethodArgumentTypeMismatchException.class)
     public ProblemDetail handleMethodArgumentTypeMismatchException(MethodArgumentTypeMismatchException ex) {
         return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, problemDetailMessage(ex));
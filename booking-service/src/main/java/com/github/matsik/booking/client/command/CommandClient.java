@@ -1,14 +1,26 @@
 package com.github.matsik.booking.client.command;
 
+import com.github.matsik.booking.client.command.delivery.CommandDeliveryTracker;
 import com.github.matsik.booking.client.command.exception.BookingCommandDeliveryException;
+import com.github.matsik.booking.client.command.partitioning.PartitionExpansionCoordinator;
+import com.github.matsik.booking.config.kafka.KafkaClientProperties;
 import com.github.matsik.dto.BookingPartitionKey;
+import com.github.matsik.kafka.mapping.CommandHeaders;
 import com.github.matsik.kafka.task.CommandValue;
 import com.github.matsik.kafka.task.CreateBookingCommandValue;
+import com.github.matsik.kafka.task.CreateBookingsCommandValue;
 import com.github.matsik.kafka.task.DeleteBookingCommandValue;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeader;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -17,23 +29,72 @@ import static com.github.matsik.booking.config.kafka.KafkaClientConfiguration.BO
 
 @Component
 @RequiredArgsConstructor
+@Slf4j
 public class CommandClient {
     private static final int TIMEOUT = 10;
     private static final TimeUnit TIMEOUT_TIME_UNIT = TimeUnit.SECONDS;
 
     private final KafkaTemplate<BookingPartitionKey, CommandValue> template;
+    private final CommandDeliveryTracker deliveryTracker;
+    private final PartitionExpansionCoordinator partitionExpansionCoordinator;
+    private final KafkaClientProperties kafkaClientProperties;
 
-    public void sendCreateBookingCommand(BookingPartitionKey key, CreateBookingCommandValue value) {
-        send(key, value);
+    public UUID sendCreateBookingCommand(BookingPartitionKey key, CreateBookingCommandValue value) {
+        return send(key, value);
     }
 
-    public void sendDeleteBookingCommand(BookingPartitionKey key, DeleteBookingCommandValue value) {
-        send(key, value);
+    public UUID sendCreateBookingsCommand(BookingPartitionKey key, CreateBookingsCommandValue value) {
+        return send(key, value);
     }
 
-    private void send(BookingPartitionKey key, CommandValue value) {
+    public UUID sendDeleteBookingCommand(BookingPartitionKey key, DeleteBookingCommandValue value) {
+        return send(key, value);
+    }
+
+    private UUID send(BookingPartitionKey key, CommandValue value) {
+        partitionExpansionCoordinator.checkRoutable(key);
+
+        UUID commandId = UUID.randomUUID();
+        ProducerRecord<BookingPartitionKey, CommandValue> record = new ProducerRecord<>(
+                BOOKINGS_TOPIC_NAME,
+                null,
+                key,
+                value,
+                List.of(new RecordHeader(CommandHeaders.COMMAND_ID, CommandHeaders.commandIdBytes(commandId)))
+        );
+
+        deliveryTracker.pending(commandId);
+        CompletableFuture<SendResult<BookingPartitionKey, CommandValue>> result;
+        try {
+            result = template.send(record);
+        } catch (RuntimeException e) {
+            deliveryTracker.failed(commandId, e);
+            throw new BookingCommandDeliveryException(e);
+        }
+        result.whenComplete((_, ex) -> onCompletion(commandId, ex));
+
+        if (!kafkaClientProperties.asyncCommandSubmission()) {
+            await(result);
+        }
+        return commandId;
+    }
+
+    private void onCompletion(UUID commandId, Throwable ex) {
+        if (ex == null) {
+            deliveryTracker.delivered(commandId);
+            return;
+        }
+        deliveryTracker.failed(commandId, ex);
+        log.atWarn()
+                .setMessage("Failed to deliver a booking command")
+                .addKeyValue("command_id", commandId)
+                .setCause(ex)
+                .log();
+    }
+
+    private static void await(CompletableFuture<?> result) {
         try {
-            template.send(BOOKINGS_TOPIC_NAME, key, value).get(TIMEOUT, TIMEOUT_TIME_UNIT);
+            result.get(TIMEOUT, TIMEOUT_TIME_UNIT);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
             throw new BookingCommandDeliveryException(e);
         }
@@ -1,20 +1,34 @@
 package com.github.matsik.booking.client.command;
 
+import com.github.matsik.booking.client.command.delivery.CommandDelivery;
+import com.github.matsik.booking.client.command.delivery.CommandDeliveryStatus;
+import com.github.matsik.booking.client.command.delivery.CommandDeliveryTracker;
+import com.github.matsik.booking.client.command.outcome.CommandOutcomeTracker;
 import com.github.matsik.booking.controller.request.CreateBookingRequest;
+import com.github.matsik.booking.controller.request.CreateBookingsRequest;
 import com.github.matsik.booking.controller.request.DeleteBookingRequest;
 import com.github.matsik.dto.BookingPartitionKey;
 import com.github.matsik.kafka.task.CreateBookingCommandValue;
+import com.github.matsik.kafka.task.CreateBookingsCommandValue;
+import com.github.matsik.kafka.outcome.CommandOutcome;
 import com.github.matsik.kafka.task.DeleteBookingCommandValue;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
 @Service
 @RequiredArgsConstructor
 public class CommandRemoteService {
 
     private final CommandClient client;
+    private final CommandDeliveryTracker deliveryTracker;
+    private final CommandOutcomeTracker outcomeTracker;
 
-    public void createBooking(CreateBookingRequest request) {
+    public UUID createBooking(CreateBookingRequest request) {
         BookingPartitionKey key = BookingPartitionKey.of(request.serviceId(), request.date());
         CreateBookingCommandValue value = new CreateBookingCommandValue(
                 request.userId(),
@@ -22,14 +36,33 @@ public class CommandRemoteService {
                 request.end()
         );
 
-        client.sendCreateBookingCommand(key, value);
+        return client.sendCreateBookingCommand(key, value);
+    }
+
+    public UUID createBookings(CreateBookingsRequest request) {
+        BookingPartitionKey key = BookingPartitionKey.of(request.serviceId(), request.date());
+        List<CreateBookingsCommandValue.Range> ranges = request.timeRanges().stream()
+                .map(timeRange -> new CreateBookingsCommandValue.Range(timeRange.start(), timeRange.end()))
+                .toList();
+        CreateBookingsCommandValue value = new CreateBookingsCommandValue(request.userId(), ranges);
+
+        return client.sendCreateBookingsCommand(key, value);
     }
 
-    public void deleteBooking(DeleteBookingRequest request) {
+    public UUID deleteBooking(DeleteBookingRequest request) {
         BookingPartitionKey key = BookingPartitionKey.of(request.serviceId(), request.date());
         DeleteBookingCommandValue value = new DeleteBookingCommandValue(request.bookingId(), request.userId());
 
-        client.sendDeleteBookingCommand(key, value);
+        return client.sendDeleteBookingCommand(key, value);
+    }
+
+    public CommandDelivery getCommandDelivery(UUID commandId) {
+        return deliveryTracker.find(commandId)
+                .orElseGet(() -> new CommandDelivery(commandId, CommandDeliveryStatus.UNKNOWN, null));
+    }
+
+    public CompletableFuture<CommandOutcome> awaitCommandOutcome(UUID commandId, Duration timeout) {
+        return outcomeTracker.await(commandId, timeout);
     }
 
 }
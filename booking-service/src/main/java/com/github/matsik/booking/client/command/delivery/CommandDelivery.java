@@ -0,0 +1,6 @@
+package com.github.matsik.booking.client.command.delivery;
+
+import java.util.UUID;
+
+public record CommandDelivery(UUID commandId, CommandDeliveryStatus status, String error) {
+}
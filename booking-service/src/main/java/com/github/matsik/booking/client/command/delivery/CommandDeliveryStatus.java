@@ -0,0 +1,11 @@
+package com.github.matsik.booking.client.command.delivery;
+
+public enum CommandDeliveryStatus {
+    PENDING,
+    DELIVERED,
+    FAILED,
+    /**
+     * Not tracked by this instance, it was submitted through another one or is no longer among the tracked commands.
+     */
+    UNKNOWN
+}
@@ -0,0 +1,50 @@
+package com.github.matsik.booking.client.command.delivery;
+
+import com.github.matsik.booking.config.kafka.KafkaClientProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Keeps the delivery status of the most recently submitted commands, the oldest ones are dropped once
+ * {@link KafkaClientProperties#deliveryStatusCapacity()} is reached.
+ */
+@Component
+public class CommandDeliveryTracker {
+
+    private final Map<UUID, CommandDelivery> deliveries;
+
+    public CommandDeliveryTracker(KafkaClientProperties kafkaClientProperties) {
+        int capacity = kafkaClientProperties.deliveryStatusCapacity();
+        this.deliveries = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, CommandDelivery> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public void pending(UUID commandId) {
+        put(new CommandDelivery(commandId, CommandDeliveryStatus.PENDING, null));
+    }
+
+    public void delivered(UUID commandId) {
+        put(new CommandDelivery(commandId, CommandDeliveryStatus.DELIVERED, null));
+    }
+
+    public void failed(UUID commandId, Throwable cause) {
+        put(new CommandDelivery(commandId, CommandDeliveryStatus.FAILED, cause.getMessage()));
+    }
+
+    public synchronized Optional<CommandDelivery> find(UUID commandId) {
+        return Optional.ofNullable(deliveries.get(commandId));
+    }
+
+    private synchronized void put(CommandDelivery delivery) {
+        deliveries.put(delivery.commandId(), delivery);
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.github.matsik.booking.client.command.exception;
+
+import com.github.matsik.dto.BookingPartitionKey;
+
+public class PartitionExpansionInProgressException extends RuntimeException {
+    public PartitionExpansionInProgressException(BookingPartitionKey key) {
+        super(String.format("BookingPartitionKey(serviceId: %s, date: %s) is being moved to a new partition, retry later.",
+                key.serviceId().toString(),
+                key.date()
+        ));
+    }
+}
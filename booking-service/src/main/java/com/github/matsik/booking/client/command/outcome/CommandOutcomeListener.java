@@ -0,0 +1,25 @@
+package com.github.matsik.booking.client.command.outcome;
+
+import com.github.matsik.kafka.outcome.CommandOutcome;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+import static com.github.matsik.booking.config.kafka.KafkaClientConfiguration.OUTCOMES_TOPIC_NAME;
+
+@Component
+@RequiredArgsConstructor
+public class CommandOutcomeListener {
+
+    private final CommandOutcomeTracker outcomeTracker;
+
+    @KafkaListener(topics = OUTCOMES_TOPIC_NAME, containerFactory = "outcomeListenerContainerFactory")
+    public void listen(List<ConsumerRecord<UUID, CommandOutcome>> records) {
+        records.forEach(record -> outcomeTracker.complete(record.key(), record.value()));
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.github.matsik.booking.client.command.outcome;
+
+import com.github.matsik.booking.config.kafka.KafkaClientProperties;
+import com.github.matsik.kafka.outcome.CommandOutcome;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands the outcomes consumed from the outcomes topic to the clients waiting for them. Outcomes arriving before the
+ * client asks are kept, the oldest ones are dropped once {@link KafkaClientProperties#outcomeCapacity()} is reached.
+ */
+@Component
+public class CommandOutcomeTracker {
+
+    private final Map<UUID, CommandOutcome> outcomes;
+    private final Map<UUID, List<CompletableFuture<CommandOutcome>>> waiters = new HashMap<>();
+
+    public CommandOutcomeTracker(KafkaClientProperties kafkaClientProperties) {
+        int capacity = kafkaClientProperties.outcomeCapacity();
+        this.outcomes = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, CommandOutcome> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @return a future completed with the outcome, or failed with a {@link java.util.concurrent.TimeoutException}
+     */
+    public CompletableFuture<CommandOutcome> await(UUID commandId, Duration timeout) {
+        CompletableFuture<CommandOutcome> waiter = new CompletableFuture<>();
+        synchronized (this) {
+            CommandOutcome outcome = outcomes.get(commandId);
+            if (outcome != null) {
+                return CompletableFuture.completedFuture(outcome);
+            }
+            waiters.computeIfAbsent(commandId, _ -> new ArrayList<>()).add(waiter);
+        }
+        return waiter.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((_, _) -> removeWaiter(commandId, waiter));
+    }
+
+    public void complete(UUID commandId, CommandOutcome outcome) {
+        List<CompletableFuture<CommandOutcome>> completed;
+        synchronized (this) {
+            outcomes.put(commandId, outcome);
+            completed = waiters.remove(commandId);
+        }
+        if (completed != null) {
+            completed.forEach(waiter -> waiter.complete(outcome));
+        }
+    }
+
+    private synchronized void removeWaiter(UUID commandId, CompletableFuture<CommandOutcome> waiter) {
+        List<CompletableFuture<CommandOutcome>> commandWaiters = waiters.get(commandId);
+        if (commandWaiters != null && commandWaiters.remove(waiter) && commandWaiters.isEmpty()) {
+            waiters.remove(commandId);
+        }
+    }
+
+}
@@ -0,0 +1,186 @@
+package com.github.matsik.booking.client.command.partitioning;
+
+import com.github.matsik.booking.client.command.exception.PartitionExpansionInProgressException;
+import com.github.matsik.booking.config.partitioning.PartitioningProperties;
+import com.github.matsik.dto.BookingPartitionKey;
+import com.github.matsik.kafka.mapping.BookingPartitionKeyPartitioner;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.github.matsik.booking.config.kafka.KafkaClientConfiguration.BOOKINGS_TOPIC_NAME;
+import static com.github.matsik.booking.config.kafka.KafkaClientConfiguration.RETRY_TOPIC_PREFIX;
+
+/**
+ * Supplies the partition count used by {@link BookingPartitionKeyPartitioner} and drives the expansion to
+ * {@link PartitioningProperties#targetPartitions()}.
+ * <p>
+ * While expanding, commands of the keys that move to another partition are refused. After
+ * {@link PartitioningProperties#fenceDelay()}, which should cover the rollout of the new configuration to every
+ * instance, the end offsets of the current partitions are taken as a fence. Once the command consumers have committed
+ * past the fence, and have committed every record of the retry topics, where the failed and the parked commands wait,
+ * no command of a moved key is left behind, and the target count is switched to.
+ */
+@Component
+@Slf4j
+public class PartitionExpansionCoordinator implements IntSupplier, DisposableBean {
+
+    private final PartitioningProperties properties;
+    private final KafkaAdmin kafkaAdmin;
+
+    private final ScheduledExecutorService scheduler;
+
+    private volatile int partitionCount;
+    private Map<TopicPartition, Long> fence;
+
+    public PartitionExpansionCoordinator(PartitioningProperties properties, KafkaAdmin kafkaAdmin) {
+        this.properties = properties;
+        this.kafkaAdmin = kafkaAdmin;
+        this.partitionCount = properties.partitions();
+
+        if (properties.isExpanding()) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().daemon().name("partition-expansion").factory()
+            );
+            long delay = properties.fenceDelay().toMillis();
+            long interval = properties.drainCheckInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::advance, delay, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    @Override
+    public int getAsInt() {
+        return partitionCount;
+    }
+
+    public void checkRoutable(BookingPartitionKey key) {
+        int current = partitionCount;
+        int target = properties.targetPartitions();
+        if (current < target && BookingPartitionKeyPartitioner.partition(key, current) != BookingPartitionKeyPartitioner.partition(key, target)) {
+            throw new PartitionExpansionInProgressException(key);
+        }
+    }
+
+    private void advance() {
+        try (Admin admin = Admin.create(kafkaAdmin.getConfigurationProperties())) {
+            if (fence == null) {
+                fence = endOffsets(admin);
+                log.atInfo()
+                        .setMessage("Partition expansion fence taken")
+                        .addKeyValue("fence", fence)
+                        .log();
+                return;
+            }
+            if (isDrained(admin) && hasTargetPartitions(admin)) {
+                partitionCount = properties.targetPartitions();
+                log.atInfo()
+                        .setMessage("Partition expansion completed")
+                        .addKeyValue("partition_count", partitionCount)
+                        .log();
+                scheduler.shutdown();
+            }
+        } catch (ExecutionException | RuntimeException e) {
+            log.atWarn()
+                    .setMessage("Partition expansion check failed")
+                    .setCause(e)
+                    .log();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Map<TopicPartition, Long> endOffsets(Admin admin) throws ExecutionException, InterruptedException {
+        List<TopicPartition> partitions = IntStream.range(0, properties.partitions())
+                .mapToObj(partition -> new TopicPartition(BOOKINGS_TOPIC_NAME, partition))
+                .toList();
+        return endOffsets(admin, partitions);
+    }
+
+    private Map<TopicPartition, Long> endOffsets(Admin admin, Collection<TopicPartition> partitions)
+            throws ExecutionException, InterruptedException {
+        Map<TopicPartition, OffsetSpec> request = partitions.stream()
+                .collect(Collectors.toMap(Function.identity(), _ -> OffsetSpec.latest()));
+
+        return admin.listOffsets(request).all().get().entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().offset()));
+    }
+
+    /**
+     * The committed offsets are read before the end offsets of the retry topics: a command forwarded to a retry topic
+     * before its bookings offset is committed then always shows up as not yet consumed.
+     */
+    private boolean isDrained(Admin admin) throws ExecutionException, InterruptedException {
+        Map<TopicPartition, OffsetAndMetadata> committed = admin.listConsumerGroupOffsets(properties.commandGroupId())
+                .partitionsToOffsetAndMetadata()
+                .get();
+        if (!isCommittedPast(committed, fence)) {
+            return false;
+        }
+        Map<TopicPartition, Long> retryEndOffsets = endOffsets(admin, retryTopicPartitions(admin));
+        if (!isCommittedPast(committed, retryEndOffsets)) {
+            log.atInfo()
+                    .setMessage("Partition expansion waiting for the retry topics to drain")
+                    .log();
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean isCommittedPast(Map<TopicPartition, OffsetAndMetadata> committed, Map<TopicPartition, Long> offsets) {
+        return offsets.entrySet().stream().allMatch(entry -> {
+            OffsetAndMetadata offset = committed.get(entry.getKey());
+            long committedOffset = offset == null ? 0 : offset.offset();
+            return committedOffset >= entry.getValue();
+        });
+    }
+
+    private List<TopicPartition> retryTopicPartitions(Admin admin) throws ExecutionException, InterruptedException {
+        List<String> retryTopics = admin.listTopics().names().get().stream()
+                .filter(topic -> topic.startsWith(RETRY_TOPIC_PREFIX))
+                .toList();
+        if (retryTopics.isEmpty()) {
+            return List.of();
+        }
+        return admin.describeTopics(retryTopics).allTopicNames().get().values().stream()
+                .flatMap(description -> description.partitions().stream()
+                        .map(partition -> new TopicPartition(description.name(), partition.partition())))
+                .toList();
+    }
+
+    private boolean hasTargetPartitions(Admin admin) throws ExecutionException, InterruptedException {
+        int topicPartitions = admin.describeTopics(List.of(BOOKINGS_TOPIC_NAME))
+                .allTopicNames()
+                .get()
+                .get(BOOKINGS_TOPIC_NAME)
+                .partitions()
+                .size();
+        return topicPartitions >= properties.targetPartitions();
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+}
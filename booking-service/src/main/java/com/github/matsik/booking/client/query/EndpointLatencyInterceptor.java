@@ -0,0 +1,83 @@
+package com.github.matsik.booking.client.query;
+
+import io.grpc.Attributes;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ClientStreamTracer;
+import io.grpc.Grpc;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * Records the latency of every attempt of a query service call by the instance that served it, retried and hedged
+ * attempts included, so a single slow instance stands out instead of being averaged away.
+ */
+@Component
+@RequiredArgsConstructor
+public class EndpointLatencyInterceptor implements ClientInterceptor {
+
+    private final DoubleHistogram queryServiceCallHistogram;
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+            MethodDescriptor<ReqT, RespT> method,
+            CallOptions callOptions,
+            Channel next
+    ) {
+        String methodName = method.getBareMethodName();
+        return next.newCall(method, callOptions.withStreamTracerFactory(new ClientStreamTracer.Factory() {
+            @Override
+            public ClientStreamTracer newClientStreamTracer(ClientStreamTracer.StreamInfo info, Metadata headers) {
+                return new AttemptTracer(methodName, info.getPreviousAttempts() > 0);
+            }
+        }));
+    }
+
+    private class AttemptTracer extends ClientStreamTracer {
+
+        private final String methodName;
+        private final boolean retry;
+        private final long startTime = System.nanoTime();
+        private volatile String endpoint = "unknown";
+
+        AttemptTracer(String methodName, boolean retry) {
+            this.methodName = methodName;
+            this.retry = retry;
+        }
+
+        @Override
+        public void streamCreated(Attributes transportAttrs, Metadata headers) {
+            SocketAddress remoteAddress = transportAttrs.get(Grpc.TRANSPORT_ATTR_REMOTE_ADDR);
+            if (remoteAddress instanceof InetSocketAddress inetSocketAddress) {
+                endpoint = inetSocketAddress.getHostString() + ":" + inetSocketAddress.getPort();
+            } else if (remoteAddress != null) {
+                endpoint = remoteAddress.toString();
+            }
+        }
+
+        @Override
+        public void streamClosed(Status status) {
+            long duration = System.nanoTime() - startTime;
+
+            io.opentelemetry.api.common.Attributes attrs = io.opentelemetry.api.common.Attributes.of(
+                    AttributeKey.stringKey("method"), methodName,
+                    AttributeKey.stringKey("endpoint"), endpoint,
+                    AttributeKey.stringKey("status"), status.getCode().name(),
+                    AttributeKey.booleanKey("retry"), retry
+            );
+
+            queryServiceCallHistogram.record(duration / 1_000_000.0, attrs);
+        }
+    }
+
+}
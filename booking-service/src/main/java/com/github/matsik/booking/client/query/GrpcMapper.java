@@ -1,11 +1,16 @@
 package com.github.matsik.booking.client.query;
 
+import com.github.matsik.booking.controller.response.ServiceDateAvailabilityResponse;
 import com.github.matsik.booking.controller.response.TimeRangeResponse;
 import com.github.matsik.booking.controller.response.UserBookingResponse;
+import com.github.matsik.query.booking.grpc.ServiceDateAvailability;
 import com.github.matsik.query.booking.grpc.TimeRange;
 import com.github.matsik.query.booking.grpc.UserBooking;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static com.github.matsik.query.grpc.GrpcMapper.localDate;
 import static com.github.matsik.query.grpc.GrpcMapper.uuid;
 
@@ -16,11 +21,36 @@ public class GrpcMapper {
         return new TimeRangeResponse(timeRange.getStart(), timeRange.getEnd());
     }
 
+    /**
+     * Reads whichever of the two encodings the query service answered with.
+     */
+    public List<TimeRangeResponse> timeRangeResponses(List<TimeRange> timeRanges, List<Integer> timeRangeBounds) {
+        if (timeRangeBounds.isEmpty()) {
+            return timeRanges.stream()
+                    .map(this::timeRangeResponse)
+                    .toList();
+        }
+        List<TimeRangeResponse> timeRangeResponses = new ArrayList<>(timeRangeBounds.size() / 2);
+        for (int i = 0; i + 1 < timeRangeBounds.size(); i += 2) {
+            timeRangeResponses.add(new TimeRangeResponse(timeRangeBounds.get(i), timeRangeBounds.get(i + 1)));
+        }
+        return timeRangeResponses;
+    }
+
+    public ServiceDateAvailabilityResponse serviceDateAvailabilityResponse(ServiceDateAvailability availability) {
+        return new ServiceDateAvailabilityResponse(
+                availability.hasServiceUuid() ? uuid(availability.getServiceUuid()) : uuid(availability.getServiceId()),
+                availability.hasEpochDay() ? localDate(availability.getEpochDay()) : localDate(availability.getDate()),
+                availability.getServiceDuration(),
+                timeRangeResponses(availability.getTimeRangesList(), availability.getTimeRangeBoundsList())
+        );
+    }
+
     public UserBookingResponse userBookingResponse(UserBooking userBooking) {
         return new UserBookingResponse(
-                uuid(userBooking.getServiceId()),
-                localDate(userBooking.getDate()),
-                uuid(userBooking.getBookingId()),
+                userBooking.hasServiceUuid() ? uuid(userBooking.getServiceUuid()) : uuid(userBooking.getServiceId()),
+                userBooking.hasEpochDay() ? localDate(userBooking.getEpochDay()) : localDate(userBooking.getDate()),
+                userBooking.hasBookingUuid() ? uuid(userBooking.getBookingUuid()) : uuid(userBooking.getBookingId()),
                 userBooking.getStart(),
                 userBooking.getEnd()
         );
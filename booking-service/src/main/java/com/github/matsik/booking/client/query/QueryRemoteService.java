@@ -1,8 +1,14 @@
 package com.github.matsik.booking.client.query;
 
+import com.github.matsik.booking.client.query.exception.InvalidCursorException;
 import com.github.matsik.booking.client.query.exception.UserBookingNotFoundException;
+import com.github.matsik.booking.config.grpc.QueryRemoteServiceClientProperties;
+import com.github.matsik.booking.controller.request.AvailableTimeRangesBatchRequest;
+import com.github.matsik.booking.controller.response.ServiceDateAvailabilityResponse;
 import com.github.matsik.booking.controller.response.TimeRangeResponse;
 import com.github.matsik.booking.controller.response.UserBookingResponse;
+import com.github.matsik.query.booking.grpc.BatchListAvailableTimeRangesRequest;
+import com.github.matsik.query.booking.grpc.BatchListAvailableTimeRangesResponse;
 import com.github.matsik.query.booking.grpc.GetUserBookingTimeRangeRequest;
 import com.github.matsik.query.booking.grpc.GetUserBookingTimeRangeResponse;
 import com.github.matsik.query.booking.grpc.ListAvailableTimeRangesRequest;
@@ -10,56 +16,165 @@ import com.github.matsik.query.booking.grpc.ListAvailableTimeRangesResponse;
 import com.github.matsik.query.booking.grpc.ListUserBookingsRequest;
 import com.github.matsik.query.booking.grpc.ListUserBookingsResponse;
 import com.github.matsik.query.booking.grpc.QueryServiceGrpc;
+import com.github.matsik.query.booking.grpc.ServiceDateAvailability;
+import com.github.matsik.query.booking.grpc.ServiceDateDurations;
+import com.github.matsik.query.booking.grpc.StreamAvailableTimeRangesRequest;
+import com.github.matsik.query.booking.grpc.StreamUserBookingsRequest;
+import com.github.matsik.query.booking.grpc.UserBooking;
 import io.grpc.Status;
 import io.grpc.StatusException;
+import io.grpc.stub.BlockingClientCall;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
+import static com.github.matsik.query.grpc.GrpcMapper.epochDay;
 import static com.github.matsik.query.grpc.GrpcMapper.grpcDate;
+import static com.github.matsik.query.grpc.GrpcMapper.grpcUuid;
 
 @Service
 @RequiredArgsConstructor
 public class QueryRemoteService {
 
+    /**
+     * Longest date range the Query Service streams the availability of.
+     */
+    public static final int MAX_DATE_RANGE_DAYS = 92;
+
     private final QueryServiceGrpc.QueryServiceBlockingV2Stub queryServiceStub;
     private final GrpcMapper grpcMapper;
+    private final QueryRemoteServiceClientProperties queryRemoteServiceClientProperties;
+    private final SingleFlight<ListAvailableTimeRangesRequest, ListAvailableTimeRangesResponse> availableTimeRangesSingleFlight;
 
-    public List<TimeRangeResponse> getAvailableTimeRanges(UUID serviceId, LocalDate date, int serviceDuration) {
-        ListAvailableTimeRangesRequest request = ListAvailableTimeRangesRequest.newBuilder()
-                .setServiceId(serviceId.toString())
-                .setDate(grpcDate(date))
+    /**
+     * @param knownVersion version the client already has the time ranges of, they are not computed again if it is still
+     *                     current
+     */
+    public VersionedTimeRanges getAvailableTimeRanges(UUID serviceId, LocalDate date, int serviceDuration, long knownVersion) {
+        ListAvailableTimeRangesRequest.Builder request = ListAvailableTimeRangesRequest.newBuilder()
                 .setServiceDuration(serviceDuration)
-                .build();
+                .setKnownVersion(knownVersion);
+        if (queryRemoteServiceClientProperties.compactEncoding()) {
+            request.setServiceUuid(grpcUuid(serviceId))
+                    .setEpochDay(epochDay(date))
+                    .setCompactResponse(true);
+        } else {
+            request.setServiceId(serviceId.toString())
+                    .setDate(grpcDate(date));
+        }
+
+        ListAvailableTimeRangesRequest built = request.build();
+        ListAvailableTimeRangesResponse response = availableTimeRangesSingleFlight.execute(built, () -> listAvailableTimeRanges(built));
+        if (response.getNotModified()) {
+            return new VersionedTimeRanges(response.getVersion(), null);
+        }
+        return new VersionedTimeRanges(
+                response.getVersion(),
+                grpcMapper.timeRangeResponses(response.getTimeRangesList(), response.getTimeRangeBoundsList())
+        );
+    }
 
+    private ListAvailableTimeRangesResponse listAvailableTimeRanges(ListAvailableTimeRangesRequest request) {
         try {
-            ListAvailableTimeRangesResponse response = queryServiceStub.listAvailableTimeRanges(request);
-            return response.getTimeRangesList().stream()
-                    .map(grpcMapper::timeRangeResponse)
+            return queryServiceStub.listAvailableTimeRanges(request);
+        } catch (StatusException ex) {
+            throw handleStatusException(ex);
+        }
+    }
+
+    public List<ServiceDateAvailabilityResponse> getAvailableTimeRanges(AvailableTimeRangesBatchRequest batchRequest) {
+        boolean compact = queryRemoteServiceClientProperties.compactEncoding();
+        BatchListAvailableTimeRangesRequest.Builder request = BatchListAvailableTimeRangesRequest.newBuilder()
+                .setCompactResponse(compact);
+        batchRequest.serviceDates().forEach(serviceDate -> {
+            ServiceDateDurations.Builder serviceDateDurations = ServiceDateDurations.newBuilder()
+                    .addAllServiceDurations(serviceDate.serviceDurations());
+            if (compact) {
+                serviceDateDurations.setServiceUuid(grpcUuid(serviceDate.serviceId()))
+                        .setEpochDay(epochDay(serviceDate.date()));
+            } else {
+                serviceDateDurations.setServiceId(serviceDate.serviceId().toString())
+                        .setDate(grpcDate(serviceDate.date()));
+            }
+            request.addServiceDates(serviceDateDurations);
+        });
+
+        try {
+            BatchListAvailableTimeRangesResponse response = queryServiceStub.batchListAvailableTimeRanges(request.build());
+            return response.getAvailabilitiesList().stream()
+                    .map(grpcMapper::serviceDateAvailabilityResponse)
                     .toList();
         } catch (StatusException ex) {
             throw handleStatusException(ex);
         }
     }
 
+    /**
+     * Hands the availability of every day from {@code from} to {@code to} over in order of the days, each one as soon as
+     * it arrives.
+     */
+    public void streamAvailableTimeRanges(
+            UUID serviceId,
+            LocalDate from,
+            LocalDate to,
+            int serviceDuration,
+            Consumer<ServiceDateAvailabilityResponse> consumer
+    ) {
+        StreamAvailableTimeRangesRequest.Builder request = StreamAvailableTimeRangesRequest.newBuilder()
+                .setServiceDuration(serviceDuration);
+        if (queryRemoteServiceClientProperties.compactEncoding()) {
+            request.setServiceUuid(grpcUuid(serviceId))
+                    .setFromEpochDay(epochDay(from))
+                    .setToEpochDay(epochDay(to))
+                    .setCompactResponse(true);
+        } else {
+            request.setServiceId(serviceId.toString())
+                    .setFromDate(grpcDate(from))
+                    .setToDate(grpcDate(to));
+        }
+
+        BlockingClientCall<?, ServiceDateAvailability> call = queryServiceStub.streamAvailableTimeRanges(request.build());
+        try {
+            while (call.hasNext()) {
+                consumer.accept(grpcMapper.serviceDateAvailabilityResponse(call.read()));
+            }
+        } catch (StatusException ex) {
+            throw handleStatusException(ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            call.cancel("Interrupted while streaming available time ranges", ex);
+            throw new IllegalStateException(ex);
+        } catch (RuntimeException ex) {
+            call.cancel("Failed to consume available time ranges", ex);
+            throw ex;
+        }
+    }
+
     public TimeRangeResponse getUserBookingTimeRange(
             UUID serviceId,
             LocalDate date,
             UUID userId,
             UUID bookingId
     ) {
-        GetUserBookingTimeRangeRequest request = GetUserBookingTimeRangeRequest.newBuilder()
-                .setServiceId(serviceId.toString())
-                .setDate(grpcDate(date))
-                .setUserId(userId.toString())
-                .setBookingId(bookingId.toString())
-                .build();
+        GetUserBookingTimeRangeRequest.Builder request = GetUserBookingTimeRangeRequest.newBuilder();
+        if (queryRemoteServiceClientProperties.compactEncoding()) {
+            request.setServiceUuid(grpcUuid(serviceId))
+                    .setEpochDay(epochDay(date))
+                    .setUserUuid(grpcUuid(userId))
+                    .setBookingUuid(grpcUuid(bookingId));
+        } else {
+            request.setServiceId(serviceId.toString())
+                    .setDate(grpcDate(date))
+                    .setUserId(userId.toString())
+                    .setBookingId(bookingId.toString());
+        }
 
         try {
-            GetUserBookingTimeRangeResponse response = queryServiceStub.getUserBookingTimeRange(request);
+            GetUserBookingTimeRangeResponse response = queryServiceStub.getUserBookingTimeRange(request.build());
             return grpcMapper.timeRangeResponse(response.getTimeRange());
         } catch (StatusException ex) {
             if (ex.getStatus().getCode() == Status.Code.NOT_FOUND) {
@@ -69,25 +184,21 @@ public class QueryRemoteService {
         }
     }
 
-    public List<UserBookingResponse> getFirstUserBookings(UUID userId, int limit) {
-        ListUserBookingsRequest request = ListUserBookingsRequest.newBuilder()
-                .setUserId(userId.toString())
-                .setLimit(limit)
+    public UserBookingsPage getFirstUserBookings(UUID userId, int limit) {
+        ListUserBookingsRequest request = listUserBookingsRequest(userId, limit)
                 .build();
 
         return listUserBookings(request);
     }
 
-    public List<UserBookingResponse> getNextUserBookings(
+    public UserBookingsPage getNextUserBookings(
             UUID userId,
             UUID cursorServiceId,
             LocalDate cursorDate,
             UUID cursorBookingId,
             int limit
     ) {
-        ListUserBookingsRequest request = ListUserBookingsRequest.newBuilder()
-                .setUserId(userId.toString())
-                .setLimit(limit)
+        ListUserBookingsRequest request = listUserBookingsRequest(userId, limit)
                 .setCursorServiceId(cursorServiceId.toString())
                 .setCursorDate(grpcDate(cursorDate))
                 .setCursorBookingId(cursorBookingId.toString())
@@ -96,12 +207,64 @@ public class QueryRemoteService {
         return listUserBookings(request);
     }
 
-    private List<UserBookingResponse> listUserBookings(ListUserBookingsRequest request) {
+    public UserBookingsPage getNextUserBookings(UUID userId, String cursor, int limit) {
+        ListUserBookingsRequest request = listUserBookingsRequest(userId, limit)
+                .setCursor(cursor)
+                .build();
+
+        try {
+            return listUserBookings(request);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+
+    /**
+     * Hands the bookings over one by one as they arrive, the stream is only read as fast as the consumer accepts them.
+     */
+    public void streamUserBookings(UUID userId, Consumer<UserBookingResponse> consumer) {
+        StreamUserBookingsRequest.Builder request = StreamUserBookingsRequest.newBuilder();
+        if (queryRemoteServiceClientProperties.compactEncoding()) {
+            request.setUserUuid(grpcUuid(userId))
+                    .setCompactResponse(true);
+        } else {
+            request.setUserId(userId.toString());
+        }
+
+        BlockingClientCall<?, UserBooking> call = queryServiceStub.streamUserBookings(request.build());
+        try {
+            while (call.hasNext()) {
+                consumer.accept(grpcMapper.userBookingResponse(call.read()));
+            }
+        } catch (StatusException ex) {
+            throw handleStatusException(ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            call.cancel("Interrupted while streaming user bookings", ex);
+            throw new IllegalStateException(ex);
+        } catch (RuntimeException ex) {
+            call.cancel("Failed to consume user bookings", ex);
+            throw ex;
+        }
+    }
+
+    private ListUserBookingsRequest.Builder listUserBookingsRequest(UUID userId, int limit) {
+        ListUserBookingsRequest.Builder request = ListUserBookingsRequest.newBuilder()
+                .setLimit(limit);
+        if (queryRemoteServiceClientProperties.compactEncoding()) {
+            return request.setUserUuid(grpcUuid(userId))
+                    .setCompactResponse(true);
+        }
+        return request.setUserId(userId.toString());
+    }
+
+    private UserBookingsPage listUserBookings(ListUserBookingsRequest request) {
         try {
             ListUserBookingsResponse response = queryServiceStub.listUserBookings(request);
-            return response.getUserBookingsList().stream()
+            List<UserBookingResponse> userBookings = response.getUserBookingsList().stream()
                     .map(grpcMapper::userBookingResponse)
                     .toList();
+            return new UserBookingsPage(userBookings, response.getNextCursor().isEmpty() ? null : response.getNextCursor());
         } catch (StatusException ex) {
             throw handleStatusException(ex);
         }
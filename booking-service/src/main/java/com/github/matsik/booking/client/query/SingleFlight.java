@@ -0,0 +1,85 @@
+package com.github.matsik.booking.client.query;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Shares a single call among the concurrent callers with an equal key. A caller arriving while the call is in flight
+ * waits for its result, for at most the max wait, after which it makes a call of its own. The result, or the failure,
+ * is only shared with the callers that arrived while the call was in flight.
+ */
+public class SingleFlight<K, V> {
+
+    private static final AttributeKey<String> OPERATION = AttributeKey.stringKey("operation");
+    private static final AttributeKey<String> REQUEST = AttributeKey.stringKey("request");
+
+    private final long maxWait;
+    private final LongCounter coalescingCounter;
+    private final Attributes originating;
+    private final Attributes coalesced;
+    private final Attributes timedOut;
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public SingleFlight(String operationName, Duration maxWait, LongCounter coalescingCounter) {
+        this.maxWait = maxWait.toNanos();
+        this.coalescingCounter = coalescingCounter;
+        this.originating = Attributes.of(OPERATION, operationName, REQUEST, "originating");
+        this.coalesced = Attributes.of(OPERATION, operationName, REQUEST, "coalesced");
+        this.timedOut = Attributes.of(OPERATION, operationName, REQUEST, "timed_out");
+    }
+
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing == null) {
+            coalescingCounter.add(1L, originating);
+            return lead(key, created, call);
+        }
+        coalescingCounter.add(1L, coalesced);
+        return follow(existing, call);
+    }
+
+    private V lead(K key, CompletableFuture<V> created, Supplier<V> call) {
+        try {
+            V value = call.get();
+            created.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            created.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    private V follow(CompletableFuture<V> existing, Supplier<V> call) {
+        try {
+            return existing.get(maxWait, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            coalescingCounter.add(1L, timedOut);
+            return call.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (ex.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+
+}
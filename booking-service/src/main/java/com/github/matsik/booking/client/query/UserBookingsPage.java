@@ -0,0 +1,11 @@
+package com.github.matsik.booking.client.query;
+
+import com.github.matsik.booking.controller.response.UserBookingResponse;
+
+import java.util.List;
+
+/**
+ * @param nextCursor continues after the last booking of the page, {@code null} once there are no more bookings
+ */
+public record UserBookingsPage(List<UserBookingResponse> userBookings, String nextCursor) {
+}
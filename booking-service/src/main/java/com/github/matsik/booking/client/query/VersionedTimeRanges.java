@@ -0,0 +1,20 @@
+package com.github.matsik.booking.client.query;
+
+import com.github.matsik.booking.controller.response.TimeRangeResponse;
+
+import java.util.List;
+
+/**
+ * @param version    changes with every booking of the service-date, {@link #UNKNOWN_VERSION} for service-dates not
+ *                   booked since versions were introduced
+ * @param timeRanges {@code null} if the version the client already has is still current
+ */
+public record VersionedTimeRanges(long version, List<TimeRangeResponse> timeRanges) {
+
+    public static final long UNKNOWN_VERSION = 0L;
+
+    public boolean isNotModified() {
+        return timeRanges == null;
+    }
+
+}
@@ -0,0 +1,7 @@
+package com.github.matsik.booking.client.query.exception;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String cursor) {
+        super(String.format("Cursor: '%s' is invalid.", cursor));
+    }
+}
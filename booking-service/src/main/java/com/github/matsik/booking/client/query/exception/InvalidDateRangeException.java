@@ -0,0 +1,9 @@
+package com.github.matsik.booking.client.query.exception;
+
+import java.time.LocalDate;
+
+public class InvalidDateRangeException extends RuntimeException {
+    public InvalidDateRangeException(LocalDate from, LocalDate to, int maxDays) {
+        super(String.format("Date range: '%s' - '%s' is invalid, it has to be ordered and at most %d days long.", from, to, maxDays));
+    }
+}
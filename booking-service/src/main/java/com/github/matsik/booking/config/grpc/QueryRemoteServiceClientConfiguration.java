@@ -1,19 +1,129 @@
 package com.github.matsik.booking.config.grpc;
 
+import com.github.matsik.booking.client.query.EndpointLatencyInterceptor;
+import com.github.matsik.booking.client.query.SingleFlight;
+import com.github.matsik.query.booking.grpc.ListAvailableTimeRangesRequest;
+import com.github.matsik.query.booking.grpc.ListAvailableTimeRangesResponse;
 import com.github.matsik.query.booking.grpc.QueryServiceGrpc;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.opentelemetry.api.metrics.LongCounter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.grpc.client.ChannelBuilderOptions;
+import org.springframework.grpc.client.GrpcChannelBuilderCustomizer;
 import org.springframework.grpc.client.GrpcChannelFactory;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
 @Configuration
 public class QueryRemoteServiceClientConfiguration {
 
+    private static final List<String> RETRYABLE_STATUS_CODES = List.of(
+            Status.Code.UNAVAILABLE.name(),
+            Status.Code.RESOURCE_EXHAUSTED.name()
+    );
+
     @Bean
+    @SuppressWarnings("unchecked")
     public QueryServiceGrpc.QueryServiceBlockingV2Stub queryServiceStub(
             GrpcChannelFactory grpcChannelFactory,
-            QueryRemoteServiceClientProperties queryRemoteServiceClientProperties
+            QueryRemoteServiceClientProperties queryRemoteServiceClientProperties,
+            EndpointLatencyInterceptor endpointLatencyInterceptor
+    ) {
+        ChannelBuilderOptions options = ChannelBuilderOptions.defaults()
+                .withInterceptors(List.of(endpointLatencyInterceptor))
+                .withCustomizer(serviceConfigCustomizer(serviceConfig(queryRemoteServiceClientProperties)));
+        return QueryServiceGrpc.newBlockingV2Stub(grpcChannelFactory.createChannel(queryRemoteServiceClientProperties.address(), options));
+    }
+
+    /**
+     * Keyed by the request, identical availability queries of a flash crowd become a single call.
+     */
+    @Bean
+    public SingleFlight<ListAvailableTimeRangesRequest, ListAvailableTimeRangesResponse> availableTimeRangesSingleFlight(
+            QueryRemoteServiceClientProperties queryRemoteServiceClientProperties,
+            LongCounter queryCoalescingCounter
     ) {
-        return QueryServiceGrpc.newBlockingV2Stub(grpcChannelFactory.createChannel(queryRemoteServiceClientProperties.address()));
+        return new SingleFlight<>(
+                "list_available_time_ranges",
+                queryRemoteServiceClientProperties.coalescingMaxWait(),
+                queryCoalescingCounter
+        );
+    }
+
+    // raw, the builder type of the channel factory is only known at runtime
+    @SuppressWarnings("rawtypes")
+    private static GrpcChannelBuilderCustomizer serviceConfigCustomizer(Map<String, ?> serviceConfig) {
+        return (_, builder) -> builder
+                .defaultServiceConfig(serviceConfig)
+                .enableRetry();
+    }
+
+    /**
+     * All the query service methods are reads, so every one of them can be retried. The streams are only retried, a
+     * hedged attempt would read all the bookings of the user or all the days of the range twice.
+     */
+    private static Map<String, ?> serviceConfig(QueryRemoteServiceClientProperties properties) {
+        Map<String, Object> unaryReads = Map.of(
+                "name", List.of(
+                        methodName(QueryServiceGrpc.getListAvailableTimeRangesMethod()),
+                        methodName(QueryServiceGrpc.getBatchListAvailableTimeRangesMethod()),
+                        methodName(QueryServiceGrpc.getGetUserBookingTimeRangeMethod()),
+                        methodName(QueryServiceGrpc.getListUserBookingsMethod())
+                ),
+                "timeout", duration(properties.timeout()),
+                properties.hedgingDelay().isPositive() ? "hedgingPolicy" : "retryPolicy",
+                properties.hedgingDelay().isPositive() ? hedgingPolicy(properties) : retryPolicy(properties)
+        );
+        Map<String, Object> stream = Map.of(
+                "name", List.of(
+                        methodName(QueryServiceGrpc.getStreamUserBookingsMethod()),
+                        methodName(QueryServiceGrpc.getStreamAvailableTimeRangesMethod())
+                ),
+                "timeout", duration(properties.streamTimeout()),
+                "retryPolicy", retryPolicy(properties)
+        );
+
+        return Map.of(
+                "loadBalancingConfig", List.of(Map.of("round_robin", Map.of())),
+                "methodConfig", List.of(unaryReads, stream),
+                // stops retrying and hedging once more than a tenth of the calls fail, so an outage is not multiplied
+                "retryThrottling", Map.of("maxTokens", 100.0, "tokenRatio", 0.1)
+        );
+    }
+
+    private static Map<String, ?> retryPolicy(QueryRemoteServiceClientProperties properties) {
+        return Map.of(
+                "maxAttempts", (double) properties.maxAttempts(),
+                "initialBackoff", duration(Duration.ofMillis(20)),
+                "maxBackoff", duration(Duration.ofMillis(200)),
+                "backoffMultiplier", 2.0,
+                "retryableStatusCodes", RETRYABLE_STATUS_CODES
+        );
+    }
+
+    private static Map<String, ?> hedgingPolicy(QueryRemoteServiceClientProperties properties) {
+        return Map.of(
+                "maxAttempts", (double) properties.maxAttempts(),
+                "hedgingDelay", duration(properties.hedgingDelay()),
+                "nonFatalStatusCodes", RETRYABLE_STATUS_CODES
+        );
+    }
+
+    private static Map<String, ?> methodName(MethodDescriptor<?, ?> method) {
+        return Map.of(
+                "service", QueryServiceGrpc.SERVICE_NAME,
+                "method", method.getBareMethodName()
+        );
+    }
+
+    private static String duration(Duration duration) {
+        return BigDecimal.valueOf(duration.toNanos(), 9).toPlainString() + "s";
     }
 
 }
@@ -2,6 +2,28 @@ package com.github.matsik.booking.config.grpc;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
+/**
+ * @param address           a {@code dns:///} target resolving to every query service instance, the calls are balanced
+ *                          round-robin across all of them
+ * @param compactEncoding   sends identifiers and dates in the compact fields and asks for compact responses, the query
+ *                          service has to be rolled out with them first
+ * @param timeout           deadline of every unary call, retries and hedged attempts included
+ * @param streamTimeout     deadline of the user bookings stream
+ * @param maxAttempts       attempts of a read, including the first one
+ * @param hedgingDelay      sends the next attempt of a unary read to another instance if there is no response after
+ *                          this long, retries only failed attempts when zero
+ * @param coalescingMaxWait how long a request waits for an identical one in flight before making a call of its own
+ */
 @ConfigurationProperties("query.service.grpc")
-public record QueryRemoteServiceClientProperties(String address) {
+public record QueryRemoteServiceClientProperties(
+        String address,
+        boolean compactEncoding,
+        Duration timeout,
+        Duration streamTimeout,
+        int maxAttempts,
+        Duration hedgingDelay,
+        Duration coalescingMaxWait
+) {
 }
@@ -1,27 +1,47 @@
 package com.github.matsik.booking.config.kafka;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.matsik.booking.client.command.partitioning.PartitionExpansionCoordinator;
+import com.github.matsik.booking.config.partitioning.PartitioningProperties;
+import com.github.matsik.kafka.mapping.BookingPartitionKeyPartitioner;
 import com.github.matsik.kafka.mapping.BookingPartitionKeySerializer;
+import com.github.matsik.kafka.mapping.CommandOutcomeDeserializer;
+import com.github.matsik.kafka.mapping.CommandValueSerializer;
+import com.github.matsik.kafka.mapping.UuidDeserializer;
+import com.github.matsik.kafka.outcome.CommandOutcome;
 import com.github.matsik.kafka.task.CommandValue;
 import com.github.matsik.dto.BookingPartitionKey;
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.serialization.Serializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.KafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaAdmin;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.UUID;
 
 @Configuration
 public class KafkaClientConfiguration {
 
     public static final String BOOKINGS_TOPIC_NAME = "bookings";
+    public static final String RETRY_TOPIC_PREFIX = BOOKINGS_TOPIC_NAME + "-retry-";
+    public static final String OUTCOMES_TOPIC_NAME = "booking-outcomes";
 
     @Bean
     public KafkaAdmin admin(KafkaClientProperties kafkaClientProperties) {
@@ -32,28 +52,49 @@ public class KafkaClientConfiguration {
     }
 
     @Bean
-    public NewTopic bookingsTopic() {
+    public NewTopic bookingsTopic(PartitioningProperties partitioningProperties) {
+        // partitions are added ahead of an expansion, the partitioner moves keys to them only once drained
         return TopicBuilder.name(BOOKINGS_TOPIC_NAME)
+                .partitions(Math.max(partitioningProperties.partitions(), partitioningProperties.targetPartitions()))
+                .replicas(1)
+                .build();
+    }
+
+    @Bean
+    public NewTopic outcomesTopic() {
+        return TopicBuilder.name(OUTCOMES_TOPIC_NAME)
                 .partitions(3)
                 .replicas(1)
+                .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(Duration.ofHours(1).toMillis()))
                 .build();
     }
 
     @Bean
     public ProducerFactory<BookingPartitionKey, CommandValue> producerFactory(
             KafkaClientProperties kafkaClientProperties,
+            PartitionExpansionCoordinator partitionExpansionCoordinator,
             ObjectMapper objectMapper
     ) {
         Map<String, Object> props = Map.of(
-                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaClientProperties.bootstrapServers()
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaClientProperties.bootstrapServers(),
+                ProducerConfig.CLIENT_ID_CONFIG, kafkaClientProperties.clientId(),
+                ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true,
+                ProducerConfig.ACKS_CONFIG, "all",
+                ProducerConfig.LINGER_MS_CONFIG, kafkaClientProperties.lingerMs(),
+                ProducerConfig.COMPRESSION_TYPE_CONFIG, kafkaClientProperties.compressionType(),
+                ProducerConfig.PARTITIONER_CLASS_CONFIG, BookingPartitionKeyPartitioner.class,
+                BookingPartitionKeyPartitioner.PARTITION_COUNT_CONFIG, partitionExpansionCoordinator
         );
 
-        JsonSerializer<CommandValue> jsonSerializer = new JsonSerializer<>(objectMapper);
+        // JSON is kept for the rolling upgrade, until every command-service instance reads the binary format
+        Serializer<CommandValue> commandValueSerializer = kafkaClientProperties.binaryCommandValues()
+                ? new CommandValueSerializer()
+                : new JsonSerializer<>(objectMapper);
 
         return new DefaultKafkaProducerFactory<>(
                 props,
                 new BookingPartitionKeySerializer(),
-                jsonSerializer
+                commandValueSerializer
         );
     }
 
@@ -62,4 +103,30 @@ public class KafkaClientConfiguration {
         return new KafkaTemplate<>(producerFactory);
     }
 
+    @Bean
+    public ConsumerFactory<UUID, CommandOutcome> outcomeConsumerFactory(KafkaClientProperties kafkaClientProperties) {
+        // every instance reads all the outcomes, as the waiting client might be connected to any of them
+        Map<String, Object> props = Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaClientProperties.bootstrapServers(),
+                ConsumerConfig.GROUP_ID_CONFIG, kafkaClientProperties.clientId() + "-outcomes-" + UUID.randomUUID(),
+                ConsumerConfig.CLIENT_ID_CONFIG, kafkaClientProperties.clientId() + "-outcomes",
+                ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false,
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest"
+        );
+        return new DefaultKafkaConsumerFactory<>(props, new UuidDeserializer(), new CommandOutcomeDeserializer());
+    }
+
+    @Bean
+    public KafkaListenerContainerFactory<ConcurrentMessageListenerContainer<UUID, CommandOutcome>> outcomeListenerContainerFactory(
+            ConsumerFactory<UUID, CommandOutcome> outcomeConsumerFactory
+    ) {
+        ConcurrentKafkaListenerContainerFactory<UUID, CommandOutcome> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(outcomeConsumerFactory);
+        // the group is thrown away with the instance, so there is nothing worth committing
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.setBatchListener(true);
+
+        return factory;
+    }
+
 }
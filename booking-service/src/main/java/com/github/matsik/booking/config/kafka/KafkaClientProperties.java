@@ -3,5 +3,14 @@ package com.github.matsik.booking.config.kafka;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 @ConfigurationProperties("kafka")
-public record KafkaClientProperties(String clientId, String bootstrapServers) {
+public record KafkaClientProperties(
+        String clientId,
+        String bootstrapServers,
+        boolean binaryCommandValues,
+        boolean asyncCommandSubmission,
+        int lingerMs,
+        String compressionType,
+        int deliveryStatusCapacity,
+        int outcomeCapacity
+) {
 }
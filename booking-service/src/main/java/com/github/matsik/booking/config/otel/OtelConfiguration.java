@@ -37,4 +37,20 @@ public class OtelConfiguration {
                 .build();
     }
 
+    @Bean
+    public LongCounter queryCoalescingCounter(Meter meter) {
+        return meter.counterBuilder("booking.service.query.coalescing")
+                .setDescription("Query Service calls made (originating), shared with a call in flight (coalesced) or made after waiting for one too long (timed_out)")
+                .setUnit("requests")
+                .build();
+    }
+
+    @Bean
+    public DoubleHistogram queryServiceCallHistogram(Meter meter) {
+        return meter.histogramBuilder("booking.service.query.call.duration")
+                .setDescription("Duration of a single attempt of a Query Service call, by the instance that served it")
+                .setUnit("ms")
+                .build();
+    }
+
 }
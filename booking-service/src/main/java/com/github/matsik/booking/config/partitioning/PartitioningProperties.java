@@ -0,0 +1,20 @@
+package com.github.matsik.booking.config.partitioning;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties("partitioning")
+public record PartitioningProperties(
+        int partitions,
+        int targetPartitions,
+        String commandGroupId,
+        Duration fenceDelay,
+        Duration drainCheckInterval
+) {
+
+    public boolean isExpanding() {
+        return targetPartitions > partitions;
+    }
+
+}
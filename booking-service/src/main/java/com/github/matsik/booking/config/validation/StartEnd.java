@@ -0,0 +1,12 @@
+package com.github.matsik.booking.config.validation;
+
+/**
+ * A request validated with {@link ValidStartEnd}.
+ */
+public interface StartEnd {
+
+    Integer start();
+
+    Integer end();
+
+}
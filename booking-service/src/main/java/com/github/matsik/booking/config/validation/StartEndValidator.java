@@ -1,13 +1,12 @@
 package com.github.matsik.booking.config.validation;
 
-import com.github.matsik.booking.controller.request.CreateBookingRequest;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 
-public class StartEndValidator implements ConstraintValidator<ValidStartEnd, CreateBookingRequest> {
+public class StartEndValidator implements ConstraintValidator<ValidStartEnd, StartEnd> {
 
     @Override
-    public boolean isValid(CreateBookingRequest request, ConstraintValidatorContext context) {
+    public boolean isValid(StartEnd request, ConstraintValidatorContext context) {
         if (request == null || request.start() == null || request.end() == null) {
             return true; // Let @NotNull handle null checks
         }
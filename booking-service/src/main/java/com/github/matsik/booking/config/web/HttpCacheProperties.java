@@ -0,0 +1,12 @@
+package com.github.matsik.booking.config.web;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * @param availabilityMaxAge how long browsers and CDNs may reuse available time ranges before revalidating them
+ */
+@ConfigurationProperties("http.cache")
+public record HttpCacheProperties(Duration availabilityMaxAge) {
+}
@@ -1,7 +1,9 @@
 package com.github.matsik.booking.config.web;
 
+import com.github.matsik.booking.controller.BookingController;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -15,6 +17,7 @@ public class WebConfiguration implements WebMvcConfigurer {
                 .allowedOrigins("https://petstore.swagger.io")
                 .allowedMethods("GET", "POST")
                 .allowedHeaders("*")
+                .exposedHeaders(BookingController.NEXT_CURSOR_HEADER, HttpHeaders.ETAG)
                 .allowCredentials(true);
     }
 
@@ -1,29 +1,56 @@
 package com.github.matsik.booking.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.matsik.booking.client.command.CommandRemoteService;
+import com.github.matsik.booking.client.command.delivery.CommandDelivery;
 import com.github.matsik.booking.client.query.QueryRemoteService;
+import com.github.matsik.booking.client.query.UserBookingsPage;
+import com.github.matsik.booking.client.query.VersionedTimeRanges;
+import com.github.matsik.booking.client.query.exception.InvalidDateRangeException;
+import com.github.matsik.booking.config.web.HttpCacheProperties;
+import com.github.matsik.booking.controller.request.AvailableTimeRangesBatchRequest;
 import com.github.matsik.booking.controller.request.CreateBookingRequest;
+import com.github.matsik.booking.controller.request.CreateBookingsRequest;
 import com.github.matsik.booking.controller.request.DeleteBookingRequest;
+import com.github.matsik.booking.controller.response.CommandOutcomeResponse;
+import com.github.matsik.booking.controller.response.CommandSubmissionResponse;
+import com.github.matsik.booking.controller.response.ServiceDateAvailabilityResponse;
 import com.github.matsik.booking.controller.response.TimeRangeResponse;
 import com.github.matsik.booking.controller.response.UserBookingResponse;
 import io.opentelemetry.api.metrics.DoubleHistogram;
 import io.opentelemetry.api.metrics.LongCounter;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
 
+import static com.github.matsik.booking.metrics.MetricsRecorder.recordAsyncMetrics;
 import static com.github.matsik.booking.metrics.MetricsRecorder.recordMetrics;
 
 @RestController
@@ -32,40 +59,175 @@ import static com.github.matsik.booking.metrics.MetricsRecorder.recordMetrics;
 @RequiredArgsConstructor
 public class BookingController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final QueryRemoteService queryService;
     private final CommandRemoteService commandService;
+    private final ObjectMapper objectMapper;
+    private final HttpCacheProperties httpCacheProperties;
 
     private final LongCounter requestCounter;
     private final DoubleHistogram requestHistogram;
 
     @PostMapping("/create")
-    public void createBooking(@RequestBody @Valid CreateBookingRequest request) {
-        recordMetrics(requestCounter, requestHistogram, () -> {
-            commandService.createBooking(request);
-            return null;
-        }, "create");
+    public ResponseEntity<CommandSubmissionResponse> createBooking(@RequestBody @Valid CreateBookingRequest request) {
+        return recordMetrics(requestCounter, requestHistogram,
+                () -> ResponseEntity.accepted().body(new CommandSubmissionResponse(commandService.createBooking(request))),
+                "create"
+        );
+    }
+
+    /**
+     * Several bookings of a service-date in a single command, either all of them are created or none.
+     */
+    @PostMapping("/create/batch")
+    public ResponseEntity<CommandSubmissionResponse> createBookings(@RequestBody @Valid CreateBookingsRequest request) {
+        return recordMetrics(requestCounter, requestHistogram,
+                () -> ResponseEntity.accepted().body(new CommandSubmissionResponse(commandService.createBookings(request))),
+                "create_batch"
+        );
     }
 
     @PostMapping("/delete")
-    public void deleteBooking(@RequestBody @Valid DeleteBookingRequest request) {
-        recordMetrics(requestCounter, requestHistogram, () -> {
-            commandService.deleteBooking(request);
-            return null;
-        }, "delete");
+    public ResponseEntity<CommandSubmissionResponse> deleteBooking(@RequestBody @Valid DeleteBookingRequest request) {
+        return recordMetrics(requestCounter, requestHistogram,
+                () -> ResponseEntity.accepted().body(new CommandSubmissionResponse(commandService.deleteBooking(request))),
+                "delete"
+        );
+    }
+
+    @GetMapping("/commands/{commandId}")
+    public ResponseEntity<CommandDelivery> getCommandDelivery(@PathVariable UUID commandId) {
+        return recordMetrics(requestCounter, requestHistogram,
+                () -> ResponseEntity.ok(commandService.getCommandDelivery(commandId)),
+                "get_command_delivery"
+        );
+    }
+
+    /**
+     * Long-poll for the outcome of a submitted command, answers with 204 if it has not arrived within the timeout.
+     */
+    @GetMapping("/commands/{commandId}/outcome")
+    public CompletableFuture<ResponseEntity<CommandOutcomeResponse>> awaitCommandOutcome(
+            @PathVariable UUID commandId,
+            @RequestParam(defaultValue = "30") @Positive @Max(60) int timeoutSeconds
+    ) {
+        return recordAsyncMetrics(requestCounter, requestHistogram,
+                () -> commandService.awaitCommandOutcome(commandId, Duration.ofSeconds(timeoutSeconds))
+                        .thenApply(outcome -> ResponseEntity.ok(CommandOutcomeResponse.of(commandId, outcome)))
+                        .exceptionally(ex -> {
+                            if (ex instanceof TimeoutException || ex.getCause() instanceof TimeoutException) {
+                                return ResponseEntity.noContent().build();
+                            }
+                            throw new IllegalStateException(ex);
+                        }),
+                "await_command_outcome"
+        );
     }
 
+    /**
+     * The ETag is the version of the service-date, a request with a current one is answered with 304 without computing
+     * the time ranges.
+     */
     @GetMapping("/available")
     public ResponseEntity<List<TimeRangeResponse>> getAvailableTimeRanges(
             @RequestParam UUID serviceId,
             @RequestParam LocalDate date,
-            @RequestParam @Positive int serviceDuration
+            @RequestParam @Positive int serviceDuration,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        return recordMetrics(requestCounter, requestHistogram, () -> {
+            VersionedTimeRanges timeRanges = queryService.getAvailableTimeRanges(serviceId, date, serviceDuration, knownVersion(ifNoneMatch));
+            return availableTimeRangesResponse(timeRanges);
+        }, "get_available_time_ranges");
+    }
+
+    private ResponseEntity<List<TimeRangeResponse>> availableTimeRangesResponse(VersionedTimeRanges timeRanges) {
+        CacheControl cacheControl = CacheControl.maxAge(httpCacheProperties.availabilityMaxAge())
+                .cachePublic()
+                .mustRevalidate();
+        if (timeRanges.version() == VersionedTimeRanges.UNKNOWN_VERSION) {
+            return ResponseEntity.ok()
+                    .cacheControl(cacheControl)
+                    .body(timeRanges.timeRanges());
+        }
+        String eTag = "\"" + timeRanges.version() + "\"";
+        if (timeRanges.isNotModified()) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(eTag)
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(cacheControl)
+                .body(timeRanges.timeRanges());
+    }
+
+    /**
+     * @return the first version among the entity tags, weak ones included as a CDN may weaken them when compressing
+     */
+    private static long knownVersion(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return VersionedTimeRanges.UNKNOWN_VERSION;
+        }
+        for (String eTag : ifNoneMatch.split(",")) {
+            String value = eTag.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.length() > 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                try {
+                    return Long.parseLong(value.substring(1, value.length() - 1));
+                } catch (NumberFormatException ex) {
+                    // not issued by this endpoint
+                }
+            }
+        }
+        return VersionedTimeRanges.UNKNOWN_VERSION;
+    }
+
+    /**
+     * Availability of several services, dates and durations with a single call to the Query Service.
+     */
+    @PostMapping("/available/batch")
+    public ResponseEntity<List<ServiceDateAvailabilityResponse>> getAvailableTimeRanges(
+            @RequestBody @Valid AvailableTimeRangesBatchRequest request
     ) {
         return recordMetrics(requestCounter, requestHistogram,
-                () -> ResponseEntity.ok(queryService.getAvailableTimeRanges(serviceId, date, serviceDuration)),
-                "get_available_time_ranges"
+                () -> ResponseEntity.ok(queryService.getAvailableTimeRanges(request)),
+                "get_available_time_ranges_batch"
         );
     }
 
+    /**
+     * Availability of every day of the range as newline delimited JSON, in order of the days. The range is checked up
+     * front, the status can no longer change once the first day has been written.
+     */
+    @GetMapping(value = "/available/range", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAvailableTimeRanges(
+            @RequestParam UUID serviceId,
+            @RequestParam LocalDate from,
+            @RequestParam LocalDate to,
+            @RequestParam @Positive int serviceDuration
+    ) {
+        checkDateRange(from, to);
+        StreamingResponseBody body = outputStream -> recordMetrics(requestCounter, requestHistogram,
+                () -> queryService.streamAvailableTimeRanges(serviceId, from, to, serviceDuration,
+                        availability -> writeLine(outputStream, availability)),
+                "get_available_time_ranges_range"
+        );
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private static void checkDateRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to) || ChronoUnit.DAYS.between(from, to) >= QueryRemoteService.MAX_DATE_RANGE_DAYS) {
+            throw new InvalidDateRangeException(from, to, QueryRemoteService.MAX_DATE_RANGE_DAYS);
+        }
+    }
+
     @GetMapping("/user")
     public ResponseEntity<TimeRangeResponse> getUserBookingTimeRange(
             @RequestParam UUID serviceId,
@@ -79,20 +241,58 @@ public class BookingController {
         );
     }
 
+    /**
+     * All bookings of the user as newline delimited JSON, written as they are streamed from the Query Service.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUserBookings(@RequestParam UUID userId) {
+        StreamingResponseBody body = outputStream -> recordMetrics(requestCounter, requestHistogram,
+                () -> queryService.streamUserBookings(userId, booking -> writeLine(outputStream, booking)),
+                "stream_user_bookings"
+        );
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private void writeLine(OutputStream outputStream, Object value) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(value));
+            outputStream.write('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
     @GetMapping
     public ResponseEntity<List<UserBookingResponse>> getUserBookings(
             @RequestParam UUID userId,
             @RequestParam(required = false) UUID cursorServiceId,
             @RequestParam(required = false) LocalDate cursorDate,
             @RequestParam(required = false) UUID cursorBookingId,
+            @RequestParam(required = false) String cursor,
             @RequestParam int limit
     ) {
         return recordMetrics(requestCounter, requestHistogram, () -> {
-            if (cursorServiceId != null && cursorDate != null && cursorBookingId != null) {
-                return ResponseEntity.ok(queryService.getNextUserBookings(userId, cursorServiceId, cursorDate, cursorBookingId, limit));
+            UserBookingsPage page;
+            if (cursor != null) {
+                page = queryService.getNextUserBookings(userId, cursor, limit);
+            } else if (cursorServiceId != null && cursorDate != null && cursorBookingId != null) {
+                page = queryService.getNextUserBookings(userId, cursorServiceId, cursorDate, cursorBookingId, limit);
+            } else {
+                page = queryService.getFirstUserBookings(userId, limit);
             }
-            return ResponseEntity.ok(queryService.getFirstUserBookings(userId, limit));
+            return userBookingsResponse(page);
         }, "get_user_bookings");
     }
 
+    private static ResponseEntity<List<UserBookingResponse>> userBookingsResponse(UserBookingsPage page) {
+        if (page.nextCursor() == null) {
+            return ResponseEntity.ok(page.userBookings());
+        }
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, page.nextCursor())
+                .body(page.userBookings());
+    }
+
 }
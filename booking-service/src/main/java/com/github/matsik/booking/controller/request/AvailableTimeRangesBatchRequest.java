@@ -0,0 +1,33 @@
+package com.github.matsik.booking.controller.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public record AvailableTimeRangesBatchRequest(
+
+        @NotEmpty(message = "Service dates cannot be empty")
+        @Size(max = 50, message = "At most 50 service dates can be requested at once")
+        List<@Valid @NotNull ServiceDateDurations> serviceDates
+) {
+
+    public record ServiceDateDurations(
+
+            @NotNull(message = "Service Id cannot be null")
+            UUID serviceId,
+
+            @NotNull(message = "Date cannot be null")
+            LocalDate date,
+
+            @NotEmpty(message = "Service durations cannot be empty")
+            @Size(max = 10, message = "At most 10 service durations can be requested for a service date")
+            List<@NotNull @Positive Integer> serviceDurations
+    ) {
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.matsik.booking.controller.request;
 
+import com.github.matsik.booking.config.validation.StartEnd;
 import com.github.matsik.booking.config.validation.ValidStartEnd;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
@@ -26,5 +27,5 @@ public record CreateBookingRequest(
         @NotNull(message = "End cannot be null")
         @Min(value = 0, message = "End must be 0 or greater")
         Integer end
-) {
+) implements StartEnd {
 }
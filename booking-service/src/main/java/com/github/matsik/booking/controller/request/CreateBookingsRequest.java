@@ -0,0 +1,49 @@
+package com.github.matsik.booking.controller.request;
+
+import com.github.matsik.booking.config.validation.StartEnd;
+import com.github.matsik.booking.config.validation.ValidStartEnd;
+import com.github.matsik.kafka.task.CreateBookingsCommandValue;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public record CreateBookingsRequest(
+
+        @NotNull(message = "Service Id cannot be null")
+        UUID serviceId,
+
+        @NotNull(message = "Date cannot be null")
+        LocalDate date,
+
+        @NotNull(message = "User Id cannot be null")
+        UUID userId,
+
+        @NotEmpty(message = "Time ranges cannot be empty")
+        @Size(max = CreateBookingsCommandValue.MAX_RANGES, message = "At most 96 time ranges can be booked at once")
+        List<@Valid @NotNull BookingTimeRange> timeRanges
+) {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    @ValidStartEnd
+    public record BookingTimeRange(
+
+            @NotNull(message = "Start cannot be null")
+            @Min(value = 0, message = "Start must be 0 or greater")
+            @Max(value = MINUTES_PER_DAY, message = "Start must be 1440 or less")
+            Integer start,
+
+            @NotNull(message = "End cannot be null")
+            @Min(value = 0, message = "End must be 0 or greater")
+            @Max(value = MINUTES_PER_DAY, message = "End must be 1440 or less")
+            Integer end
+    ) implements StartEnd {
+    }
+}
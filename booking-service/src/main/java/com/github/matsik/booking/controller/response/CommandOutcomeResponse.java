@@ -0,0 +1,26 @@
+package com.github.matsik.booking.controller.response;
+
+import com.github.matsik.kafka.outcome.CommandAccepted;
+import com.github.matsik.kafka.outcome.CommandBatchAccepted;
+import com.github.matsik.kafka.outcome.CommandOutcome;
+import com.github.matsik.kafka.outcome.CommandRejected;
+import com.github.matsik.kafka.outcome.RejectionReason;
+
+import java.util.List;
+import java.util.UUID;
+
+public record CommandOutcomeResponse(
+        UUID commandId,
+        String status,
+        UUID bookingId,
+        List<UUID> bookingIds,
+        RejectionReason reason
+) {
+    public static CommandOutcomeResponse of(UUID commandId, CommandOutcome outcome) {
+        return switch (outcome) {
+            case CommandAccepted accepted -> new CommandOutcomeResponse(commandId, "ACCEPTED", accepted.bookingId(), null, null);
+            case CommandBatchAccepted accepted -> new CommandOutcomeResponse(commandId, "ACCEPTED", null, accepted.bookingIds(), null);
+            case CommandRejected rejected -> new CommandOutcomeResponse(commandId, "REJECTED", null, null, rejected.reason());
+        };
+    }
+}
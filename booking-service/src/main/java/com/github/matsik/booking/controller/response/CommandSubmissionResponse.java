@@ -0,0 +1,6 @@
+package com.github.matsik.booking.controller.response;
+
+import java.util.UUID;
+
+public record CommandSubmissionResponse(UUID commandId) {
+}
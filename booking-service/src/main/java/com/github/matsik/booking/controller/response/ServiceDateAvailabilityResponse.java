@@ -0,0 +1,13 @@
+package com.github.matsik.booking.controller.response;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public record ServiceDateAvailabilityResponse(
+        UUID serviceId,
+        LocalDate date,
+        int serviceDuration,
+        List<TimeRangeResponse> timeRanges
+) {
+}
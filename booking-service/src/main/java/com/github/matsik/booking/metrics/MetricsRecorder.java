@@ -5,6 +5,7 @@ import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.metrics.DoubleHistogram;
 import io.opentelemetry.api.metrics.LongCounter;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
 public class MetricsRecorder {
@@ -19,6 +20,31 @@ public class MetricsRecorder {
     public static <T> T recordMetrics(LongCounter counter, DoubleHistogram histogram, Supplier<T> operation, String operationName) {
         long startTime = System.nanoTime();
         T result = operation.get();
+        record(counter, histogram, startTime, operationName);
+
+        return result;
+    }
+
+    /**
+     * Records the metrics once the returned future completes, instead of around the call that starts it.
+     */
+    public static <T> CompletableFuture<T> recordAsyncMetrics(
+            LongCounter counter,
+            DoubleHistogram histogram,
+            Supplier<CompletableFuture<T>> operation,
+            String operationName
+    ) {
+        long startTime = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = operation.get();
+        } catch (RuntimeException ex) {
+            future = CompletableFuture.failedFuture(ex);
+        }
+        return future.whenComplete((_, _) -> record(counter, histogram, startTime, operationName));
+    }
+
+    private static void record(LongCounter counter, DoubleHistogram histogram, long startTime, String operationName) {
         long duration = System.nanoTime() - startTime;
 
         Attributes attrs = Attributes.of(
@@ -27,8 +53,6 @@ public class MetricsRecorder {
 
         counter.add(1L, attrs);
         histogram.record(duration / 1_000_000.0, attrs);
-
-        return result;
     }
 
 }
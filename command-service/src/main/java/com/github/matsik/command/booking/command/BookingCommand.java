@@ -0,0 +1,16 @@
+package com.github.matsik.command.booking.command;
+
+import com.github.matsik.dto.BookingPartitionKey;
+
+import java.util.UUID;
+
+public sealed interface BookingCommand permits CreateBookingCommand, CreateBookingsCommand, DeleteBookingCommand, InvalidCommand {
+
+    BookingPartitionKey bookingPartitionKey();
+
+    /**
+     * @return the id assigned by the submitting client, {@code null} for commands submitted without one
+     */
+    UUID commandId();
+
+}
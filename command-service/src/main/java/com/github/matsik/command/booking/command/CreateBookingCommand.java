@@ -10,14 +10,18 @@ import java.util.UUID;
 @Builder
 public record CreateBookingCommand(
         BookingPartitionKey bookingPartitionKey,
+        UUID bookingId,
         UUID userId,
-        TimeRange timeRange
-) {
-    public static CreateBookingCommand of(BookingPartitionKey key, CreateBookingCommandValue value) {
+        TimeRange timeRange,
+        UUID commandId
+) implements BookingCommand {
+    public static CreateBookingCommand of(BookingPartitionKey key, UUID bookingId, UUID commandId, CreateBookingCommandValue value) {
         return CreateBookingCommand.builder()
                 .bookingPartitionKey(key)
+                .bookingId(bookingId)
                 .userId(value.userId())
                 .timeRange(TimeRange.of(value.start(), value.end()))
+                .commandId(commandId)
                 .build();
     }
 }
@@ -0,0 +1,44 @@
+package com.github.matsik.command.booking.command;
+
+import com.github.matsik.command.booking.repository.projection.ServiceBooking;
+import com.github.matsik.dto.BookingPartitionKey;
+import com.github.matsik.dto.TimeRange;
+import com.github.matsik.kafka.task.CreateBookingsCommandValue;
+import lombok.Builder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+@Builder
+public record CreateBookingsCommand(
+        BookingPartitionKey bookingPartitionKey,
+        UUID userId,
+        List<ServiceBooking> bookings,
+        UUID commandId
+) implements BookingCommand {
+
+    /**
+     * @param bookingIds the booking id of the time range at the given index
+     * @throws IllegalArgumentException if the time range count or any of the time ranges is invalid
+     */
+    public static CreateBookingsCommand of(BookingPartitionKey key, IntFunction<UUID> bookingIds, UUID commandId, CreateBookingsCommandValue value) {
+        List<CreateBookingsCommandValue.Range> ranges = value.ranges();
+        if (ranges.isEmpty() || ranges.size() > CreateBookingsCommandValue.MAX_RANGES) {
+            throw new IllegalArgumentException(String.format("Invalid time range count: %d", ranges.size()));
+        }
+        List<ServiceBooking> bookings = new ArrayList<>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            CreateBookingsCommandValue.Range range = ranges.get(i);
+            bookings.add(new ServiceBooking(bookingIds.apply(i), value.userId(), TimeRange.of(range.start(), range.end())));
+        }
+        return CreateBookingsCommand.builder()
+                .bookingPartitionKey(key)
+                .userId(value.userId())
+                .bookings(List.copyOf(bookings))
+                .commandId(commandId)
+                .build();
+    }
+
+}
@@ -7,12 +7,13 @@ import lombok.Builder;
 import java.util.UUID;
 
 @Builder
-public record DeleteBookingCommand(BookingPartitionKey bookingPartitionKey, UUID bookingId, UUID userId) {
-    public static DeleteBookingCommand of(BookingPartitionKey key, DeleteBookingCommandValue value) {
+public record DeleteBookingCommand(BookingPartitionKey bookingPartitionKey, UUID bookingId, UUID userId, UUID commandId) implements BookingCommand {
+    public static DeleteBookingCommand of(BookingPartitionKey key, UUID commandId, DeleteBookingCommandValue value) {
         return DeleteBookingCommand.builder()
                 .bookingPartitionKey(key)
                 .bookingId(value.bookingId())
                 .userId(value.userId())
+                .commandId(commandId)
                 .build();
     }
 }
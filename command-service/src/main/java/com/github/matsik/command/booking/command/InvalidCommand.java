@@ -0,0 +1,11 @@
+package com.github.matsik.command.booking.command;
+
+import com.github.matsik.dto.BookingPartitionKey;
+
+import java.util.UUID;
+
+/**
+ * Stands in for a command whose value was refused, so that it is rejected like any other command instead of failing.
+ */
+public record InvalidCommand(BookingPartitionKey bookingPartitionKey, UUID commandId) implements BookingCommand {
+}
@@ -0,0 +1,40 @@
+package com.github.matsik.command.booking.id;
+
+import java.util.UUID;
+
+/**
+ * Derives UUIDv7 booking ids from the Kafka log position of a command, so that reprocessing a record yields the same
+ * id and the ids of a service-date follow the record timestamps.
+ * <p>
+ * Layout: 48 bits of unix epoch millis, version, 12 bits of partition, variant, 6 bits of topic hash, 48 bits of
+ * offset and 8 bits of sequence within the record.
+ */
+public class BookingIdGenerator {
+
+    private static final long VERSION = 0x7L << 12;
+    private static final long VARIANT = 0x2L << 62;
+
+    private static final long TIMESTAMP_MASK = (1L << 48) - 1;
+    private static final long PARTITION_MASK = (1L << 12) - 1;
+    private static final long TOPIC_HASH_MASK = (1L << 6) - 1;
+    private static final long OFFSET_MASK = (1L << 48) - 1;
+    private static final long SEQUENCE_MASK = (1L << 8) - 1;
+
+    public static UUID generate(String topic, int partition, long offset, long timestamp) {
+        return generate(topic, partition, offset, timestamp, 0);
+    }
+
+    public static UUID generate(String topic, int partition, long offset, long timestamp, int sequence) {
+        long mostSigBits = (timestamp & TIMESTAMP_MASK) << 16
+                | VERSION
+                | partition & PARTITION_MASK;
+
+        long leastSigBits = VARIANT
+                | (topic.hashCode() & TOPIC_HASH_MASK) << 56
+                | (offset & OFFSET_MASK) << 8
+                | sequence & SEQUENCE_MASK;
+
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+}
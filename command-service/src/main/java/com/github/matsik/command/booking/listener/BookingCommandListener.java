@@ -1,54 +1,281 @@
 package com.github.matsik.command.booking.listener;
 
+import com.github.matsik.command.booking.command.BookingCommand;
 import com.github.matsik.command.booking.command.CreateBookingCommand;
+import com.github.matsik.command.booking.command.CreateBookingsCommand;
 import com.github.matsik.command.booking.command.DeleteBookingCommand;
-import com.github.matsik.command.booking.service.BookingService;
+import com.github.matsik.command.booking.command.InvalidCommand;
+import com.github.matsik.command.booking.id.BookingIdGenerator;
+import com.github.matsik.command.booking.occupancy.OccupancyIndex;
+import com.github.matsik.command.booking.occupancy.state.OccupancyStateStore;
+import com.github.matsik.command.booking.outcome.CommandOutcomePublisher;
+import com.github.matsik.command.booking.retry.DelayedPartitions;
+import com.github.matsik.command.booking.retry.ParkedKeys;
+import com.github.matsik.command.booking.retry.RecordPosition;
+import com.github.matsik.command.booking.retry.RetryForwarder;
+import com.github.matsik.command.booking.retry.RetryTopics;
+import com.github.matsik.command.booking.service.BookingCommandProcessor;
+import com.github.matsik.command.booking.service.PendingCommand;
+import com.github.matsik.command.metrics.ConsumerLagGauge;
 import com.github.matsik.dto.BookingPartitionKey;
+import com.github.matsik.kafka.mapping.CommandHeaders;
 import com.github.matsik.kafka.task.CommandValue;
 import com.github.matsik.kafka.task.CreateBookingCommandValue;
+import com.github.matsik.kafka.task.CreateBookingsCommandValue;
 import com.github.matsik.kafka.task.DeleteBookingCommandValue;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.metrics.DoubleHistogram;
 import io.opentelemetry.api.metrics.LongCounter;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.serializer.SerializationUtils;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static com.github.matsik.command.metrics.MetricsRecorder.recordMetrics;
+import static com.github.matsik.command.metrics.MetricsRecorder.recordStage;
 
 @Component
 @RequiredArgsConstructor
+@Slf4j
 public class BookingCommandListener {
 
-    private final BookingService service;
+    private final BookingCommandProcessor processor;
+    private final CommandOutcomePublisher outcomePublisher;
+    private final OccupancyIndex occupancyIndex;
+    private final OccupancyStateStore occupancyStateStore;
+    private final RetryTopics retryTopics;
+    private final ParkedKeys parkedKeys;
+    private final RetryForwarder retryForwarder;
+    private final DelayedPartitions delayedPartitions;
+    private final ConsumerLagGauge consumerLagGauge;
 
     private final LongCounter batchCounter;
     private final DoubleHistogram batchHistogram;
+    private final DoubleHistogram stageHistogram;
+    private final LongCounter partitionRecordCounter;
 
-    @KafkaListener(topics = "bookings", groupId = "${kafka.groupId}", containerFactory = "kafkaListenerContainerFactory")
-    public void listen(List<ConsumerRecord<BookingPartitionKey, CommandValue>> records, Acknowledgment ack) {
+    public static final String LISTENER_ID = "bookingCommands";
+
+    @KafkaListener(
+            id = LISTENER_ID,
+            topics = "#{@retryTopics.listenedTopics()}",
+            groupId = "${kafka.groupId}",
+            containerFactory = "kafkaListenerContainerFactory"
+    )
+    public void listen(List<ConsumerRecord<BookingPartitionKey, CommandValue>> records, Consumer<?, ?> consumer) {
         recordMetrics(batchCounter, batchHistogram, () -> {
-            records.forEach(this::processRecord);
-            ack.acknowledge();
+            consumerLagGauge.update(consumer);
+            records.forEach(this::recordReceived);
+
+            long now = System.currentTimeMillis();
+            Map<TopicPartition, ConsumerRecord<BookingPartitionKey, CommandValue>> delayed = new HashMap<>();
+            List<ProducerRecord<BookingPartitionKey, CommandValue>> forwards = new ArrayList<>();
+            List<ConsumerRecord<BookingPartitionKey, CommandValue>> due = new ArrayList<>();
+            for (ConsumerRecord<BookingPartitionKey, CommandValue> record : records) {
+                TopicPartition topicPartition = new TopicPartition(record.topic(), record.partition());
+                if (delayed.containsKey(topicPartition)) {
+                    continue;
+                }
+                if (retryTopics.dueAt(record) > now) {
+                    delayed.put(topicPartition, record);
+                    continue;
+                }
+                // a parked service-date keeps its newer records behind the ones waiting for a retry
+                OptionalInt parkedTier = parkedKeys.tier(record.key());
+                if (parkedTier.isPresent() && parkedTier.getAsInt() > retryTopics.tier(record.topic())) {
+                    forwards.add(forward(record, parkedTier.getAsInt(), null));
+                    continue;
+                }
+                occupancyIndex.track(record.key(), record.partition());
+                due.add(record);
+            }
+
+            process(due, forwards);
+
+            outcomePublisher.flush();
+            occupancyStateStore.flush();
+            recordStage(stageHistogram, () -> retryForwarder.forward(forwards), "forward");
+
+            Map<TopicPartition, OffsetAndMetadata> offsets = nextOffsets(records, delayed);
+            recordStage(stageHistogram, () -> consumer.commitSync(offsets), "ack");
+            delayed.forEach((topicPartition, record) -> {
+                consumer.seek(topicPartition, record.offset());
+                delayedPartitions.pauseUntil(topicPartition, retryTopics.dueAt(record));
+            });
+
+            occupancyStateStore.acknowledged(offsets);
         }, "process_batch");
     }
 
-    private void processRecord(ConsumerRecord<BookingPartitionKey, CommandValue> record) {
-        BookingPartitionKey key = record.key();
-        CommandValue value = record.value();
+    /**
+     * Processes the records in rounds. The first failed record of a service-date is forwarded to its next tier,
+     * together with its later records of the round, which were not run. If it was dead-lettered instead, the later
+     * records are processed again in the next round.
+     */
+    private void process(
+            List<ConsumerRecord<BookingPartitionKey, CommandValue>> records,
+            List<ProducerRecord<BookingPartitionKey, CommandValue>> forwards
+    ) {
+        List<ConsumerRecord<BookingPartitionKey, CommandValue>> round = records;
+        while (!round.isEmpty()) {
+            List<PendingCommand> commands = round.stream()
+                    .map(record -> new PendingCommand(record.key(), () -> toCommand(record)))
+                    .toList();
+            List<CompletableFuture<Void>> results = processor.process(commands);
+            CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).exceptionally(_ -> null).join();
+
+            Map<BookingPartitionKey, Integer> failedTiers = new HashMap<>();
+            List<ConsumerRecord<BookingPartitionKey, CommandValue>> next = new ArrayList<>();
+            for (int i = 0; i < round.size(); i++) {
+                ConsumerRecord<BookingPartitionKey, CommandValue> record = round.get(i);
+                int tier = retryTopics.tier(record.topic());
 
-        switch (value) {
-            case CreateBookingCommandValue create -> {
-                CreateBookingCommand command = CreateBookingCommand.of(key, create);
-                service.createBooking(command);
+                Integer failedTier = failedTiers.get(record.key());
+                if (failedTier != null) {
+                    if (retryTopics.isDeadLetter(failedTier)) {
+                        next.add(record);
+                    } else {
+                        forwards.add(forward(record, failedTier, null));
+                    }
+                    continue;
+                }
+
+                Optional<Throwable> failure = failure(results.get(i));
+                if (failure.isEmpty()) {
+                    if (tier != RetryTopics.MAIN_TIER) {
+                        parkedKeys.resolve(record.key());
+                    }
+                    continue;
+                }
+                // a value that could not be deserialized fails the same way on every tier
+                int nextTier = record.value() == null ? retryTopics.deadLetterTier() : tier + 1;
+                log.atWarn()
+                        .setMessage("Failed to process a command, forwarding it")
+                        .addKeyValue("topic", record.topic())
+                        .addKeyValue("partition", record.partition())
+                        .addKeyValue("offset", record.offset())
+                        .addKeyValue("destination", retryTopics.topic(nextTier))
+                        .setCause(failure.get())
+                        .log();
+                failedTiers.put(record.key(), nextTier);
+                forwards.add(forward(record, nextTier, failure.get()));
             }
-            case DeleteBookingCommandValue delete -> {
-                DeleteBookingCommand command = DeleteBookingCommand.of(key, delete);
-                service.deleteBooking(command);
+            round = next;
+        }
+    }
+
+    private ProducerRecord<BookingPartitionKey, CommandValue> forward(
+            ConsumerRecord<BookingPartitionKey, CommandValue> record,
+            int destinationTier,
+            Throwable cause
+    ) {
+        int tier = retryTopics.tier(record.topic());
+        if (retryTopics.isDeadLetter(destinationTier)) {
+            if (tier != RetryTopics.MAIN_TIER) {
+                parkedKeys.resolve(record.key());
             }
+        } else if (tier == RetryTopics.MAIN_TIER) {
+            parkedKeys.park(record.key(), record.partition(), destinationTier);
+        } else {
+            parkedKeys.move(record.key(), record.partition(), destinationTier);
+        }
+        return retryForwarder.toForward(record, retryTopics.topic(destinationTier), cause);
+    }
+
+    private static Optional<Throwable> failure(CompletableFuture<Void> result) {
+        try {
+            result.join();
+            return Optional.empty();
+        } catch (CompletionException ex) {
+            return Optional.of(ex.getCause());
+        }
+    }
+
+    /**
+     * Delayed partitions are committed up to their first record that is not due yet.
+     */
+    private static Map<TopicPartition, OffsetAndMetadata> nextOffsets(
+            List<ConsumerRecord<BookingPartitionKey, CommandValue>> records,
+            Map<TopicPartition, ConsumerRecord<BookingPartitionKey, CommandValue>> delayed
+    ) {
+        Map<TopicPartition, Long> nextOffsets = new HashMap<>();
+        for (ConsumerRecord<BookingPartitionKey, CommandValue> record : records) {
+            TopicPartition topicPartition = new TopicPartition(record.topic(), record.partition());
+            ConsumerRecord<BookingPartitionKey, CommandValue> firstDelayed = delayed.get(topicPartition);
+            long nextOffset = firstDelayed != null ? firstDelayed.offset() : record.offset() + 1;
+            nextOffsets.merge(topicPartition, nextOffset, Math::max);
+        }
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        nextOffsets.forEach((topicPartition, offset) -> offsets.put(topicPartition, new OffsetAndMetadata(offset)));
+        return offsets;
+    }
+
+    private void recordReceived(ConsumerRecord<BookingPartitionKey, CommandValue> record) {
+        // the age of a retried record includes the delay of its tier, the topic tells it apart from lag
+        long recordAge = System.currentTimeMillis() - record.timestamp();
+        stageHistogram.record(recordAge, Attributes.of(
+                AttributeKey.stringKey("stage"), "record_age",
+                AttributeKey.stringKey("topic"), record.topic()
+        ));
+        partitionRecordCounter.add(1L, Attributes.of(
+                AttributeKey.stringKey("topic"), record.topic(),
+                AttributeKey.longKey("partition"), (long) record.partition()
+        ));
+    }
+
+    private BookingCommand toCommand(ConsumerRecord<BookingPartitionKey, CommandValue> record) {
+        BookingPartitionKey key = record.key();
+        CommandValue value = record.value();
+        if (value == null) {
+            throw new IllegalArgumentException(String.format(
+                    "Command value could not be deserialized, the cause is in the %s header",
+                    SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER
+            ));
+        }
+        UUID commandId = CommandHeaders.commandId(record.headers()).orElse(null);
+
+        // a refused value fails the same way on every attempt, the client learns about it from the rejection
+        try {
+            return switch (value) {
+                case CreateBookingCommandValue create -> {
+                    RecordPosition position = RecordPosition.of(record);
+                    UUID bookingId = BookingIdGenerator.generate(position.topic(), position.partition(), position.offset(), position.timestamp());
+                    yield CreateBookingCommand.of(key, bookingId, commandId, create);
+                }
+                case CreateBookingsCommandValue create -> {
+                    RecordPosition position = RecordPosition.of(record);
+                    yield CreateBookingsCommand.of(key, sequence -> BookingIdGenerator.generate(
+                            position.topic(), position.partition(), position.offset(), position.timestamp(), sequence
+                    ), commandId, create);
+                }
+                case DeleteBookingCommandValue delete -> DeleteBookingCommand.of(key, commandId, delete);
+            };
+        } catch (IllegalArgumentException ex) {
+            log.atWarn()
+                    .setMessage("Refused a command value, rejecting the command")
+                    .addKeyValue("topic", record.topic())
+                    .addKeyValue("partition", record.partition())
+                    .addKeyValue("offset", record.offset())
+                    .setCause(ex)
+                    .log();
+            return new InvalidCommand(key, commandId);
         }
     }
 
@@ -0,0 +1,62 @@
+package com.github.matsik.command.booking.listener;
+
+import com.github.matsik.command.booking.occupancy.state.OccupancyStateStore;
+import com.github.matsik.command.booking.retry.ParkedKeys;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+import static com.github.matsik.command.config.kafka.KafkaClientConfiguration.BOOKINGS_TOPIC_NAME;
+
+/**
+ * Restores the service-dates of assigned partitions before their first poll and checkpoints the revoked ones, the
+ * service-dates of the partitions left without a state are lazily reloaded from Cassandra on their next command.
+ * The retry topics are co-partitioned with the bookings topic, so only the bookings partitions are considered.
+ */
+@Component
+@RequiredArgsConstructor
+public class CommandRebalanceListener implements ConsumerAwareRebalanceListener {
+
+    private final OccupancyStateStore occupancyStateStore;
+    private final ParkedKeys parkedKeys;
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        List<TopicPartition> assigned = partitions.stream()
+                .filter(partition -> partition.topic().equals(BOOKINGS_TOPIC_NAME))
+                .toList();
+        if (!assigned.isEmpty()) {
+            occupancyStateStore.restore(consumer, assigned);
+        }
+    }
+
+    @Override
+    public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        List<Integer> revoked = partitionNumbers(partitions);
+        if (!revoked.isEmpty()) {
+            occupancyStateStore.checkpoint(revoked);
+            occupancyStateStore.release(revoked);
+            parkedKeys.release(revoked);
+        }
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        List<Integer> lost = partitionNumbers(partitions);
+        occupancyStateStore.release(lost);
+        parkedKeys.release(lost);
+    }
+
+    private static List<Integer> partitionNumbers(Collection<TopicPartition> partitions) {
+        return partitions.stream()
+                .filter(partition -> partition.topic().equals(BOOKINGS_TOPIC_NAME))
+                .map(TopicPartition::partition)
+                .toList();
+    }
+
+}
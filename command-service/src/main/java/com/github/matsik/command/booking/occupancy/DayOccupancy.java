@@ -0,0 +1,92 @@
+package com.github.matsik.command.booking.occupancy;
+
+import com.github.matsik.command.booking.repository.projection.ServiceBooking;
+import com.github.matsik.dto.MinuteBitmap;
+import com.github.matsik.dto.TimeRange;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Bookings of a single service-date together with a minute bitmap of the occupied time. Not thread-safe, it relies on
+ * the Kafka partition of the service-date being processed by a single thread at a time.
+ */
+public class DayOccupancy {
+
+    private final MinuteBitmap minutes = new MinuteBitmap();
+    private final Map<UUID, ServiceBooking> bookings = new HashMap<>();
+
+    private long lastModified;
+
+    public static DayOccupancy of(List<ServiceBooking> bookings) {
+        return of(bookings, System.currentTimeMillis());
+    }
+
+    public static DayOccupancy of(List<ServiceBooking> bookings, long lastModified) {
+        DayOccupancy occupancy = new DayOccupancy();
+        bookings.forEach(occupancy::add);
+        occupancy.lastModified = lastModified;
+        return occupancy;
+    }
+
+    /**
+     * @return epoch millis of the last change, strictly increasing for a service-date, so it also versions the
+     * occupancy summary and picks the newest of the snapshots restored for a service-date
+     */
+    public long lastModified() {
+        return lastModified;
+    }
+
+    public boolean isOccupied(TimeRange timeRange) {
+        return minutes.isOccupied(timeRange);
+    }
+
+    public MinuteBitmap minutes() {
+        return minutes;
+    }
+
+    public long countOverlapping(TimeRange timeRange) {
+        return bookings.values().stream()
+                .filter(booking -> booking.timeRange().isOverlap(timeRange))
+                .count();
+    }
+
+    public Optional<ServiceBooking> findBooking(UUID bookingId) {
+        return Optional.ofNullable(bookings.get(bookingId));
+    }
+
+    public Collection<ServiceBooking> bookings() {
+        return bookings.values();
+    }
+
+    public void add(ServiceBooking booking) {
+        bookings.put(booking.bookingId(), booking);
+        minutes.mark(booking.timeRange(), true);
+        touch();
+    }
+
+    public void remove(UUID bookingId) {
+        ServiceBooking removed = bookings.remove(bookingId);
+        if (removed == null) {
+            return;
+        }
+        TimeRange removedTimeRange = removed.timeRange();
+        minutes.mark(removedTimeRange, false);
+        touch();
+
+        // bookings written before the index existed are not guaranteed to be disjoint
+        bookings.values().stream()
+                .map(ServiceBooking::timeRange)
+                .filter(removedTimeRange::isOverlap)
+                .forEach(timeRange -> minutes.mark(timeRange, true));
+    }
+
+    private void touch() {
+        lastModified = Math.max(lastModified + 1, System.currentTimeMillis());
+    }
+
+}
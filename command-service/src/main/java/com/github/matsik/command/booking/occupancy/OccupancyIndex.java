@@ -0,0 +1,133 @@
+package com.github.matsik.command.booking.occupancy;
+
+import com.github.matsik.command.booking.repository.BookingRepository;
+import com.github.matsik.command.booking.repository.projection.ServiceBooking;
+import com.github.matsik.dto.BookingPartitionKey;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of the bookings of the service-dates owned by this consumer. Every Kafka partition has a single
+ * writer, so once a service-date is loaded from Cassandra or restored from its partition state, it is kept in sync by
+ * the command processing alone.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OccupancyIndex {
+
+    private final BookingRepository bookingRepository;
+
+    private final Map<BookingPartitionKey, DayOccupancy> occupancies = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<BookingPartitionKey>> partitionKeys = new ConcurrentHashMap<>();
+    private final Map<BookingPartitionKey, Integer> keyPartitions = new ConcurrentHashMap<>();
+
+    public DayOccupancy get(BookingPartitionKey key) {
+        DayOccupancy occupancy = occupancies.get(key);
+        if (occupancy != null) {
+            return occupancy;
+        }
+        // loaded outside of computeIfAbsent, the key has a single writer anyway
+        List<ServiceBooking> bookings = bookingRepository.findBookings(key.serviceId(), key.date());
+        // continues the version of the summary written by the previous owner, even if its clock was ahead
+        long version = bookingRepository.findOccupancyVersion(key.serviceId(), key.date()).orElse(0L);
+        DayOccupancy loaded = DayOccupancy.of(bookings, Math.max(version, System.currentTimeMillis()));
+        DayOccupancy previous = occupancies.putIfAbsent(key, loaded);
+        return previous != null ? previous : loaded;
+    }
+
+    /**
+     * @return the service-date if it is loaded, without loading it
+     */
+    public Optional<DayOccupancy> find(BookingPartitionKey key) {
+        return Optional.ofNullable(occupancies.get(key));
+    }
+
+    public void track(BookingPartitionKey key, int partition) {
+        Integer previous = keyPartitions.put(key, partition);
+        if (previous != null && previous != partition) {
+            // moved by a partition expansion
+            Set<BookingPartitionKey> previousKeys = partitionKeys.get(previous);
+            if (previousKeys != null) {
+                previousKeys.remove(key);
+            }
+        }
+        partitionKeys.computeIfAbsent(partition, _ -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    public Optional<Integer> partitionOf(BookingPartitionKey key) {
+        return Optional.ofNullable(keyPartitions.get(key));
+    }
+
+    /**
+     * @return the loaded service-dates of the partition, only consistent while no command of it is processed
+     */
+    public Map<BookingPartitionKey, DayOccupancy> partitionOccupancies(int partition) {
+        Map<BookingPartitionKey, DayOccupancy> result = new HashMap<>();
+        partitionKeys.getOrDefault(partition, Set.of()).forEach(key -> {
+            DayOccupancy occupancy = occupancies.get(key);
+            if (occupancy != null) {
+                result.put(key, occupancy);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Keys moved between partitions by an expansion can be restored from both of them, the newest snapshot is kept.
+     */
+    public void restore(int partition, Map<BookingPartitionKey, DayOccupancy> restored) {
+        restored.forEach((key, occupancy) -> {
+            occupancies.merge(key, occupancy, (current, candidate) ->
+                    candidate.lastModified() > current.lastModified() ? candidate : current
+            );
+            track(key, partition);
+        });
+        log.atInfo()
+                .setMessage("Restored occupancy index partition")
+                .addKeyValue("partition", partition)
+                .addKeyValue("restored_size", restored.size())
+                .log();
+    }
+
+    public void evict(BookingPartitionKey key) {
+        occupancies.remove(key);
+    }
+
+    public void evictPartitions(Collection<Integer> partitions) {
+        for (Integer partition : partitions) {
+            Set<BookingPartitionKey> keys = partitionKeys.remove(partition);
+            if (keys != null) {
+                keys.forEach(key -> {
+                    occupancies.remove(key);
+                    keyPartitions.remove(key);
+                });
+            }
+        }
+        log.atInfo()
+                .setMessage("Evicted occupancy index partitions")
+                .addKeyValue("partitions", partitions)
+                .addKeyValue("occupancy_index_size", occupancies.size())
+                .log();
+    }
+
+    public void clear() {
+        log.atInfo()
+                .setMessage("Clearing occupancy index")
+                .addKeyValue("occupancy_index_size", occupancies.size())
+                .log();
+        occupancies.clear();
+        partitionKeys.clear();
+        keyPartitions.clear();
+    }
+
+}
@@ -0,0 +1,169 @@
+package com.github.matsik.command.booking.occupancy.state;
+
+import com.github.matsik.command.booking.occupancy.DayOccupancy;
+import com.github.matsik.command.booking.occupancy.OccupancyIndex;
+import com.github.matsik.command.config.processing.CommandProcessingProperties;
+import com.github.matsik.dto.BookingPartitionKey;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static com.github.matsik.command.config.kafka.KafkaClientConfiguration.OCCUPANCY_CHANGELOG_TOPIC_NAME;
+
+/**
+ * Compacted topic with the latest snapshot of every service-date. A snapshot is sent to the same partition number as
+ * the commands of its service-date, so a single changelog partition restores a single bookings partition.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OccupancyChangelog {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(200);
+
+    private final KafkaTemplate<BookingPartitionKey, byte[]> changelogTemplate;
+    private final ConsumerFactory<BookingPartitionKey, byte[]> changelogConsumerFactory;
+    private final OccupancyIndex occupancyIndex;
+    private final CommandProcessingProperties processingProperties;
+
+    private final Queue<PendingSend> pendingSends = new ConcurrentLinkedQueue<>();
+
+    public void publish(BookingPartitionKey key, DayOccupancy occupancy) {
+        send(key, occupancy);
+    }
+
+    /**
+     * Removes the snapshot of a service-date whose occupancy is no longer known, so it is restored from Cassandra.
+     */
+    public void remove(BookingPartitionKey key) {
+        send(key, null);
+    }
+
+    private void send(BookingPartitionKey key, DayOccupancy occupancy) {
+        // until the changelog is grown after a partition expansion, the new partitions fall back to the cold path, a
+        // snapshot sent to any other partition would be restored into the wrong bookings partition
+        Optional<Integer> partition = occupancyIndex.partitionOf(key)
+                .filter(candidate -> candidate < changelogTemplate.partitionsFor(OCCUPANCY_CHANGELOG_TOPIC_NAME).size());
+        if (partition.isEmpty()) {
+            return;
+        }
+        // an empty service-date is removed by compaction
+        byte[] snapshot = occupancy == null || occupancy.bookings().isEmpty()
+                ? null
+                : OccupancySnapshotCodec.encode(occupancy);
+        CompletableFuture<?> sent = changelogTemplate.send(OCCUPANCY_CHANGELOG_TOPIC_NAME, partition.get(), key, snapshot);
+        pendingSends.add(new PendingSend(key, sent));
+    }
+
+    /**
+     * Blocks until every snapshot published so far is sent. The service-dates of failed sends are published again
+     * with their current occupancy, as acknowledging the batch would otherwise leave an outdated snapshot to be
+     * restored.
+     */
+    public void flush() {
+        changelogTemplate.flush();
+        Set<BookingPartitionKey> failed = awaitPendingSends();
+        while (!failed.isEmpty()) {
+            sleep();
+            failed.forEach(key -> send(key, occupancyIndex.find(key).orElse(null)));
+            changelogTemplate.flush();
+            failed = awaitPendingSends();
+        }
+    }
+
+    private Set<BookingPartitionKey> awaitPendingSends() {
+        Set<BookingPartitionKey> failed = new HashSet<>();
+        PendingSend pending;
+        while ((pending = pendingSends.poll()) != null) {
+            try {
+                pending.sent().join();
+            } catch (CompletionException ex) {
+                log.atWarn()
+                        .setMessage("Failed to publish an occupancy snapshot, retrying")
+                        .addKeyValue("service_id", pending.key().serviceId())
+                        .addKeyValue("date", pending.key().date())
+                        .setCause(ex.getCause())
+                        .log();
+                failed.add(pending.key());
+            }
+        }
+        return failed;
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(processingProperties.retryBackoff());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while publishing occupancy snapshots", ex);
+        }
+    }
+
+    /**
+     * Reads the changelog partition up to its end offset.
+     *
+     * @return the service-dates of the partition, empty if the partition does not exist or was not read in time
+     */
+    public Optional<Map<BookingPartitionKey, DayOccupancy>> read(int partition, Duration timeout) {
+        TopicPartition topicPartition = new TopicPartition(OCCUPANCY_CHANGELOG_TOPIC_NAME, partition);
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        try (Consumer<BookingPartitionKey, byte[]> consumer = changelogConsumerFactory.createConsumer()) {
+            if (consumer.partitionsFor(OCCUPANCY_CHANGELOG_TOPIC_NAME).size() <= partition) {
+                return Optional.empty();
+            }
+            consumer.assign(List.of(topicPartition));
+            consumer.seekToBeginning(List.of(topicPartition));
+            long endOffset = consumer.endOffsets(List.of(topicPartition)).get(topicPartition);
+
+            Map<BookingPartitionKey, DayOccupancy> occupancies = new HashMap<>();
+            while (consumer.position(topicPartition) < endOffset) {
+                if (System.nanoTime() > deadline) {
+                    log.atWarn()
+                            .setMessage("Timed out reading the occupancy changelog")
+                            .addKeyValue("partition", partition)
+                            .addKeyValue("end_offset", endOffset)
+                            .log();
+                    return Optional.empty();
+                }
+                for (ConsumerRecord<BookingPartitionKey, byte[]> record : consumer.poll(POLL_TIMEOUT)) {
+                    if (record.value() == null) {
+                        occupancies.remove(record.key());
+                    } else {
+                        occupancies.put(record.key(), OccupancySnapshotCodec.decode(ByteBuffer.wrap(record.value())));
+                    }
+                }
+            }
+            return Optional.of(occupancies);
+        } catch (RuntimeException ex) {
+            log.atWarn()
+                    .setMessage("Failed to read the occupancy changelog")
+                    .addKeyValue("partition", partition)
+                    .setCause(ex)
+                    .log();
+            return Optional.empty();
+        }
+    }
+
+    private record PendingSend(BookingPartitionKey key, CompletableFuture<?> sent) {
+    }
+
+}
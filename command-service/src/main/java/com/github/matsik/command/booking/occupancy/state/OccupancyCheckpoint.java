@@ -0,0 +1,20 @@
+package com.github.matsik.command.booking.occupancy.state;
+
+import com.github.matsik.command.booking.occupancy.DayOccupancy;
+import com.github.matsik.dto.BookingPartitionKey;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @param offsets the committed offsets of the partition in the bookings topic followed by the retry topics,
+ *                {@link #NO_OFFSET} for a topic without a committed offset
+ */
+public record OccupancyCheckpoint(
+        List<Long> offsets,
+        Map<BookingPartitionKey, DayOccupancy> occupancies
+) {
+
+    public static final long NO_OFFSET = -1L;
+
+}
@@ -0,0 +1,112 @@
+package com.github.matsik.command.booking.occupancy.state;
+
+import com.github.matsik.command.booking.occupancy.DayOccupancy;
+import com.github.matsik.command.config.processing.CommandProcessingProperties;
+import com.github.matsik.dto.BookingPartitionKey;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Memory-mapped checkpoint file per partition, holding the service-dates of the partition together with the offsets
+ * they are consistent with. A checkpoint is only valid if its offsets equal the committed offsets of the partition in
+ * the bookings topic and in every retry topic.
+ * <p>
+ * Layout: magic, format version, offset count, offsets, service-date count and per service-date the key and its
+ * snapshot.
+ */
+@Component
+@Slf4j
+public class OccupancyCheckpointStore {
+
+    private static final int MAGIC = 0x4F434350;
+    private static final byte FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 4 + 1 + 4 + 4;
+
+    private final Path directory;
+
+    public OccupancyCheckpointStore(CommandProcessingProperties properties) {
+        this.directory = Path.of(properties.stateDir());
+    }
+
+    public void write(int partition, List<Long> offsets, Map<BookingPartitionKey, DayOccupancy> occupancies) {
+        long size = HEADER_SIZE + 8L * offsets.size();
+        for (DayOccupancy occupancy : occupancies.values()) {
+            size += OccupancySnapshotCodec.KEY_SIZE + OccupancySnapshotCodec.size(occupancy);
+        }
+
+        Path file = file(partition);
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            try (FileChannel channel = FileChannel.open(temporaryFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(MAGIC);
+                buffer.put(FORMAT_VERSION);
+                buffer.putInt(offsets.size());
+                offsets.forEach(buffer::putLong);
+                buffer.putInt(occupancies.size());
+                occupancies.forEach((key, occupancy) -> {
+                    OccupancySnapshotCodec.encodeKey(key, buffer);
+                    OccupancySnapshotCodec.encode(occupancy, buffer);
+                });
+                buffer.force();
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Optional<OccupancyCheckpoint> read(int partition) {
+        Path file = file(partition);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.get() != FORMAT_VERSION) {
+                return Optional.empty();
+            }
+            int offsetCount = buffer.getInt();
+            List<Long> offsets = new ArrayList<>(offsetCount);
+            for (int i = 0; i < offsetCount; i++) {
+                offsets.add(buffer.getLong());
+            }
+            int count = buffer.getInt();
+            Map<BookingPartitionKey, DayOccupancy> occupancies = HashMap.newHashMap(count);
+            for (int i = 0; i < count; i++) {
+                BookingPartitionKey key = OccupancySnapshotCodec.decodeKey(buffer);
+                occupancies.put(key, OccupancySnapshotCodec.decode(buffer));
+            }
+            return Optional.of(new OccupancyCheckpoint(offsets, occupancies));
+        } catch (IOException | BufferUnderflowException e) {
+            log.atWarn()
+                    .setMessage("Failed to read occupancy checkpoint")
+                    .addKeyValue("partition", partition)
+                    .setCause(e)
+                    .log();
+            return Optional.empty();
+        }
+    }
+
+    private Path file(int partition) {
+        return directory.resolve(String.format("occupancy-%d.checkpoint", partition));
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.github.matsik.command.booking.occupancy.state;
+
+import com.github.matsik.command.booking.occupancy.DayOccupancy;
+import com.github.matsik.command.booking.repository.projection.ServiceBooking;
+import com.github.matsik.dto.BookingPartitionKey;
+import com.github.matsik.dto.TimeRange;
+import com.github.matsik.kafka.mapping.BookingPartitionKeySerializer;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Binary layout of a service-date snapshot, shared by the changelog values and the checkpoint files: last modified
+ * millis, booking count and per booking the booking id, the user id, start and end.
+ */
+public class OccupancySnapshotCodec {
+
+    public static final int KEY_SIZE = BookingPartitionKeySerializer.PARTITION_KEY_SIZE;
+
+    private static final int HEADER_SIZE = 8 + 4;
+    private static final int BOOKING_SIZE = 16 + 16 + 2 + 2;
+
+    public static int size(DayOccupancy occupancy) {
+        return HEADER_SIZE + occupancy.bookings().size() * BOOKING_SIZE;
+    }
+
+    public static byte[] encode(DayOccupancy occupancy) {
+        ByteBuffer buffer = ByteBuffer.allocate(size(occupancy));
+        encode(occupancy, buffer);
+        return buffer.array();
+    }
+
+    public static void encode(DayOccupancy occupancy, ByteBuffer buffer) {
+        buffer.putLong(occupancy.lastModified());
+        buffer.putInt(occupancy.bookings().size());
+        for (ServiceBooking booking : occupancy.bookings()) {
+            putUuid(buffer, booking.bookingId());
+            putUuid(buffer, booking.userId());
+            buffer.putShort((short) booking.timeRange().start().minuteOfDay());
+            buffer.putShort((short) booking.timeRange().end().minuteOfDay());
+        }
+    }
+
+    public static DayOccupancy decode(ByteBuffer buffer) {
+        long lastModified = buffer.getLong();
+        int count = buffer.getInt();
+        List<ServiceBooking> bookings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            UUID bookingId = getUuid(buffer);
+            UUID userId = getUuid(buffer);
+            int start = buffer.getShort();
+            int end = buffer.getShort();
+            bookings.add(new ServiceBooking(bookingId, userId, TimeRange.of(start, end)));
+        }
+        return DayOccupancy.of(bookings, lastModified);
+    }
+
+    public static void encodeKey(BookingPartitionKey key, ByteBuffer buffer) {
+        putUuid(buffer, key.serviceId());
+        buffer.putInt((int) key.date().toEpochDay());
+    }
+
+    public static BookingPartitionKey decodeKey(ByteBuffer buffer) {
+        UUID serviceId = getUuid(buffer);
+        LocalDate date = LocalDate.ofEpochDay(buffer.getInt());
+        return BookingPartitionKey.of(serviceId, date);
+    }
+
+    private static void putUuid(ByteBuffer buffer, UUID uuid) {
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.github.matsik.command.booking.occupancy.state;
+
+import com.github.matsik.command.booking.occupancy.DayOccupancy;
+import com.github.matsik.command.booking.occupancy.OccupancyIndex;
+import com.github.matsik.command.booking.retry.RetryTopics;
+import com.github.matsik.command.config.processing.CommandProcessingProperties;
+import com.github.matsik.dto.BookingPartitionKey;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the occupancy index of the assigned partitions restorable. Acknowledged partitions are periodically written to
+ * their local checkpoint, while every change is also published to the changelog, so an assigned partition is restored
+ * from the checkpoint if it matches the committed offsets, from the changelog otherwise and lazily from Cassandra as the
+ * last resort. The retry topics are co-partitioned with the bookings topic and change the same service-dates, so the
+ * offsets of a partition cover all of them.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OccupancyStateStore {
+
+    private final OccupancyIndex occupancyIndex;
+    private final OccupancyChangelog changelog;
+    private final OccupancyCheckpointStore checkpointStore;
+    private final CommandProcessingProperties processingProperties;
+    private final RetryTopics retryTopics;
+
+    private final Map<Integer, Map<String, Long>> acknowledgedOffsets = new ConcurrentHashMap<>();
+    private final Set<Integer> dirtyPartitions = ConcurrentHashMap.newKeySet();
+    private volatile long lastCheckpoint = System.nanoTime();
+
+    public void changed(BookingPartitionKey key, DayOccupancy occupancy) {
+        changelog.publish(key, occupancy);
+    }
+
+    /**
+     * Forgets the occupancy of a service-date after a write that might have been applied, it is reloaded from Cassandra
+     * both by the next command and by a restore.
+     */
+    public void evict(BookingPartitionKey key) {
+        changelog.remove(key);
+        occupancyIndex.evict(key);
+    }
+
+    public void flush() {
+        changelog.flush();
+    }
+
+    /**
+     * @param nextOffsets the committed offset of every topic partition of the acknowledged batch, a record of a retry
+     *                    topic changes the state of the bookings partition with the same number
+     */
+    public void acknowledged(Map<TopicPartition, OffsetAndMetadata> nextOffsets) {
+        nextOffsets.forEach((topicPartition, offset) -> {
+            acknowledgedOffsets.computeIfAbsent(topicPartition.partition(), _ -> new ConcurrentHashMap<>())
+                    .put(topicPartition.topic(), offset.offset());
+            dirtyPartitions.add(topicPartition.partition());
+        });
+        if (System.nanoTime() - lastCheckpoint >= processingProperties.checkpointInterval().toNanos()) {
+            checkpoint(Set.copyOf(dirtyPartitions));
+            lastCheckpoint = System.nanoTime();
+        }
+    }
+
+    public void checkpoint(Collection<Integer> partitions) {
+        for (Integer partition : partitions) {
+            Map<String, Long> offsets = acknowledgedOffsets.get(partition);
+            if (offsets == null || !dirtyPartitions.remove(partition)) {
+                continue;
+            }
+            try {
+                checkpointStore.write(partition, checkpointOffsets(offsets), occupancyIndex.partitionOccupancies(partition));
+            } catch (RuntimeException ex) {
+                log.atWarn()
+                        .setMessage("Failed to write occupancy checkpoint")
+                        .addKeyValue("partition", partition)
+                        .setCause(ex)
+                        .log();
+            }
+        }
+    }
+
+    /**
+     * @param partitions the assigned partitions of the bookings topic
+     */
+    public void restore(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        Set<TopicPartition> topicPartitions = new HashSet<>();
+        for (TopicPartition topicPartition : partitions) {
+            for (String topic : retryTopics.listenedTopics()) {
+                topicPartitions.add(new TopicPartition(topic, topicPartition.partition()));
+            }
+        }
+        Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(topicPartitions);
+        for (TopicPartition topicPartition : partitions) {
+            int partition = topicPartition.partition();
+            Map<String, Long> committedOffsets = new ConcurrentHashMap<>();
+            committed.forEach((committedPartition, offset) -> {
+                if (committedPartition.partition() == partition && offset != null) {
+                    committedOffsets.put(committedPartition.topic(), offset.offset());
+                }
+            });
+            acknowledgedOffsets.put(partition, committedOffsets);
+
+            List<Long> expectedOffsets = checkpointOffsets(committedOffsets);
+            Optional<OccupancyCheckpoint> checkpoint = checkpointStore.read(partition)
+                    .filter(candidate -> !committedOffsets.isEmpty() && candidate.offsets().equals(expectedOffsets));
+            if (checkpoint.isPresent()) {
+                occupancyIndex.restore(partition, checkpoint.get().occupancies());
+                continue;
+            }
+            changelog.read(partition, processingProperties.restoreTimeout())
+                    .ifPresent(occupancies -> occupancyIndex.restore(partition, occupancies));
+        }
+    }
+
+    private List<Long> checkpointOffsets(Map<String, Long> offsets) {
+        return Arrays.stream(retryTopics.listenedTopics())
+                .map(topic -> offsets.getOrDefault(topic, OccupancyCheckpoint.NO_OFFSET))
+                .toList();
+    }
+
+    public void release(Collection<Integer> partitions) {
+        occupancyIndex.evictPartitions(partitions);
+        partitions.forEach(acknowledgedOffsets::remove);
+        dirtyPartitions.removeAll(partitions);
+    }
+
+}
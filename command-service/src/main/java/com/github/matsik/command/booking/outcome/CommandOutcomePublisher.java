@@ -0,0 +1,57 @@
+package com.github.matsik.command.booking.outcome;
+
+import com.github.matsik.command.booking.command.BookingCommand;
+import com.github.matsik.command.booking.command.CreateBookingsCommand;
+import com.github.matsik.command.booking.service.BookingDecision;
+import com.github.matsik.command.booking.service.BookingRejection;
+import com.github.matsik.command.booking.service.BookingWrite;
+import com.github.matsik.kafka.outcome.CommandAccepted;
+import com.github.matsik.kafka.outcome.CommandBatchAccepted;
+import com.github.matsik.kafka.outcome.CommandOutcome;
+import com.github.matsik.kafka.outcome.CommandRejected;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+import static com.github.matsik.command.config.kafka.KafkaClientConfiguration.OUTCOMES_TOPIC_NAME;
+
+/**
+ * Publishes the outcome of every command that carries a command id. Outcomes are notifications only, a failed send is
+ * logged and the client falls back to querying the bookings.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CommandOutcomePublisher {
+
+    private final KafkaTemplate<UUID, CommandOutcome> outcomeTemplate;
+
+    public void publish(BookingCommand command, BookingDecision decision) {
+        UUID commandId = command.commandId();
+        if (commandId == null) {
+            return;
+        }
+        CommandOutcome outcome = switch (decision) {
+            case BookingWrite write when command instanceof CreateBookingsCommand -> new CommandBatchAccepted(write.bookingIds());
+            case BookingWrite write -> new CommandAccepted(write.bookingId());
+            case BookingRejection rejection -> new CommandRejected(rejection.reason());
+        };
+        outcomeTemplate.send(OUTCOMES_TOPIC_NAME, commandId, outcome).whenComplete((_, ex) -> {
+            if (ex != null) {
+                log.atWarn()
+                        .setMessage("Failed to publish a command outcome")
+                        .addKeyValue("command_id", commandId)
+                        .setCause(ex)
+                        .log();
+            }
+        });
+    }
+
+    public void flush() {
+        outcomeTemplate.flush();
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.github.matsik.command.booking.repository;
 
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.ResultSet;
 import com.datastax.oss.driver.api.core.cql.Row;
 import com.datastax.oss.driver.api.mapper.annotations.Dao;
 import com.datastax.oss.driver.api.mapper.annotations.Delete;
@@ -9,9 +10,12 @@ import com.datastax.oss.driver.api.mapper.annotations.Query;
 import com.datastax.oss.driver.api.mapper.annotations.StatementAttributes;
 import com.github.matsik.cassandra.entity.BookingByServiceAndDate;
 import com.github.matsik.cassandra.entity.BookingByUser;
+import com.github.matsik.cassandra.entity.ServiceDayOccupancy;
+import com.github.matsik.command.booking.repository.projection.ServiceBooking;
 
 import java.time.LocalDate;
-import java.util.Optional;
+import java.util.List;
+import java.util.OptionalLong;
 import java.util.UUID;
 
 @Dao
@@ -25,6 +29,10 @@ public interface BookingRepository {
     @StatementAttributes(consistencyLevel = "QUORUM")
     BoundStatement save(BookingByUser booking);
 
+    @Insert
+    @StatementAttributes(consistencyLevel = "QUORUM")
+    BoundStatement save(ServiceDayOccupancy occupancy);
+
     @Delete(entityClass = BookingByServiceAndDate.class)
     @StatementAttributes(consistencyLevel = "QUORUM")
     BoundStatement deleteByPrimaryKey(UUID serviceId, LocalDate date, UUID bookingId);
@@ -34,32 +42,32 @@ public interface BookingRepository {
     BoundStatement deleteByPrimaryKey(UUID userId, UUID serviceId, LocalDate date, UUID bookingId);
 
     @Query("""
-            SELECT user_id
+            SELECT booking_id, user_id, start, end
             FROM bookings_by_service_and_date
-            WHERE service_id = :serviceId AND date = :date AND booking_id = :bookingId
+            WHERE service_id = :serviceId AND date = :date
             """)
     @StatementAttributes(consistencyLevel = "QUORUM")
-    Row _findBookingOwner(UUID serviceId, LocalDate date, UUID bookingId);
+    ResultSet _findBookings(UUID serviceId, LocalDate date);
 
-    default Optional<UUID> findBookingOwner(UUID serviceId, LocalDate date, UUID bookingId) {
-        Row row = _findBookingOwner(serviceId, date, bookingId);
-        return Optional.ofNullable(row)
-                .map(rowValue -> rowValue.getUuid("user_id"));
+    default List<ServiceBooking> findBookings(UUID serviceId, LocalDate date) {
+        return _findBookings(serviceId, date)
+                .map(ServiceBooking::of)
+                .all()
+                .stream()
+                .toList();
     }
 
     @Query("""
-            SELECT COUNT(*)
-            FROM bookings_by_service_and_date
+            SELECT version
+            FROM service_day_occupancy
             WHERE service_id = :serviceId AND date = :date
-              AND start < :end
-              AND end > :start
-            ALLOW FILTERING
             """)
     @StatementAttributes(consistencyLevel = "QUORUM")
-    long findOverlappingBookingCount(
-            UUID serviceId,
-            LocalDate date,
-            int start,
-            int end
-    );
+    Row _findOccupancyVersion(UUID serviceId, LocalDate date);
+
+    default OptionalLong findOccupancyVersion(UUID serviceId, LocalDate date) {
+        Row row = _findOccupancyVersion(serviceId, date);
+        return row == null ? OptionalLong.empty() : OptionalLong.of(row.getLong("version"));
+    }
+
 }
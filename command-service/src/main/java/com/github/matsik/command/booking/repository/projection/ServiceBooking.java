@@ -0,0 +1,22 @@
+package com.github.matsik.command.booking.repository.projection;
+
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.github.matsik.dto.TimeRange;
+import lombok.Builder;
+
+import java.util.UUID;
+
+@Builder
+public record ServiceBooking(
+        UUID bookingId,
+        UUID userId,
+        TimeRange timeRange
+) {
+    public static ServiceBooking of(Row row) {
+        return ServiceBooking.builder()
+                .bookingId(row.getUuid("booking_id"))
+                .userId(row.getUuid("user_id"))
+                .timeRange(TimeRange.of(row))
+                .build();
+    }
+}
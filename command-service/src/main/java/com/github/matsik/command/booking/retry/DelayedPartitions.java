@@ -0,0 +1,47 @@
+package com.github.matsik.command.booking.retry;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.matsik.command.booking.listener.BookingCommandListener.LISTENER_ID;
+
+/**
+ * Pauses a retry partition until its next record is due, so that waiting records hold neither the listener thread nor
+ * the other partitions.
+ */
+@Component
+public class DelayedPartitions implements DisposableBean {
+
+    private final KafkaListenerEndpointRegistry registry;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("retry-resume").factory()
+    );
+
+    public DelayedPartitions(KafkaListenerEndpointRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void pauseUntil(TopicPartition partition, long dueAt) {
+        MessageListenerContainer container = registry.getListenerContainer(LISTENER_ID);
+        if (container == null) {
+            return;
+        }
+        container.pausePartition(partition);
+        long delay = Math.max(0, dueAt - System.currentTimeMillis());
+        scheduler.schedule(() -> container.resumePartition(partition), delay, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+}
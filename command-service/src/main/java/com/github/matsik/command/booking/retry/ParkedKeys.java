@@ -0,0 +1,83 @@
+package com.github.matsik.command.booking.retry;
+
+import com.github.matsik.dto.BookingPartitionKey;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalInt;
+
+/**
+ * Service-dates with records waiting in the retry topics. While a service-date is parked, its newer records are
+ * forwarded behind the waiting ones instead of being processed, so that its commands keep their log order.
+ * <p>
+ * Only accessed by the consumer thread. The state of a partition is dropped with its assignment, so the order is only
+ * kept within a single assignment.
+ */
+@Component
+public class ParkedKeys {
+
+    private final Map<BookingPartitionKey, ParkedKey> parked = new HashMap<>();
+
+    /**
+     * @return the tier the records of the service-date are forwarded to, empty if it is not parked
+     */
+    public OptionalInt tier(BookingPartitionKey key) {
+        ParkedKey parkedKey = parked.get(key);
+        return parkedKey == null ? OptionalInt.empty() : OptionalInt.of(parkedKey.tier);
+    }
+
+    /**
+     * A record of the bookings topic was forwarded to the retry tier.
+     */
+    public void park(BookingPartitionKey key, int partition, int tier) {
+        ParkedKey parkedKey = parked.computeIfAbsent(key, _ -> new ParkedKey(partition));
+        parkedKey.tier = Math.max(parkedKey.tier, tier);
+        parkedKey.pending++;
+    }
+
+    /**
+     * A record of a retry topic was forwarded to a later retry tier.
+     */
+    public void move(BookingPartitionKey key, int partition, int tier) {
+        ParkedKey parkedKey = parked.computeIfAbsent(key, _ -> {
+            // the record was forwarded during an earlier assignment
+            ParkedKey unknown = new ParkedKey(partition);
+            unknown.pending = 1;
+            return unknown;
+        });
+        parkedKey.tier = Math.max(parkedKey.tier, tier);
+    }
+
+    /**
+     * A record of a retry topic was processed or dead-lettered.
+     */
+    public void resolve(BookingPartitionKey key) {
+        ParkedKey parkedKey = parked.get(key);
+        if (parkedKey != null && --parkedKey.pending <= 0) {
+            parked.remove(key);
+        }
+    }
+
+    public void release(Collection<Integer> partitions) {
+        parked.values().removeIf(parkedKey -> partitions.contains(parkedKey.partition));
+    }
+
+    public int size() {
+        return parked.size();
+    }
+
+    private static final class ParkedKey {
+
+        private final int partition;
+        private int tier = RetryTopics.MAIN_TIER;
+        private int pending;
+
+        private ParkedKey(int partition) {
+            this.partition = partition;
+        }
+
+    }
+
+}
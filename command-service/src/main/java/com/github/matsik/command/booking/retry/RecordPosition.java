@@ -0,0 +1,51 @@
+package com.github.matsik.command.booking.retry;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.ByteBuffer;
+
+import static com.github.matsik.command.config.kafka.KafkaClientConfiguration.BOOKINGS_TOPIC_NAME;
+
+/**
+ * Position of a command in the bookings topic. Forwarded records carry it in their headers, so that a retried command
+ * gets the same booking id as its first attempt.
+ */
+public record RecordPosition(
+        String topic,
+        int partition,
+        long offset,
+        long timestamp
+) {
+
+    public static final String ORIGINAL_PARTITION = "original-partition";
+    public static final String ORIGINAL_OFFSET = "original-offset";
+    public static final String ORIGINAL_TIMESTAMP = "original-timestamp";
+
+    public static RecordPosition of(ConsumerRecord<?, ?> record) {
+        Headers headers = record.headers();
+        Header partition = headers.lastHeader(ORIGINAL_PARTITION);
+        Header offset = headers.lastHeader(ORIGINAL_OFFSET);
+        Header timestamp = headers.lastHeader(ORIGINAL_TIMESTAMP);
+        if (partition == null || offset == null || timestamp == null) {
+            return new RecordPosition(record.topic(), record.partition(), record.offset(), record.timestamp());
+        }
+        return new RecordPosition(
+                BOOKINGS_TOPIC_NAME,
+                ByteBuffer.wrap(partition.value()).getInt(),
+                ByteBuffer.wrap(offset.value()).getLong(),
+                ByteBuffer.wrap(timestamp.value()).getLong()
+        );
+    }
+
+    public void write(Headers headers) {
+        headers.remove(ORIGINAL_PARTITION);
+        headers.remove(ORIGINAL_OFFSET);
+        headers.remove(ORIGINAL_TIMESTAMP);
+        headers.add(ORIGINAL_PARTITION, ByteBuffer.allocate(Integer.BYTES).putInt(partition).array());
+        headers.add(ORIGINAL_OFFSET, ByteBuffer.allocate(Long.BYTES).putLong(offset).array());
+        headers.add(ORIGINAL_TIMESTAMP, ByteBuffer.allocate(Long.BYTES).putLong(timestamp).array());
+    }
+
+}
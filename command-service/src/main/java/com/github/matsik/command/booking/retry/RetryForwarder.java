@@ -0,0 +1,105 @@
+package com.github.matsik.command.booking.retry;
+
+import com.github.matsik.command.config.processing.CommandProcessingProperties;
+import com.github.matsik.dto.BookingPartitionKey;
+import com.github.matsik.kafka.task.CommandValue;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Forwards records to a retry or the dead-letter topic, to the same partition number they were consumed from, so the
+ * retry topics stay co-partitioned with the bookings topic.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RetryForwarder {
+
+    public static final String FAILURE_CAUSE = "failure-cause";
+
+    private final KafkaTemplate<BookingPartitionKey, CommandValue> retryTemplate;
+    private final CommandProcessingProperties processingProperties;
+
+    private final LongCounter retryCounter;
+
+    public ProducerRecord<BookingPartitionKey, CommandValue> toForward(
+            ConsumerRecord<BookingPartitionKey, CommandValue> record,
+            String topic,
+            Throwable cause
+    ) {
+        Headers headers = new RecordHeaders(record.headers().toArray());
+        RecordPosition.of(record).write(headers);
+        if (cause != null) {
+            headers.remove(FAILURE_CAUSE);
+            headers.add(FAILURE_CAUSE, String.valueOf(cause).getBytes(StandardCharsets.UTF_8));
+        }
+        int partitionCount = retryTemplate.partitionsFor(topic).size();
+        if (record.partition() >= partitionCount) {
+            // any other partition could be consumed by another instance, out of order with the bookings partition
+            throw new IllegalStateException(String.format(
+                    "Topic %s has %d partitions, it has to be grown to cover partition %d of %s",
+                    topic, partitionCount, record.partition(), record.topic()
+            ));
+        }
+        return new ProducerRecord<>(topic, record.partition(), record.key(), record.value(), headers);
+    }
+
+    /**
+     * Blocks until every record is forwarded. Failed sends are repeated, as committing past a record that was not
+     * forwarded would lose it.
+     */
+    public void forward(List<ProducerRecord<BookingPartitionKey, CommandValue>> records) {
+        List<ProducerRecord<BookingPartitionKey, CommandValue>> pending = records;
+        while (!pending.isEmpty()) {
+            List<CompletableFuture<?>> sends = pending.stream()
+                    .<CompletableFuture<?>>map(retryTemplate::send)
+                    .toList();
+            retryTemplate.flush();
+
+            List<ProducerRecord<BookingPartitionKey, CommandValue>> failed = new ArrayList<>();
+            for (int i = 0; i < sends.size(); i++) {
+                ProducerRecord<BookingPartitionKey, CommandValue> forwarded = pending.get(i);
+                try {
+                    sends.get(i).join();
+                    retryCounter.add(1L, Attributes.of(AttributeKey.stringKey("topic"), forwarded.topic()));
+                } catch (CompletionException ex) {
+                    log.atWarn()
+                            .setMessage("Failed to forward a record, retrying")
+                            .addKeyValue("topic", forwarded.topic())
+                            .setCause(ex.getCause())
+                            .log();
+                    failed.add(forwarded);
+                }
+            }
+            if (!failed.isEmpty()) {
+                sleep();
+            }
+            pending = failed;
+        }
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(processingProperties.retryBackoff());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while forwarding records", ex);
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.github.matsik.command.booking.retry;
+
+import com.github.matsik.command.config.processing.CommandProcessingProperties;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.github.matsik.command.config.kafka.KafkaClientConfiguration.BOOKINGS_TOPIC_NAME;
+
+/**
+ * Tiers of delayed retry topics behind the bookings topic. A record of tier {@code n} is retried once
+ * {@code processing.retryDelays[n]} has passed since it was forwarded, after the last tier it is dead-lettered.
+ */
+@Component
+public class RetryTopics {
+
+    public static final String DEAD_LETTER_TOPIC_NAME = BOOKINGS_TOPIC_NAME + "-dlt";
+    public static final int MAIN_TIER = -1;
+
+    private static final String RETRY_TOPIC_PREFIX = BOOKINGS_TOPIC_NAME + "-retry-";
+
+    private final List<Duration> delays;
+
+    public RetryTopics(CommandProcessingProperties processingProperties) {
+        this.delays = List.copyOf(processingProperties.retryDelays());
+    }
+
+    /**
+     * @return the bookings topic followed by the retry topics
+     */
+    public String[] listenedTopics() {
+        List<String> topics = new ArrayList<>();
+        topics.add(BOOKINGS_TOPIC_NAME);
+        topics.addAll(retryTopics());
+        return topics.toArray(String[]::new);
+    }
+
+    public List<String> retryTopics() {
+        List<String> topics = new ArrayList<>(delays.size());
+        for (int tier = 0; tier < delays.size(); tier++) {
+            topics.add(topic(tier));
+        }
+        return topics;
+    }
+
+    public String topic(int tier) {
+        return tier < delays.size() ? RETRY_TOPIC_PREFIX + tier : DEAD_LETTER_TOPIC_NAME;
+    }
+
+    public int tier(String topic) {
+        return topic.startsWith(RETRY_TOPIC_PREFIX) ? Integer.parseInt(topic.substring(RETRY_TOPIC_PREFIX.length())) : MAIN_TIER;
+    }
+
+    public int deadLetterTier() {
+        return delays.size();
+    }
+
+    public boolean isDeadLetter(int tier) {
+        return tier >= delays.size();
+    }
+
+    /**
+     * @return epoch millis when the record is retried, records of the bookings topic are always due, whatever the clock
+     * of their producer
+     */
+    public long dueAt(ConsumerRecord<?, ?> record) {
+        int tier = tier(record.topic());
+        return tier == MAIN_TIER ? Long.MIN_VALUE : record.timestamp() + delays.get(tier).toMillis();
+    }
+
+}
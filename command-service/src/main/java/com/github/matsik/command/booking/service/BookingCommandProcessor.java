@@ -0,0 +1,75 @@
+package com.github.matsik.command.booking.service;
+
+import com.github.matsik.command.booking.command.BookingCommand;
+import com.github.matsik.command.booking.command.CreateBookingCommand;
+import com.github.matsik.command.booking.command.CreateBookingsCommand;
+import com.github.matsik.command.booking.command.DeleteBookingCommand;
+import com.github.matsik.command.booking.command.InvalidCommand;
+import com.github.matsik.command.booking.occupancy.OccupancyIndex;
+import com.github.matsik.command.booking.occupancy.state.OccupancyStateStore;
+import com.github.matsik.command.booking.outcome.CommandOutcomePublisher;
+import com.github.matsik.command.concurrent.KeyOrderedExecutor;
+import com.github.matsik.dto.BookingPartitionKey;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongCounter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.github.matsik.command.metrics.MetricsRecorder.recordMetrics;
+import static com.github.matsik.command.metrics.MetricsRecorder.recordStage;
+
+/**
+ * Processes a polled batch of commands, service-dates run concurrently on virtual threads, while the commands of the
+ * same service-date are decided and written in their log order.
+ */
+@Service
+@RequiredArgsConstructor
+public class BookingCommandProcessor {
+
+    private final BookingService bookingService;
+    private final BookingWriter bookingWriter;
+    private final CommandOutcomePublisher outcomePublisher;
+    private final OccupancyIndex occupancyIndex;
+    private final OccupancyStateStore occupancyStateStore;
+    private final KeyOrderedExecutor<BookingPartitionKey> keyOrderedExecutor;
+
+    private final LongCounter recordCounter;
+    private final DoubleHistogram recordHistogram;
+    private final DoubleHistogram stageHistogram;
+
+    /**
+     * Commands are built on the thread that processes them, so a command that cannot be built only fails its own future.
+     *
+     * @return a future per command, in the order of the given commands
+     */
+    public List<CompletableFuture<Void>> process(List<PendingCommand> commands) {
+        return commands.stream()
+                .map(command -> keyOrderedExecutor.submit(command.bookingPartitionKey(), () -> process(command.command().get())))
+                .toList();
+    }
+
+    private void process(BookingCommand command) {
+        recordMetrics(recordCounter, recordHistogram, () -> {
+            BookingDecision decision = bookingService.plan(command);
+            if (decision instanceof BookingWrite write) {
+                recordStage(stageHistogram, () -> bookingWriter.write(write).join(), "write");
+                BookingPartitionKey key = write.bookingPartitionKey();
+                occupancyStateStore.changed(key, occupancyIndex.get(key));
+            }
+            outcomePublisher.publish(command, decision);
+        }, operationName(command));
+    }
+
+    private static String operationName(BookingCommand command) {
+        return switch (command) {
+            case CreateBookingCommand _ -> "create_booking";
+            case CreateBookingsCommand _ -> "create_bookings";
+            case DeleteBookingCommand _ -> "delete_booking";
+            case InvalidCommand _ -> "invalid_command";
+        };
+    }
+
+}
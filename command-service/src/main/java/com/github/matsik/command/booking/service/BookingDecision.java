@@ -0,0 +1,4 @@
+package com.github.matsik.command.booking.service;
+
+public sealed interface BookingDecision permits BookingWrite, BookingRejection {
+}
@@ -0,0 +1,10 @@
+package com.github.matsik.command.booking.service;
+
+import com.github.matsik.dto.BookingPartitionKey;
+import com.github.matsik.kafka.outcome.RejectionReason;
+
+public record BookingRejection(
+        BookingPartitionKey bookingPartitionKey,
+        RejectionReason reason
+) implements BookingDecision {
+}
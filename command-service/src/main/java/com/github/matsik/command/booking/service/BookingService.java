@@ -1,16 +1,25 @@
 package com.github.matsik.command.booking.service;
 
-import com.datastax.oss.driver.api.core.CqlSession;
 import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BatchStatementBuilder;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
 import com.datastax.oss.driver.api.core.cql.DefaultBatchType;
 import com.github.matsik.cassandra.entity.BookingByServiceAndDate;
 import com.github.matsik.cassandra.entity.BookingByUser;
+import com.github.matsik.cassandra.entity.ServiceDayOccupancy;
+import com.github.matsik.command.booking.command.BookingCommand;
 import com.github.matsik.command.booking.command.CreateBookingCommand;
+import com.github.matsik.command.booking.command.CreateBookingsCommand;
 import com.github.matsik.command.booking.command.DeleteBookingCommand;
+import com.github.matsik.command.booking.command.InvalidCommand;
+import com.github.matsik.command.booking.occupancy.DayOccupancy;
+import com.github.matsik.command.booking.occupancy.OccupancyIndex;
 import com.github.matsik.command.booking.repository.BookingRepository;
+import com.github.matsik.command.booking.repository.projection.ServiceBooking;
 import com.github.matsik.dto.BookingPartitionKey;
+import com.github.matsik.dto.MinuteBitmap;
 import com.github.matsik.dto.TimeRange;
+import com.github.matsik.kafka.outcome.RejectionReason;
 import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.metrics.DoubleHistogram;
@@ -21,44 +30,63 @@ import io.opentelemetry.instrumentation.annotations.WithSpan;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 
-import static com.github.matsik.command.metrics.MetricsRecorder.recordMetrics;
+import static com.github.matsik.command.metrics.MetricsRecorder.recordStage;
 
 @Service
 @RequiredArgsConstructor
 public class BookingService {
 
-    private final CqlSession session;
     private final BookingRepository bookingRepository;
+    private final OccupancyIndex occupancyIndex;
+
+    private final DoubleHistogram stageHistogram;
+    private final LongCounter rejectionCounter;
+
+    /**
+     * Decides the command against the occupancy index and applies it to the index right away, so that the following
+     * commands of the same service-date see its effect before the returned write is executed.
+     */
+    public BookingDecision plan(BookingCommand command) {
+        return recordStage(stageHistogram, () -> switch (command) {
+            case CreateBookingCommand create -> planCreateBooking(create);
+            case CreateBookingsCommand create -> planCreateBookings(create);
+            case DeleteBookingCommand delete -> planDeleteBooking(delete);
+            case InvalidCommand invalid -> reject(invalid.bookingPartitionKey(), RejectionReason.INVALID_COMMAND, "invalid_command");
+        }, "plan");
+    }
 
-    private final LongCounter recordCounter;
-    private final DoubleHistogram recordHistogram;
-
-    public void deleteBooking(DeleteBookingCommand command) {
-        recordMetrics(recordCounter, recordHistogram, () -> _deleteBooking(command), "delete_booking");
+    private BookingRejection reject(BookingPartitionKey bookingPartitionKey, RejectionReason reason, String operationName) {
+        rejectionCounter.add(1L, Attributes.of(
+                AttributeKey.stringKey("operation"), operationName,
+                AttributeKey.stringKey("reason"), reason.name()
+        ));
+        return new BookingRejection(bookingPartitionKey, reason);
     }
 
     @WithSpan(kind = SpanKind.CONSUMER)
-    private void _deleteBooking(DeleteBookingCommand command) {
+    private BookingDecision planDeleteBooking(DeleteBookingCommand command) {
         Span span = Span.current();
         setSpanAttributes(span, command);
 
         BookingPartitionKey bookingPartitionKey = command.bookingPartitionKey();
 
-        Optional<UUID> ownerId = bookingRepository.findBookingOwner(
-                bookingPartitionKey.serviceId(),
-                bookingPartitionKey.date(),
-                command.bookingId()
-        );
+        DayOccupancy occupancy = recordStage(stageHistogram, () -> occupancyIndex.get(bookingPartitionKey), "occupancy_load");
+
+        Optional<UUID> ownerId = recordStage(stageHistogram, () -> occupancy.findBooking(command.bookingId())
+                .map(ServiceBooking::userId), "owner_lookup");
         if (ownerId.isEmpty() || !Objects.equals(ownerId.get(), command.userId())) {
             String ownerIdString = ownerId.isPresent() ? ownerId.get().toString() : "";
             addSpanEventNotMatchingOwner(span, ownerIdString, command.userId().toString());
-            return;
+            return reject(bookingPartitionKey, RejectionReason.NOT_MATCHING_OWNER, "delete_booking");
         }
-        batchRemove(command);
+        occupancy.remove(command.bookingId());
+
+        return new BookingWrite(bookingPartitionKey, command.bookingId(), batchRemove(command, occupancy));
     }
 
     private void setSpanAttributes(Span span, DeleteBookingCommand command) {
@@ -77,8 +105,7 @@ public class BookingService {
         ));
     }
 
-    @WithSpan(kind = SpanKind.CONSUMER)
-    private void batchRemove(DeleteBookingCommand command) {
+    private BatchStatement batchRemove(DeleteBookingCommand command, DayOccupancy occupancy) {
         BookingPartitionKey bookingPartitionKey = command.bookingPartitionKey();
 
         BoundStatement deleteBookingByServiceAndDate = bookingRepository.deleteByPrimaryKey(
@@ -94,32 +121,43 @@ public class BookingService {
                 command.bookingId()
         );
 
-        BatchStatement batchStatement = BatchStatement.builder(DefaultBatchType.LOGGED)
+        return BatchStatement.builder(DefaultBatchType.LOGGED)
                 .addStatement(deleteBookingByServiceAndDate)
                 .addStatement(deleteBookingByUser)
+                .addStatement(saveOccupancy(bookingPartitionKey, occupancy))
                 .build();
-
-        session.execute(batchStatement);
-    }
-
-    public Optional<UUID> createBooking(CreateBookingCommand command) {
-        return recordMetrics(recordCounter, recordHistogram, () -> _createBooking(command), "create_booking");
     }
 
     @WithSpan(kind = SpanKind.CONSUMER)
-    private Optional<UUID> _createBooking(CreateBookingCommand command) {
+    private BookingDecision planCreateBooking(CreateBookingCommand command) {
         Span span = Span.current();
         setSpanAttributes(span, command);
 
         BookingPartitionKey bookingPartitionKey = command.bookingPartitionKey();
         TimeRange timeRange = command.timeRange();
 
-        long overlappingBookingCount = findOverlappingBookings(bookingPartitionKey, timeRange);
-        if (overlappingBookingCount > 0) {
-            addSpanEventOverlappingBookingCount(span, overlappingBookingCount);
-            return Optional.empty();
+        UUID bookingId = command.bookingId();
+        ServiceBooking booking = new ServiceBooking(bookingId, command.userId(), timeRange);
+
+        DayOccupancy occupancy = recordStage(stageHistogram, () -> occupancyIndex.get(bookingPartitionKey), "occupancy_load");
+
+        Optional<ServiceBooking> existingBooking = occupancy.findBooking(bookingId);
+        if (existingBooking.isPresent()) {
+            // a redelivered command, the write is repeated, as it might not have been applied completely
+            if (!existingBooking.get().equals(booking)) {
+                return reject(bookingPartitionKey, RejectionReason.OVERLAPPING_BOOKING, "create_booking");
+            }
+            addSpanEventRedelivered(span);
+            return new BookingWrite(bookingPartitionKey, bookingId, batchCreate(bookingPartitionKey, List.of(booking), occupancy));
+        }
+
+        if (recordStage(stageHistogram, () -> occupancy.isOccupied(timeRange), "overlap_check")) {
+            addSpanEventOverlappingBookingCount(span, occupancy.countOverlapping(timeRange));
+            return reject(bookingPartitionKey, RejectionReason.OVERLAPPING_BOOKING, "create_booking");
         }
-        return Optional.of(batchCreate(command));
+        occupancy.add(booking);
+
+        return new BookingWrite(bookingPartitionKey, bookingId, batchCreate(bookingPartitionKey, List.of(booking), occupancy));
     }
 
     private void setSpanAttributes(Span span, CreateBookingCommand command) {
@@ -128,62 +166,131 @@ public class BookingService {
 
         span.setAttribute(AttributeKey.stringKey("create_booking_command.booking_partition_key.service_id"), bookingPartitionKey.serviceId().toString());
         span.setAttribute(AttributeKey.stringKey("create_booking_command.booking_partition_key.date"), bookingPartitionKey.date().toString());
+        span.setAttribute(AttributeKey.stringKey("create_booking_command.booking_id"), command.bookingId().toString());
         span.setAttribute(AttributeKey.stringKey("create_booking_command.user_id"), command.userId().toString());
         span.setAttribute(AttributeKey.longKey("create_booking_command.time_range.end"), timeRange.start().minuteOfDay());
         span.setAttribute(AttributeKey.longKey("create_booking_command.time_range.start"), timeRange.start().minuteOfDay());
     }
 
+    /**
+     * All of the time ranges are checked before any of them is added, so the command is applied either completely or
+     * not at all, with a single write.
+     */
+    @WithSpan(kind = SpanKind.CONSUMER)
+    private BookingDecision planCreateBookings(CreateBookingsCommand command) {
+        Span span = Span.current();
+        setSpanAttributes(span, command);
+
+        BookingPartitionKey bookingPartitionKey = command.bookingPartitionKey();
+        List<ServiceBooking> bookings = command.bookings();
+        List<UUID> bookingIds = bookings.stream()
+                .map(ServiceBooking::bookingId)
+                .toList();
+
+        DayOccupancy occupancy = recordStage(stageHistogram, () -> occupancyIndex.get(bookingPartitionKey), "occupancy_load");
+
+        if (bookings.stream().anyMatch(booking -> occupancy.findBooking(booking.bookingId()).isPresent())) {
+            // a redelivered command, its bookings were added together, so all of them have to be there unchanged
+            if (!bookings.stream().allMatch(booking -> occupancy.findBooking(booking.bookingId()).equals(Optional.of(booking)))) {
+                return reject(bookingPartitionKey, RejectionReason.OVERLAPPING_BOOKING, "create_bookings");
+            }
+            addSpanEventRedelivered(span);
+            return new BookingWrite(bookingPartitionKey, bookingIds, batchCreate(bookingPartitionKey, bookings, occupancy));
+        }
+
+        if (recordStage(stageHistogram, () -> isOccupied(occupancy, bookings), "overlap_check")) {
+            long overlappingBookingCount = bookings.stream()
+                    .mapToLong(booking -> occupancy.countOverlapping(booking.timeRange()))
+                    .sum();
+            addSpanEventOverlappingBookingCount(span, overlappingBookingCount);
+            return reject(bookingPartitionKey, RejectionReason.OVERLAPPING_BOOKING, "create_bookings");
+        }
+        bookings.forEach(occupancy::add);
+
+        return new BookingWrite(bookingPartitionKey, bookingIds, batchCreate(bookingPartitionKey, bookings, occupancy));
+    }
+
+    /**
+     * @return whether any of the time ranges is occupied or overlaps another one of them
+     */
+    private static boolean isOccupied(DayOccupancy occupancy, List<ServiceBooking> bookings) {
+        MinuteBitmap requested = new MinuteBitmap();
+        for (ServiceBooking booking : bookings) {
+            TimeRange timeRange = booking.timeRange();
+            if (occupancy.isOccupied(timeRange) || requested.isOccupied(timeRange)) {
+                return true;
+            }
+            requested.mark(timeRange, true);
+        }
+        return false;
+    }
+
+    private void setSpanAttributes(Span span, CreateBookingsCommand command) {
+        BookingPartitionKey bookingPartitionKey = command.bookingPartitionKey();
+
+        span.setAttribute(AttributeKey.stringKey("create_bookings_command.booking_partition_key.service_id"), bookingPartitionKey.serviceId().toString());
+        span.setAttribute(AttributeKey.stringKey("create_bookings_command.booking_partition_key.date"), bookingPartitionKey.date().toString());
+        span.setAttribute(AttributeKey.stringKey("create_bookings_command.user_id"), command.userId().toString());
+        span.setAttribute(AttributeKey.longKey("create_bookings_command.booking_count"), command.bookings().size());
+    }
+
     private void addSpanEventOverlappingBookingCount(Span span, long overlappingBookingCount) {
         span.addEvent("Booking overlap", Attributes.of(
                 AttributeKey.longKey("booking.overlap.count"), overlappingBookingCount
         ));
     }
 
-    @WithSpan(kind = SpanKind.CONSUMER)
-    private UUID batchCreate(CreateBookingCommand command) {
-        BookingPartitionKey bookingPartitionKey = command.bookingPartitionKey();
-        TimeRange timeRange = command.timeRange();
+    private void addSpanEventRedelivered(Span span) {
+        span.addEvent("Booking redelivered");
+    }
 
-        UUID bookingId = UUID.randomUUID();
+    private BatchStatement batchCreate(BookingPartitionKey bookingPartitionKey, List<ServiceBooking> bookings, DayOccupancy occupancy) {
+        BatchStatementBuilder batch = BatchStatement.builder(DefaultBatchType.LOGGED);
+        bookings.forEach(booking -> addCreate(batch, bookingPartitionKey, booking));
+
+        return batch
+                .addStatement(saveOccupancy(bookingPartitionKey, occupancy))
+                .build();
+    }
+
+    private void addCreate(BatchStatementBuilder batch, BookingPartitionKey bookingPartitionKey, ServiceBooking booking) {
+        TimeRange timeRange = booking.timeRange();
 
         BookingByServiceAndDate bookingByServiceAndDate = BookingByServiceAndDate.builder()
                 .serviceId(bookingPartitionKey.serviceId())
                 .date(bookingPartitionKey.date())
-                .bookingId(bookingId)
+                .bookingId(booking.bookingId())
                 .start(timeRange.start().minuteOfDay())
                 .end(timeRange.end().minuteOfDay())
-                .userId(command.userId())
+                .userId(booking.userId())
                 .build();
 
         BoundStatement createBookingByServiceAndDate = bookingRepository.save(bookingByServiceAndDate);
 
         BookingByUser bookingByUser = BookingByUser.builder()
-                .userId(command.userId())
+                .userId(booking.userId())
                 .serviceId(bookingPartitionKey.serviceId())
                 .date(bookingPartitionKey.date())
-                .bookingId(bookingId)
+                .bookingId(booking.bookingId())
                 .start(timeRange.start().minuteOfDay())
                 .end(timeRange.end().minuteOfDay())
                 .build();
 
         BoundStatement createBookingByUser = bookingRepository.save(bookingByUser);
 
-        BatchStatement batchStatement = BatchStatement.builder(DefaultBatchType.LOGGED)
-                .addStatement(createBookingByServiceAndDate)
-                .addStatement(createBookingByUser)
-                .build();
+        batch.addStatement(createBookingByServiceAndDate)
+                .addStatement(createBookingByUser);
+    }
 
-        session.execute(batchStatement);
+    private BoundStatement saveOccupancy(BookingPartitionKey bookingPartitionKey, DayOccupancy occupancy) {
+        ServiceDayOccupancy serviceDayOccupancy = ServiceDayOccupancy.builder()
+                .serviceId(bookingPartitionKey.serviceId())
+                .date(bookingPartitionKey.date())
+                .minutes(occupancy.minutes().toByteBuffer())
+                .version(occupancy.lastModified())
+                .build();
 
-        return bookingId;
+        return bookingRepository.save(serviceDayOccupancy);
     }
 
-    private long findOverlappingBookings(BookingPartitionKey bookingPartitionKey, TimeRange timeRange) {
-        return bookingRepository.findOverlappingBookingCount(
-                bookingPartitionKey.serviceId(),
-                bookingPartitionKey.date(),
-                timeRange.start().minuteOfDay(),
-                timeRange.end().minuteOfDay()
-        );
-    }
 }
@@ -0,0 +1,26 @@
+package com.github.matsik.command.booking.service;
+
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.github.matsik.dto.BookingPartitionKey;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * @param bookingIds the created or deleted bookings, in the order of the command
+ */
+public record BookingWrite(
+        BookingPartitionKey bookingPartitionKey,
+        List<UUID> bookingIds,
+        Statement<?> statement
+) implements BookingDecision {
+
+    public BookingWrite(BookingPartitionKey bookingPartitionKey, UUID bookingId, Statement<?> statement) {
+        this(bookingPartitionKey, List.of(bookingId), statement);
+    }
+
+    public UUID bookingId() {
+        return bookingIds.getFirst();
+    }
+
+}
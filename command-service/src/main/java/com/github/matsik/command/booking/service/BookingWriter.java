@@ -0,0 +1,55 @@
+package com.github.matsik.command.booking.service;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.github.matsik.command.booking.occupancy.state.OccupancyStateStore;
+import com.github.matsik.command.config.processing.CommandProcessingProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Executes the writes of the concurrently processed service-dates asynchronously, bounded by
+ * {@link CommandProcessingProperties#maxInFlightWrites()}.
+ */
+@Component
+public class BookingWriter {
+
+    private final CqlSession session;
+    private final OccupancyStateStore occupancyStateStore;
+    private final Semaphore inFlightWrites;
+
+    public BookingWriter(
+            CqlSession session,
+            OccupancyStateStore occupancyStateStore,
+            CommandProcessingProperties properties
+    ) {
+        this.session = session;
+        this.occupancyStateStore = occupancyStateStore;
+        this.inFlightWrites = new Semaphore(properties.maxInFlightWrites());
+    }
+
+    /**
+     * Waits for a free in-flight slot, the slot is released once the returned future completes.
+     */
+    public CompletableFuture<Void> write(BookingWrite write) {
+        inFlightWrites.acquireUninterruptibly();
+        try {
+            return session.executeAsync(write.statement())
+                    .toCompletableFuture()
+                    .whenComplete((_, ex) -> {
+                        inFlightWrites.release();
+                        if (ex != null) {
+                            // a failed batch might still have been applied, the next command and a restore reload the service-date
+                            occupancyStateStore.evict(write.bookingPartitionKey());
+                        }
+                    })
+                    .thenApply(_ -> null);
+        } catch (RuntimeException ex) {
+            inFlightWrites.release();
+            occupancyStateStore.evict(write.bookingPartitionKey());
+            throw ex;
+        }
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.github.matsik.command.booking.service;
+
+import com.github.matsik.command.booking.command.BookingCommand;
+import com.github.matsik.dto.BookingPartitionKey;
+
+import java.util.function.Supplier;
+
+/**
+ * @param command builds the command once its predecessors of the same service-date have been processed
+ */
+public record PendingCommand(
+        BookingPartitionKey bookingPartitionKey,
+        Supplier<BookingCommand> command
+) {
+
+    public static PendingCommand of(BookingCommand command) {
+        return new PendingCommand(command.bookingPartitionKey(), () -> command);
+    }
+
+}
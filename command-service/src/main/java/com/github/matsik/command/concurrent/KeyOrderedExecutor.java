@@ -0,0 +1,47 @@
+package com.github.matsik.command.concurrent;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs tasks of different keys concurrently while keeping the tasks of the same key in submission order. A task only
+ * starts once its predecessor of the same key has completed, and it fails without running if the predecessor failed.
+ */
+public class KeyOrderedExecutor<K> {
+
+    private final Executor executor;
+
+    private final Map<K, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    public KeyOrderedExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * The key is released before the returned future completes, so whoever waits for it can submit to the same key
+     * again without the task being failed by a predecessor that has already finished.
+     */
+    public CompletableFuture<Void> submit(K key, Runnable task) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        CompletableFuture<Void> tail = tails.put(key, future);
+        CompletableFuture<Void> run = tail == null
+                ? CompletableFuture.runAsync(task, executor)
+                : tail.thenRunAsync(task, executor);
+        run.whenComplete((_, ex) -> {
+            tails.remove(key, future);
+            if (ex == null) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(ex);
+            }
+        });
+        return future;
+    }
+
+    public int pendingKeys() {
+        return tails.size();
+    }
+
+}
@@ -1,11 +1,27 @@
 package com.github.matsik.command.config.kafka;
 
+import com.github.matsik.command.booking.listener.CommandRebalanceListener;
+import com.github.matsik.command.booking.retry.RetryTopics;
+import com.github.matsik.command.metrics.TimedDeserializer;
 import com.github.matsik.kafka.mapping.BookingPartitionKeyDeserializer;
+import com.github.matsik.kafka.mapping.BookingPartitionKeySerializer;
+import com.github.matsik.kafka.mapping.CommandOutcomeSerializer;
+import com.github.matsik.kafka.mapping.CommandValueDeserializer;
+import com.github.matsik.kafka.mapping.CommandValueSerializer;
+import com.github.matsik.kafka.mapping.UuidSerializer;
+import com.github.matsik.kafka.outcome.CommandOutcome;
 import com.github.matsik.kafka.task.CommandValue;
 import com.github.matsik.dto.BookingPartitionKey;
+import io.opentelemetry.api.metrics.DoubleHistogram;
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.RangeAssignor;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Deserializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
@@ -13,16 +29,26 @@ import org.springframework.kafka.config.KafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
 import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.UUID;
 
 @Configuration
 public class KafkaClientConfiguration {
 
+    public static final String BOOKINGS_TOPIC_NAME = "bookings";
+    public static final String OUTCOMES_TOPIC_NAME = "booking-outcomes";
+    public static final String OCCUPANCY_CHANGELOG_TOPIC_NAME = "booking-occupancy-changelog";
+
     @Bean
     public KafkaAdmin admin(KafkaClientProperties kafkaClientProperties) {
         Map<String, Object> configs = Map.of(
@@ -32,20 +58,124 @@ public class KafkaClientConfiguration {
     }
 
     @Bean
-    public NewTopic bookingsTopic() {
-        return TopicBuilder.name("bookings")
+    public NewTopic bookingsTopic(KafkaClientProperties kafkaClientProperties) {
+        return TopicBuilder.name(BOOKINGS_TOPIC_NAME)
+                .partitions(kafkaClientProperties.partitions())
+                .replicas(1)
+                .build();
+    }
+
+    @Bean
+    public KafkaAdmin.NewTopics retryNewTopics(KafkaClientProperties kafkaClientProperties, RetryTopics retryTopics) {
+        // co-partitioned with the bookings topic
+        NewTopic[] topics = retryTopics.retryTopics().stream()
+                .map(name -> TopicBuilder.name(name)
+                        .partitions(kafkaClientProperties.partitions())
+                        .replicas(1)
+                        .build())
+                .toArray(NewTopic[]::new);
+        return new KafkaAdmin.NewTopics(topics);
+    }
+
+    @Bean
+    public NewTopic deadLetterTopic(KafkaClientProperties kafkaClientProperties) {
+        return TopicBuilder.name(RetryTopics.DEAD_LETTER_TOPIC_NAME)
+                .partitions(kafkaClientProperties.partitions())
+                .replicas(1)
+                .build();
+    }
+
+    @Bean
+    public ProducerFactory<BookingPartitionKey, CommandValue> retryProducerFactory(KafkaClientProperties kafkaClientProperties) {
+        Map<String, Object> props = Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaClientProperties.bootstrapServers(),
+                ProducerConfig.CLIENT_ID_CONFIG, kafkaClientProperties.clientId() + "-retry",
+                ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true,
+                ProducerConfig.ACKS_CONFIG, "all"
+        );
+        return new DefaultKafkaProducerFactory<>(props, new BookingPartitionKeySerializer(), new CommandValueSerializer());
+    }
+
+    @Bean
+    public KafkaTemplate<BookingPartitionKey, CommandValue> retryTemplate(ProducerFactory<BookingPartitionKey, CommandValue> retryProducerFactory) {
+        return new KafkaTemplate<>(retryProducerFactory);
+    }
+
+    @Bean
+    public NewTopic outcomesTopic() {
+        return TopicBuilder.name(OUTCOMES_TOPIC_NAME)
                 .partitions(3)
                 .replicas(1)
+                .config(TopicConfig.RETENTION_MS_CONFIG, String.valueOf(Duration.ofHours(1).toMillis()))
                 .build();
     }
 
+    @Bean
+    public NewTopic occupancyChangelogTopic(KafkaClientProperties kafkaClientProperties) {
+        return TopicBuilder.name(OCCUPANCY_CHANGELOG_TOPIC_NAME)
+                .partitions(kafkaClientProperties.partitions())
+                .replicas(1)
+                .compact()
+                .build();
+    }
+
+    @Bean
+    public ProducerFactory<BookingPartitionKey, byte[]> changelogProducerFactory(KafkaClientProperties kafkaClientProperties) {
+        Map<String, Object> props = Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaClientProperties.bootstrapServers(),
+                ProducerConfig.CLIENT_ID_CONFIG, kafkaClientProperties.clientId() + "-changelog",
+                ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true,
+                ProducerConfig.ACKS_CONFIG, "all",
+                ProducerConfig.LINGER_MS_CONFIG, 5,
+                ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4"
+        );
+        return new DefaultKafkaProducerFactory<>(props, new BookingPartitionKeySerializer(), new ByteArraySerializer());
+    }
+
+    @Bean
+    public KafkaTemplate<BookingPartitionKey, byte[]> changelogTemplate(ProducerFactory<BookingPartitionKey, byte[]> changelogProducerFactory) {
+        return new KafkaTemplate<>(changelogProducerFactory);
+    }
+
+    @Bean
+    public ConsumerFactory<BookingPartitionKey, byte[]> changelogConsumerFactory(KafkaClientProperties kafkaClientProperties) {
+        // assigned manually, without a group
+        Map<String, Object> props = Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaClientProperties.bootstrapServers(),
+                ConsumerConfig.CLIENT_ID_CONFIG, kafkaClientProperties.clientId() + "-restore",
+                ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false,
+                ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 5000
+        );
+        return new DefaultKafkaConsumerFactory<>(props, new BookingPartitionKeyDeserializer(), new ByteArrayDeserializer());
+    }
+
+    @Bean
+    public ProducerFactory<UUID, CommandOutcome> outcomeProducerFactory(KafkaClientProperties kafkaClientProperties) {
+        Map<String, Object> props = Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaClientProperties.bootstrapServers(),
+                ProducerConfig.CLIENT_ID_CONFIG, kafkaClientProperties.clientId(),
+                ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true,
+                ProducerConfig.ACKS_CONFIG, "all",
+                ProducerConfig.LINGER_MS_CONFIG, 5
+        );
+        return new DefaultKafkaProducerFactory<>(props, new UuidSerializer(), new CommandOutcomeSerializer());
+    }
+
+    @Bean
+    public KafkaTemplate<UUID, CommandOutcome> outcomeTemplate(ProducerFactory<UUID, CommandOutcome> outcomeProducerFactory) {
+        return new KafkaTemplate<>(outcomeProducerFactory);
+    }
+
     @Bean
     public KafkaListenerContainerFactory<ConcurrentMessageListenerContainer<BookingPartitionKey, CommandValue>> kafkaListenerContainerFactory(
-            ConsumerFactory<BookingPartitionKey, CommandValue> localDateCommandValueConsumerFactory
+            ConsumerFactory<BookingPartitionKey, CommandValue> localDateCommandValueConsumerFactory,
+            CommandRebalanceListener commandRebalanceListener
     ) {
         ConcurrentKafkaListenerContainerFactory<BookingPartitionKey, CommandValue> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(localDateCommandValueConsumerFactory);
-        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        // offsets are committed by the listener, as delayed retry partitions are only committed up to their first due record
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setConsumerRebalanceListener(commandRebalanceListener);
         factory.setBatchListener(true);
 
         return factory;
@@ -54,10 +184,17 @@ public class KafkaClientConfiguration {
     @Bean
     public ConsumerFactory<BookingPartitionKey, CommandValue> localDateCommandValueConsumerFactory(
             KafkaClientProperties kafkaClientProperties,
-            JsonDeserializer<CommandValue> commandValueJsonDeserializer
+            JsonDeserializer<CommandValue> commandValueJsonDeserializer,
+            DoubleHistogram stageHistogram
     ) {
         Map<String, Object> consumerConfig = consumerConfig(kafkaClientProperties);
-        return new DefaultKafkaConsumerFactory<>(consumerConfig, new BookingPartitionKeyDeserializer(), commandValueJsonDeserializer);
+        Deserializer<CommandValue> commandValueDeserializer = new CommandValueDeserializer(commandValueJsonDeserializer);
+        // a value that cannot be deserialized reaches the listener as null instead of failing the poll, and is dead-lettered
+        return new DefaultKafkaConsumerFactory<>(
+                consumerConfig,
+                new BookingPartitionKeyDeserializer(),
+                new ErrorHandlingDeserializer<>(new TimedDeserializer<>(commandValueDeserializer, stageHistogram))
+        );
     }
 
     private Map<String, Object> consumerConfig(KafkaClientProperties kafkaClientProperties) {
@@ -67,6 +204,8 @@ public class KafkaClientConfiguration {
                 ConsumerConfig.CLIENT_ID_CONFIG, kafkaClientProperties.clientId(),
                 ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false,
                 ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest",
+                // assigns the same partition of the bookings and the retry topics to the same consumer
+                ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, RangeAssignor.class.getName(),
                 JsonDeserializer.TRUSTED_PACKAGES, "com.github.matsik.kafka.task"
         );
     }
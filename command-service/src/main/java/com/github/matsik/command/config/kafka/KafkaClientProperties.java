@@ -3,5 +3,5 @@ package com.github.matsik.command.config.kafka;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 @ConfigurationProperties("kafka")
-public record KafkaClientProperties(String clientId, String groupId, String bootstrapServers) {
+public record KafkaClientProperties(String clientId, String groupId, String bootstrapServers, int partitions) {
 }
@@ -53,4 +53,36 @@ public class OtelConfiguration {
                 .build();
     }
 
+    @Bean
+    public DoubleHistogram stageHistogram(Meter meter) {
+        return meter.histogramBuilder("command.service.stage.duration")
+                .setDescription("Duration of a Command Service processing stage")
+                .setUnit("ms")
+                .build();
+    }
+
+    @Bean
+    public LongCounter partitionRecordCounter(Meter meter) {
+        return meter.counterBuilder("command.service.partition.records")
+                .setDescription("Total Command Service records per partition")
+                .setUnit("records")
+                .build();
+    }
+
+    @Bean
+    public LongCounter rejectionCounter(Meter meter) {
+        return meter.counterBuilder("command.service.rejections")
+                .setDescription("Total Command Service commands rejected")
+                .setUnit("commands")
+                .build();
+    }
+
+    @Bean
+    public LongCounter retryCounter(Meter meter) {
+        return meter.counterBuilder("command.service.retries")
+                .setDescription("Total Command Service records forwarded to a retry or the dead-letter topic")
+                .setUnit("records")
+                .build();
+    }
+
 }
@@ -0,0 +1,24 @@
+package com.github.matsik.command.config.processing;
+
+import com.github.matsik.command.concurrent.KeyOrderedExecutor;
+import com.github.matsik.dto.BookingPartitionKey;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class CommandProcessingConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public ExecutorService commandExecutorService() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("command-", 0).factory());
+    }
+
+    @Bean
+    public KeyOrderedExecutor<BookingPartitionKey> keyOrderedExecutor(ExecutorService commandExecutorService) {
+        return new KeyOrderedExecutor<>(commandExecutorService);
+    }
+
+}
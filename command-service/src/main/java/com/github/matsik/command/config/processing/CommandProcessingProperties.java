@@ -0,0 +1,17 @@
+package com.github.matsik.command.config.processing;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@ConfigurationProperties("processing")
+public record CommandProcessingProperties(
+        int maxInFlightWrites,
+        Duration retryBackoff,
+        List<Duration> retryDelays,
+        String stateDir,
+        Duration checkpointInterval,
+        Duration restoreTimeout
+) {
+}
@@ -0,0 +1,46 @@
+package com.github.matsik.command.metrics;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lag of the assigned partitions as seen by the consumer on its last poll. The consumer is not thread-safe, so the
+ * values are taken on the listener thread and only read by the gauge callback.
+ */
+@Component
+public class ConsumerLagGauge {
+
+    private final Map<TopicPartition, Long> lags = new ConcurrentHashMap<>();
+
+    public ConsumerLagGauge(Meter meter) {
+        meter.gaugeBuilder("command.service.consumer.lag")
+                .setDescription("Records of the assigned partitions not yet fetched by the Command Service")
+                .setUnit("records")
+                .ofLongs()
+                .buildWithCallback(measurement -> lags.forEach((partition, lag) ->
+                        measurement.record(lag, Attributes.of(
+                                AttributeKey.stringKey("topic"), partition.topic(),
+                                AttributeKey.longKey("partition"), (long) partition.partition()
+                        ))
+                ));
+    }
+
+    public void update(Consumer<?, ?> consumer) {
+        lags.keySet().retainAll(consumer.assignment());
+        for (TopicPartition partition : consumer.assignment()) {
+            OptionalLong lag = consumer.currentLag(partition);
+            if (lag.isPresent()) {
+                lags.put(partition, lag.getAsLong());
+            }
+        }
+    }
+
+}
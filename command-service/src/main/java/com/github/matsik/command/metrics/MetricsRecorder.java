@@ -31,5 +31,27 @@ public class MetricsRecorder {
         return result;
     }
 
+    public static <T> T recordStage(DoubleHistogram histogram, Supplier<T> operation, String stageName) {
+        long startTime = System.nanoTime();
+        T result = operation.get();
+        recordStage(histogram, startTime, stageName);
+
+        return result;
+    }
+
+    public static void recordStage(DoubleHistogram histogram, Runnable operation, String stageName) {
+        recordStage(histogram, () -> {
+            operation.run();
+            return null;
+        }, stageName);
+    }
+
+    public static void recordStage(DoubleHistogram histogram, long startTime, String stageName) {
+        long duration = System.nanoTime() - startTime;
+
+        histogram.record(duration / 1_000_000.0, Attributes.of(
+                AttributeKey.stringKey("stage"), stageName
+        ));
+    }
 
 }
@@ -0,0 +1,49 @@
+package com.github.matsik.command.metrics;
+
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import static com.github.matsik.command.metrics.MetricsRecorder.recordStage;
+
+public class TimedDeserializer<T> implements Deserializer<T> {
+
+    private static final String STAGE_NAME = "deserialize";
+
+    private final Deserializer<T> delegate;
+    private final DoubleHistogram stageHistogram;
+
+    public TimedDeserializer(Deserializer<T> delegate, DoubleHistogram stageHistogram) {
+        this.delegate = delegate;
+        this.stageHistogram = stageHistogram;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        delegate.configure(configs, isKey);
+    }
+
+    @Override
+    public T deserialize(String topic, byte[] data) {
+        return recordStage(stageHistogram, () -> delegate.deserialize(topic, data), STAGE_NAME);
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, byte[] data) {
+        return recordStage(stageHistogram, () -> delegate.deserialize(topic, headers, data), STAGE_NAME);
+    }
+
+    @Override
+    public T deserialize(String topic, Headers headers, ByteBuffer data) {
+        return recordStage(stageHistogram, () -> delegate.deserialize(topic, headers, data), STAGE_NAME);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+}
@@ -26,7 +26,10 @@ public class CassandraMigrationService {
 
     private final List<String> migrationFiles = List.of(
             "db/migrations/V0__migrations.cql",
-            "db/migrations/V1__bookings.cql"
+            "db/migrations/V1__bookings.cql",
+            "db/migrations/V2__bookings_by_start.cql",
+            "db/migrations/V3__service_day_occupancy.cql",
+            "db/migrations/V4__drop_bookings_by_start.cql"
     );
 
     public void runMigrations() {
@@ -79,7 +82,10 @@ public class CassandraMigrationService {
     private void execMigration(CqlSession session, String fileName) throws IOException {
         String migrationScriptCql = new String(resourceBytes(fileName), StandardCharsets.UTF_8);
         String[] statements = migrationScriptCql.split(";");
-        Arrays.stream(statements).forEach(session::execute);
+        // whatever follows the last semicolon, such as a trailing newline, is not a statement
+        Arrays.stream(statements)
+                .filter(statement -> !statement.isBlank())
+                .forEach(session::execute);
     }
 
     private void markMigrationAsExecuted(CqlSession session, String fileName, String fileChecksum) {
@@ -0,0 +1,51 @@
+package com.github.matsik.command.booking.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookingIdGeneratorTest {
+
+    private static final long TIMESTAMP = 1_760_000_000_000L;
+
+    @Test
+    void shouldGenerateSameIdForSameLogPosition() {
+        // when
+        UUID first = BookingIdGenerator.generate("bookings", 2, 42, TIMESTAMP);
+        UUID second = BookingIdGenerator.generate("bookings", 2, 42, TIMESTAMP);
+
+        // then
+        assertEquals(first, second);
+        assertEquals(7, first.version());
+        assertEquals(2, first.variant());
+        assertEquals(TIMESTAMP, first.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    void shouldGenerateDifferentIdsForDifferentLogPositions() {
+        // when
+        UUID id = BookingIdGenerator.generate("bookings", 2, 42, TIMESTAMP);
+
+        // then
+        assertNotEquals(id, BookingIdGenerator.generate("bookings", 1, 42, TIMESTAMP));
+        assertNotEquals(id, BookingIdGenerator.generate("bookings", 2, 43, TIMESTAMP));
+        assertNotEquals(id, BookingIdGenerator.generate("bookings", 2, 42, TIMESTAMP, 1));
+    }
+
+    @Test
+    void shouldOrderIdsByTimestampAndOffset() {
+        // when
+        UUID earlier = BookingIdGenerator.generate("bookings", 2, 42, TIMESTAMP);
+        UUID later = BookingIdGenerator.generate("bookings", 0, 41, TIMESTAMP + 1);
+        UUID nextOffset = BookingIdGenerator.generate("bookings", 2, 43, TIMESTAMP);
+
+        // then
+        assertTrue(Long.compareUnsigned(earlier.getMostSignificantBits(), later.getMostSignificantBits()) < 0);
+        assertTrue(Long.compareUnsigned(earlier.getLeastSignificantBits(), nextOffset.getLeastSignificantBits()) < 0);
+    }
+
+}
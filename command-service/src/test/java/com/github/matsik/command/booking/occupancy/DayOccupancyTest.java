@@ -0,0 +1,113 @@
+package com.github.matsik.command.booking.occupancy;
+
+import com.github.matsik.command.booking.repository.projection.ServiceBooking;
+import com.github.matsik.dto.TimeRange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DayOccupancyTest {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("provideIsOccupiedTestCases")
+    void isOccupied(
+            String name,
+            List<ServiceBooking> bookings,
+            TimeRange timeRange,
+            boolean expected
+    ) {
+        // given
+        DayOccupancy occupancy = DayOccupancy.of(bookings);
+
+        // when
+        boolean result = occupancy.isOccupied(timeRange);
+
+        // then
+        assertEquals(expected, result);
+        assertEquals(expected, occupancy.countOverlapping(timeRange) > 0);
+    }
+
+    private static Stream<Arguments> provideIsOccupiedTestCases() {
+        return Stream.of(
+                Arguments.of(
+                        "Should be free on an empty day",
+                        List.of(),
+                        TimeRange.of(0, 24 * 60),
+                        false
+                ),
+                Arguments.of(
+                        "Should be free between adjacent bookings",
+                        List.of(
+                                booking(0, 10),
+                                booking(20, 30)
+                        ),
+                        TimeRange.of(10, 20),
+                        false
+                ),
+                Arguments.of(
+                        "Should be occupied by a booking containing the time range",
+                        List.of(
+                                booking(0, 30)
+                        ),
+                        TimeRange.of(10, 20),
+                        true
+                ),
+                Arguments.of(
+                        "Should be occupied by a booking crossing a word boundary",
+                        List.of(
+                                booking(60, 70)
+                        ),
+                        TimeRange.of(30, 61),
+                        true
+                ),
+                Arguments.of(
+                        "Should be occupied by a booking ending at midnight",
+                        List.of(
+                                booking(1380, 24 * 60)
+                        ),
+                        TimeRange.of(1439, 24 * 60),
+                        true
+                ),
+                Arguments.of(
+                        "Should be free right after a booking ending on a word boundary",
+                        List.of(
+                                booking(0, 64)
+                        ),
+                        TimeRange.of(64, 128),
+                        false
+                )
+        );
+    }
+
+    @Test
+    void shouldKeepOverlappingBookingOccupiedAfterRemove() {
+        // given
+        ServiceBooking removed = booking(0, 60);
+        DayOccupancy occupancy = DayOccupancy.of(List.of(
+                removed,
+                booking(30, 90)
+        ));
+
+        // when
+        occupancy.remove(removed.bookingId());
+
+        // then
+        assertFalse(occupancy.isOccupied(TimeRange.of(0, 30)));
+        assertTrue(occupancy.isOccupied(TimeRange.of(0, 31)));
+        assertTrue(occupancy.findBooking(removed.bookingId()).isEmpty());
+    }
+
+    private static ServiceBooking booking(int start, int end) {
+        return new ServiceBooking(UUID.randomUUID(), UUID.randomUUID(), TimeRange.of(start, end));
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.github.matsik.command.booking.occupancy.state;
+
+import com.github.matsik.command.booking.occupancy.DayOccupancy;
+import com.github.matsik.command.booking.repository.projection.ServiceBooking;
+import com.github.matsik.command.config.processing.CommandProcessingProperties;
+import com.github.matsik.dto.BookingPartitionKey;
+import com.github.matsik.dto.TimeRange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OccupancyCheckpointStoreTest {
+
+    @TempDir
+    private Path stateDir;
+
+    @Test
+    void shouldReadWrittenCheckpoint() {
+        // given
+        OccupancyCheckpointStore store = store();
+        BookingPartitionKey key = BookingPartitionKey.of(UUID.randomUUID(), LocalDate.of(2025, 1, 1));
+        ServiceBooking first = new ServiceBooking(UUID.randomUUID(), UUID.randomUUID(), TimeRange.of(0, 60));
+        ServiceBooking second = new ServiceBooking(UUID.randomUUID(), UUID.randomUUID(), TimeRange.of(600, 24 * 60));
+        DayOccupancy occupancy = DayOccupancy.of(List.of(first, second), 1234L);
+
+        // when
+        store.write(1, List.of(42L, 7L, OccupancyCheckpoint.NO_OFFSET), Map.of(key, occupancy));
+        Optional<OccupancyCheckpoint> checkpoint = store.read(1);
+
+        // then
+        assertTrue(checkpoint.isPresent());
+        assertEquals(List.of(42L, 7L, OccupancyCheckpoint.NO_OFFSET), checkpoint.get().offsets());
+        DayOccupancy restored = checkpoint.get().occupancies().get(key);
+        assertEquals(1234L, restored.lastModified());
+        assertEquals(Set.of(first, second), Set.copyOf(restored.bookings()));
+        assertTrue(restored.isOccupied(TimeRange.of(30, 31)));
+    }
+
+    @Test
+    void shouldNotReadMissingCheckpoint() {
+        // given
+        OccupancyCheckpointStore store = store();
+
+        // when
+        Optional<OccupancyCheckpoint> checkpoint = store.read(0);
+
+        // then
+        assertTrue(checkpoint.isEmpty());
+    }
+
+    private OccupancyCheckpointStore store() {
+        return new OccupancyCheckpointStore(new CommandProcessingProperties(
+                1, Duration.ofSeconds(1), List.of(), stateDir.toString(), Duration.ofSeconds(10), Duration.ofSeconds(30)
+        ));
+    }
+
+}
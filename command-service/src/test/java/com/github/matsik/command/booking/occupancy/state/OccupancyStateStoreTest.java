@@ -0,0 +1,126 @@
+package com.github.matsik.command.booking.occupancy.state;
+
+import com.github.matsik.command.booking.occupancy.DayOccupancy;
+import com.github.matsik.command.booking.occupancy.OccupancyIndex;
+import com.github.matsik.command.booking.repository.BookingRepository;
+import com.github.matsik.command.booking.repository.projection.ServiceBooking;
+import com.github.matsik.command.booking.retry.RetryTopics;
+import com.github.matsik.command.config.processing.CommandProcessingProperties;
+import com.github.matsik.dto.BookingPartitionKey;
+import com.github.matsik.dto.TimeRange;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.github.matsik.command.config.kafka.KafkaClientConfiguration.BOOKINGS_TOPIC_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OccupancyStateStoreTest {
+
+    private static final BookingPartitionKey KEY = BookingPartitionKey.of(UUID.randomUUID(), LocalDate.of(2025, 1, 1));
+    private static final ServiceBooking MAIN_BOOKING = new ServiceBooking(UUID.randomUUID(), UUID.randomUUID(), TimeRange.of(0, 60));
+    private static final ServiceBooking RETRIED_BOOKING = new ServiceBooking(UUID.randomUUID(), UUID.randomUUID(), TimeRange.of(60, 120));
+
+    @TempDir
+    private Path stateDir;
+
+    @Test
+    void shouldRestoreFromChangelogIfBookingFromRetryTierWasAppliedAfterCheckpoint() {
+        // given
+        OccupancyIndex index = new OccupancyIndex(mock(BookingRepository.class));
+        OccupancyStateStore store = store(index, mock(OccupancyChangelog.class));
+        applyMainBooking(store, index);
+        store.checkpoint(List.of(0));
+        applyRetriedBooking(store, index);
+
+        OccupancyChangelog changelog = mock(OccupancyChangelog.class);
+        when(changelog.read(eq(0), any())).thenReturn(Optional.of(Map.of(KEY, occupancy(MAIN_BOOKING, RETRIED_BOOKING))));
+        OccupancyIndex restoredIndex = new OccupancyIndex(mock(BookingRepository.class));
+
+        // when
+        store(restoredIndex, changelog).restore(committedConsumer(), List.of(new TopicPartition(BOOKINGS_TOPIC_NAME, 0)));
+
+        // then
+        verify(changelog).read(eq(0), any());
+        assertEquals(Set.of(MAIN_BOOKING, RETRIED_BOOKING), Set.copyOf(restoredIndex.find(KEY).orElseThrow().bookings()));
+    }
+
+    @Test
+    void shouldRestoreFromCheckpointCoveringBookingFromRetryTier() {
+        // given
+        OccupancyIndex index = new OccupancyIndex(mock(BookingRepository.class));
+        OccupancyStateStore store = store(index, mock(OccupancyChangelog.class));
+        applyMainBooking(store, index);
+        applyRetriedBooking(store, index);
+        store.checkpoint(List.of(0));
+
+        OccupancyChangelog changelog = mock(OccupancyChangelog.class);
+        OccupancyIndex restoredIndex = new OccupancyIndex(mock(BookingRepository.class));
+
+        // when
+        store(restoredIndex, changelog).restore(committedConsumer(), List.of(new TopicPartition(BOOKINGS_TOPIC_NAME, 0)));
+
+        // then
+        verify(changelog, never()).read(anyInt(), any());
+        assertEquals(Set.of(MAIN_BOOKING, RETRIED_BOOKING), Set.copyOf(restoredIndex.find(KEY).orElseThrow().bookings()));
+    }
+
+    private void applyMainBooking(OccupancyStateStore store, OccupancyIndex index) {
+        index.restore(0, Map.of(KEY, occupancy(MAIN_BOOKING)));
+        store.acknowledged(Map.of(new TopicPartition(BOOKINGS_TOPIC_NAME, 0), new OffsetAndMetadata(10L)));
+    }
+
+    private void applyRetriedBooking(OccupancyStateStore store, OccupancyIndex index) {
+        index.get(KEY).add(RETRIED_BOOKING);
+        store.acknowledged(Map.of(new TopicPartition(retryTopics().topic(0), 0), new OffsetAndMetadata(3L)));
+    }
+
+    private Consumer<?, ?> committedConsumer() {
+        Consumer<?, ?> consumer = mock(Consumer.class);
+        when(consumer.committed(anySet())).thenReturn(Map.of(
+                new TopicPartition(BOOKINGS_TOPIC_NAME, 0), new OffsetAndMetadata(10L),
+                new TopicPartition(retryTopics().topic(0), 0), new OffsetAndMetadata(3L)
+        ));
+        return consumer;
+    }
+
+    private OccupancyStateStore store(OccupancyIndex index, OccupancyChangelog changelog) {
+        CommandProcessingProperties properties = properties();
+        return new OccupancyStateStore(index, changelog, new OccupancyCheckpointStore(properties), properties, retryTopics());
+    }
+
+    private RetryTopics retryTopics() {
+        return new RetryTopics(properties());
+    }
+
+    private CommandProcessingProperties properties() {
+        return new CommandProcessingProperties(
+                1, Duration.ofSeconds(1), List.of(Duration.ofSeconds(1), Duration.ofSeconds(10)), stateDir.toString(),
+                Duration.ofHours(1), Duration.ofSeconds(30)
+        );
+    }
+
+    private static DayOccupancy occupancy(ServiceBooking... bookings) {
+        return DayOccupancy.of(List.of(bookings), 1L);
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.github.matsik.command.booking.retry;
+
+import com.github.matsik.dto.BookingPartitionKey;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParkedKeysTest {
+
+    private static final BookingPartitionKey KEY = BookingPartitionKey.of(UUID.randomUUID(), LocalDate.of(2025, 1, 1));
+
+    @Test
+    void shouldStayParkedUntilEveryForwardedRecordIsResolved() {
+        // given
+        ParkedKeys parkedKeys = new ParkedKeys();
+        parkedKeys.park(KEY, 0, 0);
+        parkedKeys.park(KEY, 0, 0);
+
+        // when
+        parkedKeys.move(KEY, 0, 1);
+        parkedKeys.resolve(KEY);
+
+        // then
+        assertEquals(OptionalInt.of(1), parkedKeys.tier(KEY));
+
+        parkedKeys.resolve(KEY);
+        assertTrue(parkedKeys.tier(KEY).isEmpty());
+    }
+
+    @Test
+    void shouldReleaseKeysOfRevokedPartitions() {
+        // given
+        ParkedKeys parkedKeys = new ParkedKeys();
+        BookingPartitionKey other = BookingPartitionKey.of(UUID.randomUUID(), LocalDate.of(2025, 1, 2));
+        parkedKeys.park(KEY, 0, 0);
+        parkedKeys.park(other, 1, 0);
+
+        // when
+        parkedKeys.release(List.of(0));
+
+        // then
+        assertTrue(parkedKeys.tier(KEY).isEmpty());
+        assertEquals(OptionalInt.of(0), parkedKeys.tier(other));
+    }
+
+}
@@ -9,24 +9,40 @@ import com.datastax.oss.driver.api.core.cql.ResultSet;
 import com.datastax.oss.driver.api.core.cql.Row;
 import com.github.matsik.cassandra.entity.BookingByServiceAndDate;
 import com.github.matsik.cassandra.entity.BookingByUser;
+import com.github.matsik.command.booking.command.BookingCommand;
 import com.github.matsik.command.booking.command.CreateBookingCommand;
+import com.github.matsik.command.booking.command.CreateBookingsCommand;
 import com.github.matsik.command.booking.command.DeleteBookingCommand;
+import com.github.matsik.command.booking.command.InvalidCommand;
+import com.github.matsik.command.booking.id.BookingIdGenerator;
+import com.github.matsik.command.booking.occupancy.OccupancyIndex;
+import com.github.matsik.command.booking.occupancy.state.OccupancyStateStore;
+import com.github.matsik.command.booking.outcome.CommandOutcomePublisher;
+import com.github.matsik.command.booking.repository.projection.ServiceBooking;
 import com.github.matsik.command.config.cassandra.client.CassandraClientConfiguration;
 import com.github.matsik.command.config.cassandra.client.CassandraClientProperties;
 import com.github.matsik.command.config.cassandra.mapper.booking.BookingMapperConfiguration;
+import com.github.matsik.command.config.otel.OtelConfiguration;
+import com.github.matsik.command.config.processing.CommandProcessingConfiguration;
+import com.github.matsik.command.config.processing.CommandProcessingProperties;
 import com.github.matsik.command.migration.CassandraMigrationService;
 import com.github.matsik.dto.BookingPartitionKey;
 import com.github.matsik.dto.TimeRange;
+import com.github.matsik.kafka.outcome.RejectionReason;
+import com.github.matsik.kafka.task.CreateBookingsCommandValue;
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.testcontainers.cassandra.CassandraContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
@@ -36,17 +52,26 @@ import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 
 @SpringBootTest(classes = {
         BookingServiceTest.TestCassandraConfig.class,
         CassandraMigrationService.class,
         CassandraClientConfiguration.class,
         BookingMapperConfiguration.class,
-        BookingService.class
+        OccupancyIndex.class,
+        OtelConfiguration.class,
+        CommandProcessingConfiguration.class,
+        BookingService.class,
+        BookingWriter.class,
+        BookingCommandProcessor.class
 })
 @Testcontainers
 class BookingServiceTest {
@@ -57,24 +82,38 @@ class BookingServiceTest {
     @Autowired
     private BookingService bookingService;
 
+    @Autowired
+    private BookingCommandProcessor bookingCommandProcessor;
+
+    @MockitoBean
+    private OccupancyStateStore occupancyStateStore;
+
+    @MockitoBean
+    private CommandOutcomePublisher outcomePublisher;
+
     @Autowired
     private CqlSession cqlSession;
 
+    @Autowired
+    private OccupancyIndex occupancyIndex;
+
     @DynamicPropertySource
     static void configureProperties(DynamicPropertyRegistry registry) {
         registry.add("cassandra.contactPoints", () -> String.format("%s:%d", CASSANDRA_CONTAINER.getHost(), CASSANDRA_CONTAINER.getFirstMappedPort()));
         registry.add("cassandra.keyspaceName", () -> "booking_system");
         registry.add("cassandra.localDatacenter", CASSANDRA_CONTAINER::getLocalDatacenter);
+        registry.add("processing.maxInFlightWrites", () -> 4);
     }
 
     @Configuration
-    @EnableConfigurationProperties(CassandraClientProperties.class)
+    @EnableConfigurationProperties({CassandraClientProperties.class, CommandProcessingProperties.class})
     public static class TestCassandraConfig {
     }
 
     @AfterEach
     void tearDown() {
         clearBookingsTable();
+        occupancyIndex.clear();
     }
 
     @ParameterizedTest(name = "{0}")
@@ -89,7 +128,8 @@ class BookingServiceTest {
         preTestState.forEach(this::persistBooking);
 
         // when
-        Optional<UUID> bookingId = bookingService.createBooking(command);
+        BookingDecision decision = process(command);
+        Optional<UUID> bookingId = decision instanceof BookingWrite write ? Optional.of(write.bookingId()) : Optional.empty();
 
         // then
         if (shouldCreate) {
@@ -112,6 +152,44 @@ class BookingServiceTest {
         }
     }
 
+    @Test
+    void shouldRejectOverlappingCommandPlannedBeforeTheFirstIsWritten() {
+        // given
+        CreateBookingCommand first = createBookingCommand(conflictingPartitionKey(), 10, 20);
+        CreateBookingCommand second = createBookingCommand(conflictingPartitionKey(), 15, 25);
+
+        // when
+        BookingDecision firstDecision = bookingService.plan(first);
+        BookingDecision secondDecision = bookingService.plan(second);
+
+        // then
+        assertInstanceOf(BookingWrite.class, firstDecision);
+        BookingRejection rejection = assertInstanceOf(BookingRejection.class, secondDecision);
+        assertEquals(RejectionReason.OVERLAPPING_BOOKING, rejection.reason());
+        assertTrue(findBookingByServiceAndDate(first.bookingPartitionKey(), first.bookingId()).isEmpty());
+    }
+
+    @Test
+    void shouldRejectInvalidCommand() {
+        // given
+        InvalidCommand command = new InvalidCommand(conflictingPartitionKey(), UUID.randomUUID());
+
+        // when
+        BookingDecision decision = process(command);
+
+        // then
+        BookingRejection rejection = assertInstanceOf(BookingRejection.class, decision);
+        assertEquals(RejectionReason.INVALID_COMMAND, rejection.reason());
+    }
+
+    private BookingDecision process(BookingCommand command) {
+        bookingCommandProcessor.process(List.of(PendingCommand.of(command))).getFirst().join();
+
+        ArgumentCaptor<BookingDecision> decision = ArgumentCaptor.forClass(BookingDecision.class);
+        verify(outcomePublisher).publish(eq(command), decision.capture());
+        return decision.getValue();
+    }
+
     private static Stream<Arguments> provideCreateBookingTestCases() {
         return Stream.of(
                 Arguments.of(
@@ -189,11 +267,83 @@ class BookingServiceTest {
     private static CreateBookingCommand createBookingCommand(BookingPartitionKey key, int start, int end) {
         return CreateBookingCommand.builder()
                 .bookingPartitionKey(key)
+                .bookingId(BookingIdGenerator.generate("bookings", 0, start, System.currentTimeMillis()))
                 .userId(userId())
                 .timeRange(TimeRange.of(start, end))
+                .commandId(UUID.randomUUID())
                 .build();
     }
 
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("provideCreateBookingsTestCases")
+    void createBookings(
+            String name,
+            boolean shouldCreate,
+            List<Booking> preTestState,
+            CreateBookingsCommand command
+    ) {
+        // given
+        preTestState.forEach(this::persistBooking);
+
+        // when
+        BookingDecision decision = process(command);
+        List<UUID> bookingIds = decision instanceof BookingWrite write ? write.bookingIds() : List.of();
+
+        // then
+        List<UUID> persistedBookingIds = command.bookings().stream()
+                .map(ServiceBooking::bookingId)
+                .filter(bookingId -> findBookingByServiceAndDate(command.bookingPartitionKey(), bookingId).isPresent())
+                .toList();
+        if (shouldCreate) {
+            assertEquals(command.bookings().stream().map(ServiceBooking::bookingId).toList(), bookingIds);
+            assertEquals(bookingIds, persistedBookingIds);
+        } else {
+            assertTrue(bookingIds.isEmpty());
+            assertTrue(persistedBookingIds.isEmpty());
+        }
+    }
+
+    private static Stream<Arguments> provideCreateBookingsTestCases() {
+        return Stream.of(
+                Arguments.of(
+                        "Should create all bookings in the available time ranges",
+                        true,
+                        List.of(
+                                conflictingBooking(0, 10),
+                                conflictingBooking(40, 50)
+                        ),
+                        createBookingsCommand(conflictingPartitionKey(), 10, 20, 20, 30, 50, 60)
+                ),
+                Arguments.of(
+                        "Should create none of the bookings if one time range is occupied",
+                        false,
+                        List.of(
+                                conflictingBooking(40, 50)
+                        ),
+                        createBookingsCommand(conflictingPartitionKey(), 10, 20, 45, 55)
+                ),
+                Arguments.of(
+                        "Should create none of the bookings if time ranges overlap each other",
+                        false,
+                        List.of(),
+                        createBookingsCommand(conflictingPartitionKey(), 10, 30, 20, 40)
+                )
+        );
+    }
+
+    private static CreateBookingsCommand createBookingsCommand(BookingPartitionKey key, int... startEndPairs) {
+        List<CreateBookingsCommandValue.Range> ranges = IntStream.range(0, startEndPairs.length / 2)
+                .mapToObj(i -> new CreateBookingsCommandValue.Range(startEndPairs[2 * i], startEndPairs[2 * i + 1]))
+                .toList();
+        long timestamp = System.currentTimeMillis();
+        return CreateBookingsCommand.of(
+                key,
+                sequence -> BookingIdGenerator.generate("bookings", 0, 0, timestamp, sequence),
+                UUID.randomUUID(),
+                new CreateBookingsCommandValue(userId(), ranges)
+        );
+    }
+
     @ParameterizedTest(name = "{0}")
     @MethodSource("provideDeleteBookingTestCases")
     void deleteBooking(
@@ -210,7 +360,7 @@ class BookingServiceTest {
         DeleteBookingCommand command = commandFunc.apply(bookingId);
 
         // when
-        bookingService.deleteBooking(command);
+        process(command);
 
         // then
         Optional<BookingByServiceAndDate> persistedBooking = findBooking(toDeleteBooking);
@@ -292,7 +442,8 @@ class BookingServiceTest {
         return new DeleteBookingCommand(
                 key,
                 bookingId,
-                userId
+                userId,
+                UUID.randomUUID()
         );
     }
 
@@ -0,0 +1,122 @@
+package com.github.matsik.command.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyOrderedExecutorTest {
+
+    private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+    private final KeyOrderedExecutor<Integer> executor = new KeyOrderedExecutor<>(executorService);
+
+    @AfterEach
+    void tearDown() {
+        executorService.close();
+    }
+
+    @Test
+    void shouldKeepSubmissionOrderPerKey() {
+        // given
+        Map<Integer, List<Integer>> executed = new ConcurrentHashMap<>();
+
+        // when
+        List<CompletableFuture<Void>> futures = IntStream.range(0, 1_000)
+                .mapToObj(i -> executor.submit(i % 7, () -> executed.computeIfAbsent(i % 7, _ -> new ArrayList<>()).add(i)))
+                .toList();
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        // then
+        executed.forEach((key, values) -> {
+            List<Integer> expected = IntStream.range(0, 1_000)
+                    .filter(i -> i % 7 == key)
+                    .boxed()
+                    .toList();
+            assertEquals(expected, values);
+        });
+        assertEquals(0, executor.pendingKeys());
+    }
+
+    @Test
+    void shouldRunDifferentKeysConcurrently() throws InterruptedException {
+        // given
+        CountDownLatch blocked = new CountDownLatch(1);
+        CompletableFuture<Void> blocking = executor.submit(1, () -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // when
+        CompletableFuture<Void> other = executor.submit(2, () -> {
+        });
+
+        // then
+        other.join();
+        assertFalse(blocking.isDone());
+        blocked.countDown();
+        blocking.join();
+    }
+
+    @Test
+    void shouldFailSuccessorsOfFailedTask() throws InterruptedException {
+        // given
+        CountDownLatch blocked = new CountDownLatch(1);
+        AtomicBoolean successorRan = new AtomicBoolean();
+        CompletableFuture<Void> failing = executor.submit(1, () -> {
+            try {
+                blocked.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("failure");
+        });
+
+        // when
+        CompletableFuture<Void> successor = executor.submit(1, () -> successorRan.set(true));
+        blocked.countDown();
+
+        // then
+        assertThrows(CompletionException.class, failing::join);
+        assertThrows(CompletionException.class, successor::join);
+        assertFalse(successorRan.get());
+    }
+
+    @Test
+    void shouldRunTaskSubmittedAfterFailedTaskCompleted() {
+        for (int i = 0; i < 10_000; i++) {
+            // given
+            AtomicBoolean ran = new AtomicBoolean();
+            CompletableFuture<Void> failing = executor.submit(1, () -> {
+                throw new IllegalStateException("failure");
+            });
+            assertThrows(CompletionException.class, failing::join);
+
+            // when
+            executor.submit(1, () -> ran.set(true)).join();
+
+            // then
+            assertTrue(ran.get());
+            assertEquals(0, executor.pendingKeys());
+        }
+    }
+
+}
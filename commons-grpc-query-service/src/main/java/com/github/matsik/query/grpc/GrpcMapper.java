@@ -1,5 +1,6 @@
 package com.github.matsik.query.grpc;
 
+import com.github.matsik.query.booking.grpc.Uuid;
 import com.google.type.Date;
 
 import java.time.LocalDate;
@@ -19,8 +20,27 @@ public class GrpcMapper {
         return LocalDate.of(grpcDate.getYear(), grpcDate.getMonth(), grpcDate.getDay());
     }
 
+    public static LocalDate localDate(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    public static int epochDay(LocalDate localDate) {
+        return Math.toIntExact(localDate.toEpochDay());
+    }
+
     public static UUID uuid(String grpcUuid) {
         return UUID.fromString(grpcUuid);
 
     }
+
+    public static UUID uuid(Uuid grpcUuid) {
+        return new UUID(grpcUuid.getMostSignificantBits(), grpcUuid.getLeastSignificantBits());
+    }
+
+    public static Uuid grpcUuid(UUID uuid) {
+        return Uuid.newBuilder()
+                .setMostSignificantBits(uuid.getMostSignificantBits())
+                .setLeastSignificantBits(uuid.getLeastSignificantBits())
+                .build();
+    }
 }
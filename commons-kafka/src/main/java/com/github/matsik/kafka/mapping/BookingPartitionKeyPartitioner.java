@@ -0,0 +1,81 @@
+package com.github.matsik.kafka.mapping;
+
+import com.github.matsik.dto.BookingPartitionKey;
+import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.common.Cluster;
+
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+/**
+ * Assigns a {@link BookingPartitionKey} to a partition with a jump consistent hash (Lamping, Veach). Growing the
+ * partition count from n to m only moves about (m - n) / m of the keys, and all of them to the new partitions.
+ * <p>
+ * The count comes from {@link #PARTITION_COUNT_CONFIG}, either a number or an {@link IntSupplier}, so that partitions
+ * can be added to the topic before any key is moved to them. Without it the current count of the topic is used.
+ */
+public class BookingPartitionKeyPartitioner implements Partitioner {
+
+    public static final String PARTITION_COUNT_CONFIG = "booking.partition.count";
+
+    private IntSupplier partitionCount;
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        Object configured = configs.get(PARTITION_COUNT_CONFIG);
+        partitionCount = switch (configured) {
+            case null -> null;
+            case IntSupplier supplier -> supplier;
+            case Number number -> number::intValue;
+            default -> {
+                int count = Integer.parseInt(configured.toString());
+                yield () -> count;
+            }
+        };
+    }
+
+    @Override
+    public int partition(String topic, Object key, byte[] keyBytes, Object value, byte[] valueBytes, Cluster cluster) {
+        if (!(key instanceof BookingPartitionKey bookingPartitionKey)) {
+            throw new IllegalArgumentException(String.format("Unsupported key type: %s", key == null ? null : key.getClass()));
+        }
+        int buckets = partitionCount != null ? partitionCount.getAsInt() : cluster.partitionCountForTopic(topic);
+        return partition(bookingPartitionKey, buckets);
+    }
+
+    public static int partition(BookingPartitionKey key, int buckets) {
+        return jumpConsistentHash(hash(key), buckets);
+    }
+
+    static long hash(BookingPartitionKey key) {
+        long hash = mix(key.serviceId().getMostSignificantBits());
+        hash = mix(hash ^ key.serviceId().getLeastSignificantBits());
+        return mix(hash ^ key.date().toEpochDay());
+    }
+
+    private static long mix(long value) {
+        // murmur3 fmix64
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    static int jumpConsistentHash(long key, int buckets) {
+        long bucket = -1;
+        long next = 0;
+        while (next < buckets) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.github.matsik.kafka.mapping;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public class CommandHeaders {
+
+    public static final String COMMAND_ID = "command-id";
+
+    private static final UuidSerializer UUID_SERIALIZER = new UuidSerializer();
+    private static final UuidDeserializer UUID_DESERIALIZER = new UuidDeserializer();
+
+    public static byte[] commandIdBytes(UUID commandId) {
+        return UUID_SERIALIZER.serialize(null, commandId);
+    }
+
+    public static Optional<UUID> commandId(Headers headers) {
+        Header header = headers.lastHeader(COMMAND_ID);
+        if (header == null || header.value() == null || header.value().length != UuidSerializer.UUID_SIZE) {
+            return Optional.empty();
+        }
+        return Optional.of(UUID_DESERIALIZER.deserialize(null, header.value()));
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.github.matsik.kafka.mapping;
+
+import com.github.matsik.kafka.outcome.CommandAccepted;
+import com.github.matsik.kafka.outcome.CommandBatchAccepted;
+import com.github.matsik.kafka.outcome.CommandOutcome;
+import com.github.matsik.kafka.outcome.CommandRejected;
+import com.github.matsik.kafka.outcome.RejectionReason;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.github.matsik.kafka.mapping.CommandOutcomeSerializer.ACCEPTED_SIZE;
+import static com.github.matsik.kafka.mapping.CommandOutcomeSerializer.ACCEPTED_TAG;
+import static com.github.matsik.kafka.mapping.CommandOutcomeSerializer.BATCH_ACCEPTED_TAG;
+import static com.github.matsik.kafka.mapping.CommandOutcomeSerializer.FORMAT_VERSION;
+import static com.github.matsik.kafka.mapping.CommandOutcomeSerializer.HEADER_SIZE;
+import static com.github.matsik.kafka.mapping.CommandOutcomeSerializer.REJECTED_SIZE;
+import static com.github.matsik.kafka.mapping.CommandOutcomeSerializer.REJECTED_TAG;
+import static com.github.matsik.kafka.mapping.CommandOutcomeSerializer.batchAcceptedSize;
+
+public class CommandOutcomeDeserializer implements Deserializer<CommandOutcome> {
+
+    private static final RejectionReason[] REJECTION_REASONS = RejectionReason.values();
+
+    @Override
+    public CommandOutcome deserialize(String topic, byte[] bytes) {
+        return deserialize(topic, null, bytes == null ? null : ByteBuffer.wrap(bytes));
+    }
+
+    @Override
+    public CommandOutcome deserialize(String topic, Headers headers, byte[] bytes) {
+        return deserialize(topic, headers, bytes == null ? null : ByteBuffer.wrap(bytes));
+    }
+
+    @Override
+    public CommandOutcome deserialize(String topic, Headers headers, ByteBuffer buffer) {
+        if (buffer == null) {
+            return null;
+        }
+        int position = buffer.position();
+        if (buffer.remaining() < HEADER_SIZE || buffer.get(position) != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported command outcome format");
+        }
+        byte tag = buffer.get(position + 1);
+        return switch (tag) {
+            case ACCEPTED_TAG -> {
+                checkSize(buffer, ACCEPTED_SIZE);
+                UUID bookingId = new UUID(buffer.getLong(position + HEADER_SIZE), buffer.getLong(position + HEADER_SIZE + 8));
+                yield new CommandAccepted(bookingId);
+            }
+            case BATCH_ACCEPTED_TAG -> {
+                int bookingCount = buffer.remaining() >= batchAcceptedSize(0)
+                        ? Short.toUnsignedInt(buffer.getShort(position + HEADER_SIZE))
+                        : 0;
+                checkSize(buffer, batchAcceptedSize(bookingCount));
+                List<UUID> bookingIds = new ArrayList<>(bookingCount);
+                for (int i = position + batchAcceptedSize(0); i < position + batchAcceptedSize(bookingCount); i += 16) {
+                    bookingIds.add(new UUID(buffer.getLong(i), buffer.getLong(i + 8)));
+                }
+                yield new CommandBatchAccepted(bookingIds);
+            }
+            case REJECTED_TAG -> {
+                checkSize(buffer, REJECTED_SIZE);
+                yield new CommandRejected(REJECTION_REASONS[buffer.get(position + HEADER_SIZE)]);
+            }
+            default -> throw new IllegalArgumentException(String.format("Unknown command outcome type: %d", tag));
+        };
+    }
+
+    private static void checkSize(ByteBuffer buffer, int expectedSize) {
+        if (buffer.remaining() != expectedSize) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid command outcome length: %d, expected %d", buffer.remaining(), expectedSize)
+            );
+        }
+    }
+
+}
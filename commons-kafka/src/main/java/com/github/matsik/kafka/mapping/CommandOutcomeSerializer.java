@@ -0,0 +1,67 @@
+package com.github.matsik.kafka.mapping;
+
+import com.github.matsik.kafka.outcome.CommandAccepted;
+import com.github.matsik.kafka.outcome.CommandBatchAccepted;
+import com.github.matsik.kafka.outcome.CommandOutcome;
+import com.github.matsik.kafka.outcome.CommandRejected;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Fixed-layout binary encoding of {@link CommandOutcome}: a format version byte, a type tag byte and either the booking
+ * id, the count and ids of the bookings accepted together or the rejection reason ordinal. The command id is the record key, see {@link UuidSerializer}.
+ */
+public class CommandOutcomeSerializer implements Serializer<CommandOutcome> {
+
+    public static final byte FORMAT_VERSION = 1;
+
+    public static final byte ACCEPTED_TAG = 1;
+    public static final byte REJECTED_TAG = 2;
+    public static final byte BATCH_ACCEPTED_TAG = 3;
+
+    public static final int HEADER_SIZE = 2;
+    public static final int ACCEPTED_SIZE = HEADER_SIZE + 16;
+    public static final int REJECTED_SIZE = HEADER_SIZE + 1;
+
+    public static int batchAcceptedSize(int bookingCount) {
+        return HEADER_SIZE + 2 + bookingCount * 16;
+    }
+
+    @Override
+    public byte[] serialize(String topic, CommandOutcome outcome) {
+        if (outcome == null) {
+            return null;
+        }
+        return switch (outcome) {
+            case CommandAccepted accepted -> {
+                ByteBuffer buffer = ByteBuffer.allocate(ACCEPTED_SIZE);
+                buffer.put(FORMAT_VERSION);
+                buffer.put(ACCEPTED_TAG);
+                buffer.putLong(accepted.bookingId().getMostSignificantBits());
+                buffer.putLong(accepted.bookingId().getLeastSignificantBits());
+                yield buffer.array();
+            }
+            case CommandBatchAccepted accepted -> {
+                ByteBuffer buffer = ByteBuffer.allocate(batchAcceptedSize(accepted.bookingIds().size()));
+                buffer.put(FORMAT_VERSION);
+                buffer.put(BATCH_ACCEPTED_TAG);
+                buffer.putShort((short) accepted.bookingIds().size());
+                for (UUID bookingId : accepted.bookingIds()) {
+                    buffer.putLong(bookingId.getMostSignificantBits());
+                    buffer.putLong(bookingId.getLeastSignificantBits());
+                }
+                yield buffer.array();
+            }
+            case CommandRejected rejected -> {
+                ByteBuffer buffer = ByteBuffer.allocate(REJECTED_SIZE);
+                buffer.put(FORMAT_VERSION);
+                buffer.put(REJECTED_TAG);
+                buffer.put((byte) rejected.reason().ordinal());
+                yield buffer.array();
+            }
+        };
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.github.matsik.kafka.mapping;
+
+import com.github.matsik.kafka.task.CommandValue;
+import com.github.matsik.kafka.task.CreateBookingCommandValue;
+import com.github.matsik.kafka.task.CreateBookingsCommandValue;
+import com.github.matsik.kafka.task.DeleteBookingCommandValue;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static com.github.matsik.kafka.mapping.CommandValueSerializer.CREATE_BOOKINGS_TAG;
+import static com.github.matsik.kafka.mapping.CommandValueSerializer.CREATE_BOOKING_SIZE;
+import static com.github.matsik.kafka.mapping.CommandValueSerializer.CREATE_BOOKING_TAG;
+import static com.github.matsik.kafka.mapping.CommandValueSerializer.DELETE_BOOKING_SIZE;
+import static com.github.matsik.kafka.mapping.CommandValueSerializer.DELETE_BOOKING_TAG;
+import static com.github.matsik.kafka.mapping.CommandValueSerializer.FORMAT_VERSION;
+import static com.github.matsik.kafka.mapping.CommandValueSerializer.HEADER_SIZE;
+import static com.github.matsik.kafka.mapping.CommandValueSerializer.createBookingsSize;
+
+/**
+ * Reads the {@link CommandValueSerializer} binary format straight from the fetched buffer. Records written as JSON
+ * before the binary format was introduced are passed to the legacy deserializer.
+ */
+public class CommandValueDeserializer implements Deserializer<CommandValue> {
+
+    private static final byte JSON_OBJECT_START = '{';
+
+    private final Deserializer<CommandValue> legacyDeserializer;
+
+    public CommandValueDeserializer(Deserializer<CommandValue> legacyDeserializer) {
+        this.legacyDeserializer = legacyDeserializer;
+    }
+
+    @Override
+    public CommandValue deserialize(String topic, byte[] bytes) {
+        return deserialize(topic, null, bytes == null ? null : ByteBuffer.wrap(bytes));
+    }
+
+    @Override
+    public CommandValue deserialize(String topic, Headers headers, byte[] bytes) {
+        return deserialize(topic, headers, bytes == null ? null : ByteBuffer.wrap(bytes));
+    }
+
+    @Override
+    public CommandValue deserialize(String topic, Headers headers, ByteBuffer buffer) {
+        if (buffer == null) {
+            return null;
+        }
+        if (!buffer.hasRemaining()) {
+            throw new IllegalArgumentException("Empty command value");
+        }
+        byte formatVersion = buffer.get(buffer.position());
+        if (formatVersion == JSON_OBJECT_START) {
+            return headers == null
+                    ? legacyDeserializer.deserialize(topic, toBytes(buffer))
+                    : legacyDeserializer.deserialize(topic, headers, toBytes(buffer));
+        }
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IllegalArgumentException(String.format("Unsupported command value format: %d", formatVersion));
+        }
+        return deserializeFromBuffer(buffer);
+    }
+
+    @Override
+    public void close() {
+        legacyDeserializer.close();
+    }
+
+    private static CommandValue deserializeFromBuffer(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid command value length: %d, expected at least %d", buffer.remaining(), HEADER_SIZE)
+            );
+        }
+        int position = buffer.position();
+        byte tag = buffer.get(position + 1);
+        return switch (tag) {
+            case CREATE_BOOKING_TAG -> {
+                checkSize(buffer, CREATE_BOOKING_SIZE);
+                UUID userId = getUuid(buffer, position + HEADER_SIZE);
+                int start = buffer.getShort(position + HEADER_SIZE + 16);
+                int end = buffer.getShort(position + HEADER_SIZE + 18);
+                yield new CreateBookingCommandValue(userId, start, end);
+            }
+            case DELETE_BOOKING_TAG -> {
+                checkSize(buffer, DELETE_BOOKING_SIZE);
+                UUID bookingId = getUuid(buffer, position + HEADER_SIZE);
+                UUID userId = getUuid(buffer, position + HEADER_SIZE + 16);
+                yield new DeleteBookingCommandValue(bookingId, userId);
+            }
+            case CREATE_BOOKINGS_TAG -> {
+                int rangeCount = buffer.remaining() >= createBookingsSize(0)
+                        ? Short.toUnsignedInt(buffer.getShort(position + HEADER_SIZE + 16))
+                        : 0;
+                checkSize(buffer, createBookingsSize(rangeCount));
+                UUID userId = getUuid(buffer, position + HEADER_SIZE);
+                List<CreateBookingsCommandValue.Range> ranges = new ArrayList<>(rangeCount);
+                for (int i = position + createBookingsSize(0); i < position + createBookingsSize(rangeCount); i += 4) {
+                    ranges.add(new CreateBookingsCommandValue.Range(buffer.getShort(i), buffer.getShort(i + 2)));
+                }
+                yield new CreateBookingsCommandValue(userId, ranges);
+            }
+            default -> throw new IllegalArgumentException(String.format("Unknown command value type: %d", tag));
+        };
+    }
+
+    private static void checkSize(ByteBuffer buffer, int expectedSize) {
+        if (buffer.remaining() != expectedSize) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid command value length: %d, expected %d", buffer.remaining(), expectedSize)
+            );
+        }
+    }
+
+    private static UUID getUuid(ByteBuffer buffer, int index) {
+        return new UUID(buffer.getLong(index), buffer.getLong(index + 8));
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0 && buffer.remaining() == buffer.array().length) {
+            return buffer.array();
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+}
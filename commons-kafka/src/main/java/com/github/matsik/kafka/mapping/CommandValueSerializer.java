@@ -0,0 +1,84 @@
+package com.github.matsik.kafka.mapping;
+
+import com.github.matsik.kafka.task.CommandValue;
+import com.github.matsik.kafka.task.CreateBookingCommandValue;
+import com.github.matsik.kafka.task.CreateBookingsCommandValue;
+import com.github.matsik.kafka.task.DeleteBookingCommandValue;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Fixed-layout binary encoding of {@link CommandValue}: a format version byte, a type tag byte and the fields of the
+ * command. Minutes of day fit into a short. The time ranges of a multi-booking command follow their count.
+ */
+public class CommandValueSerializer implements Serializer<CommandValue> {
+
+    public static final byte FORMAT_VERSION = 1;
+
+    public static final byte CREATE_BOOKING_TAG = 1;
+    public static final byte DELETE_BOOKING_TAG = 2;
+    public static final byte CREATE_BOOKINGS_TAG = 3;
+
+    public static final int HEADER_SIZE = 2;
+    public static final int CREATE_BOOKING_SIZE = HEADER_SIZE + 16 + 2 + 2;
+    public static final int DELETE_BOOKING_SIZE = HEADER_SIZE + 16 + 16;
+
+    public static int createBookingsSize(int rangeCount) {
+        return HEADER_SIZE + 16 + 2 + rangeCount * (2 + 2);
+    }
+
+    @Override
+    public byte[] serialize(String topic, CommandValue value) {
+        if (value == null) {
+            return null;
+        }
+        return switch (value) {
+            case CreateBookingCommandValue create -> serializeToBytes(create);
+            case DeleteBookingCommandValue delete -> serializeToBytes(delete);
+            case CreateBookingsCommandValue create -> serializeToBytes(create);
+        };
+    }
+
+    private static byte[] serializeToBytes(CreateBookingCommandValue value) {
+        ByteBuffer buffer = ByteBuffer.allocate(CREATE_BOOKING_SIZE);
+        buffer.put(FORMAT_VERSION);
+        buffer.put(CREATE_BOOKING_TAG);
+        putUuid(buffer, value.userId());
+        buffer.putShort((short) value.start());
+        buffer.putShort((short) value.end());
+
+        return buffer.array();
+    }
+
+    private static byte[] serializeToBytes(DeleteBookingCommandValue value) {
+        ByteBuffer buffer = ByteBuffer.allocate(DELETE_BOOKING_SIZE);
+        buffer.put(FORMAT_VERSION);
+        buffer.put(DELETE_BOOKING_TAG);
+        putUuid(buffer, value.bookingId());
+        putUuid(buffer, value.userId());
+
+        return buffer.array();
+    }
+
+    private static byte[] serializeToBytes(CreateBookingsCommandValue value) {
+        ByteBuffer buffer = ByteBuffer.allocate(createBookingsSize(value.ranges().size()));
+        buffer.put(FORMAT_VERSION);
+        buffer.put(CREATE_BOOKINGS_TAG);
+        putUuid(buffer, value.userId());
+        buffer.putShort((short) value.ranges().size());
+        for (CreateBookingsCommandValue.Range range : value.ranges()) {
+            buffer.putShort((short) range.start());
+            buffer.putShort((short) range.end());
+        }
+
+        return buffer.array();
+    }
+
+    private static void putUuid(ByteBuffer buffer, UUID uuid) {
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.github.matsik.kafka.mapping;
+
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import static com.github.matsik.kafka.mapping.UuidSerializer.UUID_SIZE;
+
+public class UuidDeserializer implements Deserializer<UUID> {
+
+    @Override
+    public UUID deserialize(String topic, byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length != UUID_SIZE) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid byte array length: %d, expected %d", bytes.length, UUID_SIZE)
+            );
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.github.matsik.kafka.mapping;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+public class UuidSerializer implements Serializer<UUID> {
+
+    public static final int UUID_SIZE = 16;
+
+    @Override
+    public byte[] serialize(String topic, UUID uuid) {
+        if (uuid == null) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(UUID_SIZE);
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+
+        return buffer.array();
+    }
+
+}
@@ -0,0 +1,6 @@
+package com.github.matsik.kafka.outcome;
+
+import java.util.UUID;
+
+public record CommandAccepted(UUID bookingId) implements CommandOutcome {
+}
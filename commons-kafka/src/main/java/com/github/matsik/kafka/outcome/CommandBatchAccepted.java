@@ -0,0 +1,10 @@
+package com.github.matsik.kafka.outcome;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * @param bookingIds in the order of the time ranges of the command
+ */
+public record CommandBatchAccepted(List<UUID> bookingIds) implements CommandOutcome {
+}
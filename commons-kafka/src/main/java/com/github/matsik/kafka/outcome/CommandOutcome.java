@@ -0,0 +1,4 @@
+package com.github.matsik.kafka.outcome;
+
+public sealed interface CommandOutcome permits CommandAccepted, CommandBatchAccepted, CommandRejected {
+}
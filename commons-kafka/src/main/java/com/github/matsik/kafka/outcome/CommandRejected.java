@@ -0,0 +1,4 @@
+package com.github.matsik.kafka.outcome;
+
+public record CommandRejected(RejectionReason reason) implements CommandOutcome {
+}
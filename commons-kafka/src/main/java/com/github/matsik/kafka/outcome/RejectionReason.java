@@ -0,0 +1,10 @@
+package com.github.matsik.kafka.outcome;
+
+public enum RejectionReason {
+    OVERLAPPING_BOOKING,
+    NOT_MATCHING_OWNER,
+    /**
+     * The command value could not be turned into a command, such as a time range outside of the day.
+     */
+    INVALID_COMMAND
+}
@@ -9,7 +9,8 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
 )
 @JsonSubTypes({
         @JsonSubTypes.Type(value = DeleteBookingCommandValue.class),
-        @JsonSubTypes.Type(value = CreateBookingCommandValue.class)
+        @JsonSubTypes.Type(value = CreateBookingCommandValue.class),
+        @JsonSubTypes.Type(value = CreateBookingsCommandValue.class)
 })
-public sealed interface CommandValue permits CreateBookingCommandValue, DeleteBookingCommandValue {
+public sealed interface CommandValue permits CreateBookingCommandValue, CreateBookingsCommandValue, DeleteBookingCommandValue {
 }
@@ -0,0 +1,20 @@
+package com.github.matsik.kafka.task;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Several bookings of a user for a single service-date, created all or none.
+ */
+public record CreateBookingsCommandValue(UUID userId, List<Range> ranges) implements CommandValue {
+
+    /**
+     * A booking for every quarter of an hour of a day, well within the 8 bit sequence that tells the booking ids of a
+     * command apart.
+     */
+    public static final int MAX_RANGES = 96;
+
+    public record Range(int start, int end) {
+    }
+
+}
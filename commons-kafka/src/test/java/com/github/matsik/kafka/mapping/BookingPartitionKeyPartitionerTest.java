@@ -0,0 +1,179 @@
+package com.github.matsik.kafka.mapping;
+
+import com.github.matsik.dto.BookingPartitionKey;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookingPartitionKeyPartitionerTest {
+
+    private static final String TOPIC = "bookings";
+    private static final int TOPIC_PARTITIONS = 5;
+    private static final int KEY_COUNT = 20_000;
+
+    @ParameterizedTest(name = "{0} -> {1} partitions")
+    @MethodSource("provideExpansions")
+    void shouldOnlyMoveKeysToNewPartitions(int from, int to) {
+        // given
+        List<BookingPartitionKey> keys = keys();
+
+        // when
+        List<BookingPartitionKey> moved = keys.stream()
+                .filter(key -> BookingPartitionKeyPartitioner.partition(key, from) != BookingPartitionKeyPartitioner.partition(key, to))
+                .toList();
+
+        // then
+        moved.forEach(key -> assertTrue(BookingPartitionKeyPartitioner.partition(key, to) >= from));
+        double movedFraction = (double) moved.size() / keys.size();
+        double expectedFraction = (double) (to - from) / to;
+        assertEquals(expectedFraction, movedFraction, 0.02);
+    }
+
+    private static Stream<Arguments> provideExpansions() {
+        return Stream.of(
+                Arguments.of(1, 2),
+                Arguments.of(8, 12),
+                Arguments.of(12, 16),
+                Arguments.of(16, 64)
+        );
+    }
+
+    @Test
+    void shouldSpreadKeysEvenly() {
+        // given
+        int buckets = 12;
+        List<BookingPartitionKey> keys = keys();
+
+        // when
+        int[] counts = new int[buckets];
+        keys.forEach(key -> counts[BookingPartitionKeyPartitioner.partition(key, buckets)]++);
+
+        // then
+        double expected = (double) keys.size() / buckets;
+        for (int count : counts) {
+            assertEquals(expected, count, expected * 0.1);
+        }
+    }
+
+    @Test
+    void shouldAssignSamePartitionToEqualKeys() {
+        // given
+        UUID serviceId = UUID.fromString("54218760-ae5d-45b9-9ceb-58d36d869021");
+        LocalDate date = LocalDate.of(2024, 12, 10);
+
+        // when
+        int first = BookingPartitionKeyPartitioner.partition(BookingPartitionKey.of(serviceId, date), 12);
+        int second = BookingPartitionKeyPartitioner.partition(BookingPartitionKey.of(serviceId, date), 12);
+
+        // then
+        assertEquals(first, second);
+        // fixed across releases, the producers of different versions have to agree on it
+        assertEquals(10, first);
+        assertEquals(5, BookingPartitionKeyPartitioner.partition(BookingPartitionKey.of(serviceId, date), 8));
+        assertEquals(0, BookingPartitionKeyPartitioner.partition(BookingPartitionKey.of(serviceId, date), 1));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("providePartitionCountConfigs")
+    void shouldUseConfiguredPartitionCount(String name, Map<String, Object> configs, int expectedPartitionCount) {
+        // given
+        BookingPartitionKeyPartitioner partitioner = new BookingPartitionKeyPartitioner();
+        partitioner.configure(configs);
+
+        // when
+        List<BookingPartitionKey> keys = keys().subList(0, 1_000);
+
+        // then
+        for (BookingPartitionKey key : keys) {
+            int partition = partitioner.partition(TOPIC, key, null, null, null, cluster());
+            assertEquals(BookingPartitionKeyPartitioner.partition(key, expectedPartitionCount), partition);
+        }
+    }
+
+    private static Stream<Arguments> providePartitionCountConfigs() {
+        return Stream.of(
+                Arguments.of("Should use a number", Map.of(BookingPartitionKeyPartitioner.PARTITION_COUNT_CONFIG, 12), 12),
+                Arguments.of("Should use a long", Map.of(BookingPartitionKeyPartitioner.PARTITION_COUNT_CONFIG, 16L), 16),
+                Arguments.of("Should use a supplier", Map.of(BookingPartitionKeyPartitioner.PARTITION_COUNT_CONFIG, (IntSupplier) () -> 24), 24),
+                Arguments.of("Should parse a string", Map.of(BookingPartitionKeyPartitioner.PARTITION_COUNT_CONFIG, "32"), 32),
+                Arguments.of("Should use the topic partition count without a config", Map.of(), TOPIC_PARTITIONS)
+        );
+    }
+
+    @Test
+    void shouldFollowSuppliedPartitionCount() {
+        // given
+        AtomicInteger partitionCount = new AtomicInteger(8);
+        BookingPartitionKeyPartitioner partitioner = new BookingPartitionKeyPartitioner();
+        partitioner.configure(Map.of(BookingPartitionKeyPartitioner.PARTITION_COUNT_CONFIG, (IntSupplier) partitionCount::get));
+        List<BookingPartitionKey> keys = keys().subList(0, 1_000);
+
+        // when
+        partitionCount.set(12);
+
+        // then
+        for (BookingPartitionKey key : keys) {
+            assertEquals(BookingPartitionKeyPartitioner.partition(key, 12), partitioner.partition(TOPIC, key, null, null, null, cluster()));
+        }
+    }
+
+    @Test
+    void shouldRejectInvalidPartitionCountString() {
+        // given
+        BookingPartitionKeyPartitioner partitioner = new BookingPartitionKeyPartitioner();
+
+        // when
+        // then
+        assertThrows(NumberFormatException.class, () -> partitioner.configure(Map.of(BookingPartitionKeyPartitioner.PARTITION_COUNT_CONFIG, "many")));
+    }
+
+    @Test
+    void shouldRejectUnsupportedKey() {
+        // given
+        BookingPartitionKeyPartitioner partitioner = new BookingPartitionKeyPartitioner();
+        partitioner.configure(Map.of());
+
+        // when
+        // then
+        assertThrows(IllegalArgumentException.class, () -> partitioner.partition(TOPIC, "key", null, null, null, cluster()));
+    }
+
+    private static List<BookingPartitionKey> keys() {
+        Random random = new Random(42);
+        LocalDate firstDate = LocalDate.of(2025, 1, 1);
+        return IntStream.range(0, KEY_COUNT)
+                .mapToObj(_ -> BookingPartitionKey.of(
+                        new UUID(random.nextLong(), random.nextLong()),
+                        firstDate.plusDays(random.nextInt(365))
+                ))
+                .toList();
+    }
+
+    private static Cluster cluster() {
+        Node node = new Node(0, "localhost", 9092);
+        List<PartitionInfo> partitions = IntStream.range(0, TOPIC_PARTITIONS)
+                .mapToObj(partition -> new PartitionInfo(TOPIC, partition, node, new Node[]{node}, new Node[]{node}))
+                .toList();
+        return new Cluster("cluster", List.of(node), partitions, Set.of(), Set.of());
+    }
+
+}
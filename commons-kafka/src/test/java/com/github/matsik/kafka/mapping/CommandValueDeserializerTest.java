@@ -0,0 +1,218 @@
+package com.github.matsik.kafka.mapping;
+
+import com.github.matsik.kafka.task.CommandValue;
+import com.github.matsik.kafka.task.CreateBookingCommandValue;
+import com.github.matsik.kafka.task.CreateBookingsCommandValue;
+import com.github.matsik.kafka.task.DeleteBookingCommandValue;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CommandValueDeserializerTest {
+
+    private static final String TOPIC = "bookings";
+
+    private static final CommandValue LEGACY_VALUE = new DeleteBookingCommandValue(UUID.randomUUID(), UUID.randomUUID());
+
+    private final List<byte[]> legacyBytes = new ArrayList<>();
+    private final CommandValueSerializer serializer = new CommandValueSerializer();
+    private final CommandValueDeserializer deserializer = new CommandValueDeserializer((_, bytes) -> {
+        legacyBytes.add(bytes);
+        return LEGACY_VALUE;
+    });
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("provideCommandValues")
+    void shouldDeserializeSerializedValue(String name, CommandValue value) {
+        // given
+        byte[] bytes = serializer.serialize(TOPIC, value);
+
+        // when
+        CommandValue deserialized = deserializer.deserialize(TOPIC, bytes);
+
+        // then
+        assertEquals(value, deserialized);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("provideCommandValues")
+    void shouldDeserializeSerializedValueFromFetchedBuffer(String name, CommandValue value) {
+        // given
+        byte[] bytes = serializer.serialize(TOPIC, value);
+        ByteBuffer fetched = ByteBuffer.allocate(bytes.length + 6);
+        fetched.put(new byte[]{7, 7, 7}).put(bytes).put(new byte[]{7, 7, 7});
+        ByteBuffer buffer = fetched.position(3).limit(3 + bytes.length);
+
+        // when
+        CommandValue deserialized = deserializer.deserialize(TOPIC, new RecordHeaders(), buffer);
+
+        // then
+        assertEquals(value, deserialized);
+    }
+
+    private static Stream<Arguments> provideCommandValues() {
+        List<CreateBookingsCommandValue.Range> maxRanges = IntStream.range(0, CreateBookingsCommandValue.MAX_RANGES)
+                .mapToObj(i -> new CreateBookingsCommandValue.Range(i * 15, i * 15 + 15))
+                .toList();
+        return Stream.of(
+                Arguments.of(
+                        "Should round trip a create booking command",
+                        new CreateBookingCommandValue(UUID.randomUUID(), 540, 24 * 60)
+                ),
+                Arguments.of(
+                        "Should round trip a delete booking command",
+                        new DeleteBookingCommandValue(UUID.randomUUID(), UUID.randomUUID())
+                ),
+                Arguments.of(
+                        "Should round trip a create bookings command",
+                        new CreateBookingsCommandValue(UUID.randomUUID(), List.of(
+                                new CreateBookingsCommandValue.Range(0, 30),
+                                new CreateBookingsCommandValue.Range(600, 660)
+                        ))
+                ),
+                Arguments.of(
+                        "Should round trip a create bookings command with the most time ranges",
+                        new CreateBookingsCommandValue(UUID.randomUUID(), maxRanges)
+                )
+        );
+    }
+
+    @Test
+    void shouldPassJsonValueToLegacyDeserializer() {
+        // given
+        byte[] bytes = "{\"type\":\"com.github.matsik.kafka.task.DeleteBookingCommandValue\"}".getBytes(StandardCharsets.UTF_8);
+
+        // when
+        CommandValue deserialized = deserializer.deserialize(TOPIC, bytes);
+
+        // then
+        assertSame(LEGACY_VALUE, deserialized);
+        assertEquals(1, legacyBytes.size());
+        assertArrayEquals(bytes, legacyBytes.getFirst());
+    }
+
+    @Test
+    void shouldPassJsonValueOfFetchedBufferToLegacyDeserializer() {
+        // given
+        byte[] bytes = "{\"type\":\"com.github.matsik.kafka.task.DeleteBookingCommandValue\"}".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer fetched = ByteBuffer.allocate(bytes.length + 2);
+        fetched.put((byte) 7).put(bytes).put((byte) 7);
+        ByteBuffer buffer = fetched.position(1).limit(1 + bytes.length);
+
+        // when
+        CommandValue deserialized = deserializer.deserialize(TOPIC, new RecordHeaders(), buffer);
+
+        // then
+        assertSame(LEGACY_VALUE, deserialized);
+        assertArrayEquals(bytes, legacyBytes.getFirst());
+    }
+
+    @Test
+    void shouldDeserializeNullValueToNull() {
+        // when
+        CommandValue deserialized = deserializer.deserialize(TOPIC, null);
+
+        // then
+        assertNull(deserialized);
+    }
+
+    @Test
+    void shouldRejectUnknownFormatVersion() {
+        // given
+        byte[] bytes = serializer.serialize(TOPIC, new DeleteBookingCommandValue(UUID.randomUUID(), UUID.randomUUID()));
+        bytes[0] = CommandValueSerializer.FORMAT_VERSION + 1;
+
+        // when
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> deserializer.deserialize(TOPIC, bytes));
+
+        // then
+        assertEquals("Unsupported command value format: 2", exception.getMessage());
+    }
+
+    @Test
+    void shouldRejectUnknownTypeTag() {
+        // given
+        byte[] bytes = serializer.serialize(TOPIC, new DeleteBookingCommandValue(UUID.randomUUID(), UUID.randomUUID()));
+        bytes[1] = 9;
+
+        // when
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> deserializer.deserialize(TOPIC, bytes));
+
+        // then
+        assertEquals("Unknown command value type: 9", exception.getMessage());
+    }
+
+    @Test
+    void shouldRejectTruncatedHeader() {
+        // given
+        byte[] bytes = {CommandValueSerializer.FORMAT_VERSION};
+
+        // when
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> deserializer.deserialize(TOPIC, bytes));
+
+        // then
+        assertEquals("Invalid command value length: 1, expected at least 2", exception.getMessage());
+    }
+
+    @Test
+    void shouldRejectEmptyValue() {
+        // when
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> deserializer.deserialize(TOPIC, new byte[0]));
+
+        // then
+        assertEquals("Empty command value", exception.getMessage());
+    }
+
+    @Test
+    void shouldRejectTruncatedValue() {
+        // given
+        byte[] serialized = serializer.serialize(TOPIC, new CreateBookingCommandValue(UUID.randomUUID(), 0, 60));
+        byte[] bytes = Arrays.copyOf(serialized, serialized.length - 1);
+
+        // when
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> deserializer.deserialize(TOPIC, bytes));
+
+        // then
+        assertEquals(
+                String.format("Invalid command value length: %d, expected %d", bytes.length, CommandValueSerializer.CREATE_BOOKING_SIZE),
+                exception.getMessage()
+        );
+    }
+
+    @Test
+    void shouldRejectTimeRangeCountNotMatchingLength() {
+        // given
+        byte[] serialized = serializer.serialize(TOPIC, new CreateBookingsCommandValue(UUID.randomUUID(), List.of(
+                new CreateBookingsCommandValue.Range(0, 30),
+                new CreateBookingsCommandValue.Range(30, 60)
+        )));
+        byte[] bytes = Arrays.copyOf(serialized, CommandValueSerializer.createBookingsSize(1));
+
+        // when
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> deserializer.deserialize(TOPIC, bytes));
+
+        // then
+        assertEquals(
+                String.format("Invalid command value length: %d, expected %d", bytes.length, CommandValueSerializer.createBookingsSize(2)),
+                exception.getMessage()
+        );
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.github.matsik.cassandra.entity;
+
+import com.datastax.oss.driver.api.mapper.annotations.CqlName;
+import com.datastax.oss.driver.api.mapper.annotations.Entity;
+import com.datastax.oss.driver.api.mapper.annotations.PartitionKey;
+import lombok.Builder;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.UUID;
+
+@Entity(defaultKeyspace = "booking_system")
+@CqlName("service_day_occupancy")
+@Builder
+public record ServiceDayOccupancy(
+
+        @PartitionKey
+        UUID serviceId,
+
+        @PartitionKey(1)
+        LocalDate date,
+
+        ByteBuffer minutes,
+
+        long version
+) {
+}
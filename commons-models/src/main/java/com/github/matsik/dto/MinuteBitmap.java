@@ -0,0 +1,126 @@
+package com.github.matsik.dto;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collection;
+
+/**
+ * Occupied minutes of a day, one bit per minute. Serialized as 180 bytes, the minute {@code m} being the bit
+ * {@code m % 8} of the byte {@code m / 8}.
+ */
+public class MinuteBitmap {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final int BYTES = MINUTES_PER_DAY / Byte.SIZE;
+
+    private final long[] words = new long[Math.ceilDiv(MINUTES_PER_DAY, Long.SIZE)];
+
+    public static MinuteBitmap of(Collection<TimeRange> timeRanges) {
+        MinuteBitmap bitmap = new MinuteBitmap();
+        timeRanges.forEach(timeRange -> bitmap.mark(timeRange, true));
+        return bitmap;
+    }
+
+    public static MinuteBitmap of(ByteBuffer bytes) {
+        if (bytes.remaining() != BYTES) {
+            throw new IllegalArgumentException(String.format("Minute bitmap must have %d bytes", BYTES));
+        }
+        ByteBuffer buffer = bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        MinuteBitmap bitmap = new MinuteBitmap();
+        int word = 0;
+        for (; buffer.remaining() >= Long.BYTES; word++) {
+            bitmap.words[word] = buffer.getLong();
+        }
+        for (int shift = 0; buffer.hasRemaining(); shift += Byte.SIZE) {
+            bitmap.words[word] |= (buffer.get() & 0xFFL) << shift;
+        }
+        return bitmap;
+    }
+
+    public ByteBuffer toByteBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocate(BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        int word = 0;
+        for (; buffer.remaining() >= Long.BYTES; word++) {
+            buffer.putLong(words[word]);
+        }
+        for (int shift = 0; buffer.hasRemaining(); shift += Byte.SIZE) {
+            buffer.put((byte) (words[word] >>> shift));
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * @return whether any minute of {@code [from, to)} is occupied
+     */
+    public boolean isOccupied(int from, int to) {
+        if (from >= to) {
+            return false;
+        }
+        int fromWord = from >>> 6;
+        int toWord = (to - 1) >>> 6;
+        for (int word = fromWord; word <= toWord; word++) {
+            if ((words[word] & mask(word, from, to)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isOccupied(TimeRange timeRange) {
+        return isOccupied(timeRange.start().minuteOfDay(), timeRange.end().minuteOfDay());
+    }
+
+    /**
+     * @return the first occupied minute not before {@code from}, or {@link #MINUTES_PER_DAY} if there is none
+     */
+    public int nextOccupied(int from) {
+        return next(from, 0L);
+    }
+
+    /**
+     * @return the first free minute not before {@code from}, or {@link #MINUTES_PER_DAY} if there is none
+     */
+    public int nextFree(int from) {
+        return next(from, -1L);
+    }
+
+    private int next(int from, long flip) {
+        if (from >= MINUTES_PER_DAY) {
+            return MINUTES_PER_DAY;
+        }
+        int word = from >>> 6;
+        long bits = (words[word] ^ flip) & (-1L << from);
+        while (bits == 0) {
+            if (++word == words.length) {
+                return MINUTES_PER_DAY;
+            }
+            bits = words[word] ^ flip;
+        }
+        return Math.min(MINUTES_PER_DAY, (word << 6) + Long.numberOfTrailingZeros(bits));
+    }
+
+    public void mark(TimeRange timeRange, boolean occupied) {
+        int from = timeRange.start().minuteOfDay();
+        int to = timeRange.end().minuteOfDay();
+        if (from >= to) {
+            return;
+        }
+
+        int fromWord = from >>> 6;
+        int toWord = (to - 1) >>> 6;
+        for (int word = fromWord; word <= toWord; word++) {
+            long mask = mask(word, from, to);
+            words[word] = occupied ? words[word] | mask : words[word] & ~mask;
+        }
+    }
+
+    private static long mask(int word, int from, int to) {
+        int wordStart = word << 6;
+        int lowBit = Math.max(from, wordStart) - wordStart;
+        int highBit = Math.min(to, wordStart + Long.SIZE) - wordStart;
+
+        long upTo = highBit == Long.SIZE ? -1L : (1L << highBit) - 1;
+        return upTo & (-1L << lowBit);
+    }
+
+}
@@ -84,7 +84,7 @@ class BookingAPIUser(HttpUser):
                 catch_response=True,
                 name="/bookings/create"
         ) as response:
-            if response.status_code in [200, 400]:
+            if response.status_code in [202, 400]:
                 response.success()
             else:
                 response.failure(f"Got unexpected status code {response.status_code}")
@@ -163,8 +163,8 @@ class BookingAPIUser(HttpUser):
                 catch_response=True,
                 name="/bookings/delete"
         ) as response:
-            if response.status_code in [200, 400]:
-                if response.status_code == 200 and payload in self.fetched_bookings:
+            if response.status_code in [202, 400]:
+                if response.status_code == 202 and payload in self.fetched_bookings:
                     self.fetched_bookings.remove(payload)
                 response.success()
             else:
@@ -0,0 +1,206 @@
+package com.github.matsik.query.booking.cache;
+
+import com.github.matsik.dto.BookingPartitionKey;
+import com.github.matsik.dto.MinuteBitmap;
+import com.github.matsik.query.booking.repository.projection.Occupancy;
+import com.github.matsik.query.config.cache.AvailabilityCacheProperties;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongCounter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Occupancy of the recently queried service-dates, bounded by their estimated heap size and evicted in the
+ * least recently used order. Entries are invalidated by the commands of their service-date, a command is however seen
+ * before the Command Service has written it, so a service-date loaded within the settle window of its last command is
+ * only cached until the window ends.
+ */
+@Component
+public class AvailabilityCache {
+
+    /**
+     * The bitmap words with the occupancy, the key, the entry and the map node around them.
+     */
+    static final int ENTRY_WEIGHT = MinuteBitmap.BYTES + 240;
+
+    /**
+     * The fewest invalidations that are swept for the settled ones held back by a pending retried command.
+     */
+    static final int MIN_SWEEP_SIZE = 1024;
+
+    private static final AttributeKey<String> RESULT = AttributeKey.stringKey("result");
+    private static final AttributeKey<String> CAUSE = AttributeKey.stringKey("cause");
+
+    private static final Attributes HIT = Attributes.of(RESULT, "hit");
+    private static final Attributes MISS = Attributes.of(RESULT, "miss");
+    private static final Attributes EVICTED_FOR_SIZE = Attributes.of(CAUSE, "size");
+    private static final Attributes EVICTED_EXPIRED = Attributes.of(CAUSE, "expired");
+    private static final Attributes EVICTED_INVALIDATED = Attributes.of(CAUSE, "invalidated");
+
+    private final long maxWeight;
+    private final long timeToLive;
+    private final long settleWindow;
+    private final LongSupplier nanoTime;
+    private final LongCounter cacheRequestCounter;
+    private final LongCounter cacheEvictionCounter;
+
+    private final Map<BookingPartitionKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // insertion ordered, pruned once settled
+    private final LinkedHashMap<BookingPartitionKey, Invalidation> invalidations = new LinkedHashMap<>();
+    private int sweepAt = MIN_SWEEP_SIZE;
+    private long weight;
+    private long clears;
+
+    @Autowired
+    public AvailabilityCache(
+            AvailabilityCacheProperties properties,
+            LongCounter cacheRequestCounter,
+            LongCounter cacheEvictionCounter
+    ) {
+        this(properties, System::nanoTime, cacheRequestCounter, cacheEvictionCounter);
+    }
+
+    AvailabilityCache(
+            AvailabilityCacheProperties properties,
+            LongSupplier nanoTime,
+            LongCounter cacheRequestCounter,
+            LongCounter cacheEvictionCounter
+    ) {
+        this.maxWeight = properties.maxSize().toBytes();
+        this.timeToLive = properties.timeToLive().toNanos();
+        this.settleWindow = properties.settleWindow().toNanos();
+        this.nanoTime = nanoTime;
+        this.cacheRequestCounter = cacheRequestCounter;
+        this.cacheEvictionCounter = cacheEvictionCounter;
+    }
+
+    public CompletionStage<Occupancy> get(BookingPartitionKey key, Supplier<CompletionStage<Occupancy>> loader) {
+        long loadStartedAt = nanoTime.getAsLong();
+        Occupancy cached = getIfPresent(key, loadStartedAt);
+        if (cached != null) {
+            cacheRequestCounter.add(1L, HIT);
+            return CompletableFuture.completedFuture(cached);
+        }
+        cacheRequestCounter.add(1L, MISS);
+        long clearsBefore = clears();
+        return loader.get().thenApply(occupancy -> {
+            put(key, occupancy, loadStartedAt, clearsBefore);
+            return occupancy;
+        });
+    }
+
+    public void invalidate(BookingPartitionKey key) {
+        invalidate(key, Duration.ZERO);
+    }
+
+    /**
+     * @param pending how long until the Command Service processes the command, the delay of a retried command
+     */
+    public synchronized void invalidate(BookingPartitionKey key, Duration pending) {
+        long now = nanoTime.getAsLong();
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            weight -= ENTRY_WEIGHT;
+            cacheEvictionCounter.add(1L, EVICTED_INVALIDATED);
+        }
+        invalidations.remove(key);
+        invalidations.put(key, new Invalidation(now, now + pending.toNanos() + settleWindow));
+
+        Iterator<Invalidation> oldest = invalidations.values().iterator();
+        while (oldest.hasNext() && now - oldest.next().settledAt() >= 0) {
+            oldest.remove();
+        }
+        // a pending retried command holds back the pruning from the head, the sweeps drop the settled ones behind it
+        if (invalidations.size() >= sweepAt) {
+            invalidations.values().removeIf(invalidation -> now - invalidation.settledAt() >= 0);
+            sweepAt = Math.max(MIN_SWEEP_SIZE, 2 * invalidations.size());
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        if (!entries.isEmpty()) {
+            cacheEvictionCounter.add(entries.size(), EVICTED_INVALIDATED);
+        }
+        entries.clear();
+        weight = 0;
+        clears++;
+    }
+
+    private synchronized long clears() {
+        return clears;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized int invalidationCount() {
+        return invalidations.size();
+    }
+
+    private synchronized Occupancy getIfPresent(BookingPartitionKey key, long now) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (now - entry.expiresAt() >= 0) {
+            entries.remove(key);
+            weight -= ENTRY_WEIGHT;
+            cacheEvictionCounter.add(1L, EVICTED_EXPIRED);
+            return null;
+        }
+        return entry.occupancy();
+    }
+
+    private synchronized void put(BookingPartitionKey key, Occupancy occupancy, long loadStartedAt, long clearsBefore) {
+        if (clears != clearsBefore) {
+            return;
+        }
+        long expiresAt = loadStartedAt + timeToLive;
+        Invalidation invalidation = invalidations.get(key);
+        if (invalidation != null) {
+            if (invalidation.at() - loadStartedAt >= 0) {
+                // the load may have missed the invalidating command
+                return;
+            }
+            if (invalidation.settledAt() - loadStartedAt > 0 && invalidation.settledAt() - expiresAt < 0) {
+                expiresAt = invalidation.settledAt();
+            }
+        }
+        if (expiresAt - nanoTime.getAsLong() <= 0) {
+            return;
+        }
+
+        if (entries.put(key, new Entry(occupancy, expiresAt)) == null) {
+            weight += ENTRY_WEIGHT;
+        }
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (weight > maxWeight && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            weight -= ENTRY_WEIGHT;
+            cacheEvictionCounter.add(1L, EVICTED_FOR_SIZE);
+        }
+    }
+
+    private record Entry(Occupancy occupancy, long expiresAt) {
+    }
+
+    /**
+     * @param at        when the command was seen
+     * @param settledAt when the settle window of the command ends
+     */
+    private record Invalidation(long at, long settledAt) {
+    }
+
+}
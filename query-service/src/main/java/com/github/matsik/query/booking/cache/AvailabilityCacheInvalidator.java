@@ -0,0 +1,61 @@
+package com.github.matsik.query.booking.cache;
+
+import com.github.matsik.dto.BookingPartitionKey;
+import com.github.matsik.query.config.kafka.KafkaClientProperties;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+import static com.github.matsik.query.config.kafka.KafkaClientConfiguration.COMMAND_TOPICS_PATTERN;
+import static com.github.matsik.query.config.kafka.KafkaClientConfiguration.RETRY_TOPIC_PREFIX;
+
+/**
+ * Evicts the service-date of every create and delete command, including the ones retried by the Command Service. The
+ * consumer starts from the latest offset, so whatever was cached while it was not assigned is dropped on every
+ * assignment.
+ */
+@Component
+@RequiredArgsConstructor
+public class AvailabilityCacheInvalidator implements ConsumerAwareRebalanceListener {
+
+    private final AvailabilityCache availabilityCache;
+    private final KafkaClientProperties kafkaClientProperties;
+
+    @KafkaListener(topicPattern = COMMAND_TOPICS_PATTERN, containerFactory = "invalidationListenerContainerFactory")
+    public void listen(List<ConsumerRecord<BookingPartitionKey, byte[]>> records) {
+        long now = System.currentTimeMillis();
+        for (ConsumerRecord<BookingPartitionKey, byte[]> record : records) {
+            if (record.key() != null) {
+                availabilityCache.invalidate(record.key(), pending(record, now));
+            }
+        }
+    }
+
+    /**
+     * A retried command is processed once the delay of its tier has passed since it was forwarded.
+     */
+    private Duration pending(ConsumerRecord<?, ?> record, long now) {
+        if (!record.topic().startsWith(RETRY_TOPIC_PREFIX)) {
+            return Duration.ZERO;
+        }
+        int tier = Integer.parseInt(record.topic().substring(RETRY_TOPIC_PREFIX.length()));
+        List<Duration> retryDelays = kafkaClientProperties.retryDelays();
+        Duration delay = tier < retryDelays.size() ? retryDelays.get(tier) : retryDelays.getLast();
+        long dueAt = record.timestamp() + delay.toMillis();
+        return Duration.ofMillis(Math.max(0, dueAt - now));
+    }
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        availabilityCache.invalidateAll();
+    }
+
+}
@@ -0,0 +1,10 @@
+package com.github.matsik.query.booking.cursor;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Clustering key of the last booking of a page, the next page continues right after it.
+ */
+public record UserBookingsCursor(UUID serviceId, LocalDate date, UUID bookingId) {
+}
@@ -0,0 +1,95 @@
+package com.github.matsik.query.booking.cursor;
+
+import com.github.matsik.query.config.cursor.CursorProperties;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Encodes cursors as opaque base64url tokens signed with HMAC-SHA256. The signature also covers the user, so a cursor
+ * can neither be forged nor replayed for another user.
+ */
+@Component
+public class UserBookingsCursorCodec {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final int PAYLOAD_SIZE = 1 + 16 + Integer.BYTES + 16;
+    private static final int SIGNATURE_SIZE = 16;
+
+    private final SecretKeySpec key;
+
+    public UserBookingsCursorCodec(CursorProperties cursorProperties) {
+        if (cursorProperties.secret() == null || cursorProperties.secret().isBlank()) {
+            throw new IllegalStateException("Cursor secret must be set");
+        }
+        this.key = new SecretKeySpec(cursorProperties.secret().getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    }
+
+    public String encode(UUID userId, UserBookingsCursor cursor) {
+        ByteBuffer buffer = ByteBuffer.allocate(PAYLOAD_SIZE + SIGNATURE_SIZE)
+                .put(FORMAT_VERSION)
+                .putLong(cursor.serviceId().getMostSignificantBits())
+                .putLong(cursor.serviceId().getLeastSignificantBits())
+                .putInt((int) cursor.date().toEpochDay())
+                .putLong(cursor.bookingId().getMostSignificantBits())
+                .putLong(cursor.bookingId().getLeastSignificantBits());
+        buffer.put(sign(userId, buffer.array()));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor is malformed or was not issued for the user
+     */
+    public UserBookingsCursor decode(UUID userId, String encoded) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(encoded);
+        } catch (IllegalArgumentException ex) {
+            throw invalidCursor();
+        }
+        if (bytes.length != PAYLOAD_SIZE + SIGNATURE_SIZE || bytes[0] != FORMAT_VERSION) {
+            throw invalidCursor();
+        }
+        byte[] signature = Arrays.copyOfRange(bytes, PAYLOAD_SIZE, bytes.length);
+        if (!MessageDigest.isEqual(signature, sign(userId, bytes))) {
+            throw invalidCursor();
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 1, PAYLOAD_SIZE - 1);
+        UUID serviceId = new UUID(buffer.getLong(), buffer.getLong());
+        LocalDate date = LocalDate.ofEpochDay(buffer.getInt());
+        UUID bookingId = new UUID(buffer.getLong(), buffer.getLong());
+        return new UserBookingsCursor(serviceId, date, bookingId);
+    }
+
+    private byte[] sign(UUID userId, byte[] bytes) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            mac.update(ByteBuffer.allocate(16)
+                    .putLong(userId.getMostSignificantBits())
+                    .putLong(userId.getLeastSignificantBits())
+                    .array());
+            mac.update(bytes, 0, PAYLOAD_SIZE);
+            return Arrays.copyOf(mac.doFinal(), SIGNATURE_SIZE);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static IllegalArgumentException invalidCursor() {
+        return new IllegalArgumentException("Invalid cursor");
+    }
+
+}
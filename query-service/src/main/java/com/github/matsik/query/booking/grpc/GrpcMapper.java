@@ -1,46 +1,149 @@
 package com.github.matsik.query.booking.grpc;
 
+import com.github.matsik.dto.BookingPartitionKey;
 import com.github.matsik.dto.TimeRange;
+import com.github.matsik.query.booking.cursor.UserBookingsCursor;
+import com.github.matsik.query.booking.cursor.UserBookingsCursorCodec;
 import com.github.matsik.query.booking.query.GetAvailableTimeRangesQuery;
+import com.github.matsik.query.booking.query.GetBatchAvailableTimeRangesQuery;
+import com.github.matsik.query.booking.query.GetDateRangeAvailableTimeRangesQuery;
 import com.github.matsik.query.booking.query.GetFirstUserBookingsQuery;
 import com.github.matsik.query.booking.query.GetNextUserBookingsQuery;
 import com.github.matsik.query.booking.query.GetUserBookingQuery;
 import com.github.matsik.query.booking.query.GetUserBookingsQuery;
+import com.github.matsik.query.booking.query.StreamUserBookingsQuery;
 import com.github.matsik.query.booking.repository.projection.UserBooking;
+import com.github.matsik.query.booking.service.AvailableTimeRanges;
+import com.github.matsik.query.booking.service.VersionedAvailableTimeRanges;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
+import static com.github.matsik.query.grpc.GrpcMapper.epochDay;
 import static com.github.matsik.query.grpc.GrpcMapper.grpcDate;
+import static com.github.matsik.query.grpc.GrpcMapper.grpcUuid;
 import static com.github.matsik.query.grpc.GrpcMapper.localDate;
 import static com.github.matsik.query.grpc.GrpcMapper.uuid;
 
 @Component
+@RequiredArgsConstructor
 public class GrpcMapper {
 
+    private final UserBookingsCursorCodec cursorCodec;
+
     public GetAvailableTimeRangesQuery getAvailableTimeRangesQuery(ListAvailableTimeRangesRequest request) {
         return GetAvailableTimeRangesQuery.of(
-                uuid(request.getServiceId()),
-                localDate(request.getDate()),
-                request.getServiceDuration()
+                request.hasServiceUuid() ? uuid(request.getServiceUuid()) : uuid(request.getServiceId()),
+                request.hasEpochDay() ? localDate(request.getEpochDay()) : localDate(request.getDate()),
+                request.getServiceDuration(),
+                request.getKnownVersion()
         );
     }
 
-    public ListAvailableTimeRangesResponse listAvailableTimeRangesResponse(List<TimeRange> availableTimeRanges) {
-        return ListAvailableTimeRangesResponse.newBuilder()
-                .addAllTimeRanges(availableTimeRanges.stream()
-                        .map(this::grpcTimeRange)
-                        .toList()
-                )
-                .build();
+    public ListAvailableTimeRangesResponse listAvailableTimeRangesResponse(
+            VersionedAvailableTimeRanges versionedAvailableTimeRanges,
+            boolean compact
+    ) {
+        ListAvailableTimeRangesResponse.Builder builder = ListAvailableTimeRangesResponse.newBuilder()
+                .setVersion(versionedAvailableTimeRanges.version());
+        if (versionedAvailableTimeRanges.isNotModified()) {
+            return builder.setNotModified(true).build();
+        }
+        AvailableTimeRanges availableTimeRanges = versionedAvailableTimeRanges.availableTimeRanges();
+        if (compact) {
+            for (int i = 0; i < availableTimeRanges.size(); i++) {
+                builder.addTimeRangeBounds(availableTimeRanges.start(i)).addTimeRangeBounds(availableTimeRanges.end(i));
+            }
+        } else {
+            builder.addAllTimeRanges(grpcTimeRanges(availableTimeRanges));
+        }
+        return builder.build();
+    }
+
+    private List<com.github.matsik.query.booking.grpc.TimeRange> grpcTimeRanges(AvailableTimeRanges availableTimeRanges) {
+        List<com.github.matsik.query.booking.grpc.TimeRange> timeRanges = new ArrayList<>(availableTimeRanges.size());
+        for (int i = 0; i < availableTimeRanges.size(); i++) {
+            timeRanges.add(com.github.matsik.query.booking.grpc.TimeRange.newBuilder()
+                    .setStart(availableTimeRanges.start(i))
+                    .setEnd(availableTimeRanges.end(i))
+                    .build());
+        }
+        return timeRanges;
+    }
+
+    public GetBatchAvailableTimeRangesQuery getBatchAvailableTimeRangesQuery(BatchListAvailableTimeRangesRequest request) {
+        List<GetAvailableTimeRangesQuery> queries = new ArrayList<>();
+        for (ServiceDateDurations serviceDate : request.getServiceDatesList()) {
+            UUID serviceId = serviceDate.hasServiceUuid() ? uuid(serviceDate.getServiceUuid()) : uuid(serviceDate.getServiceId());
+            LocalDate date = serviceDate.hasEpochDay() ? localDate(serviceDate.getEpochDay()) : localDate(serviceDate.getDate());
+            for (int serviceDuration : serviceDate.getServiceDurationsList()) {
+                queries.add(GetAvailableTimeRangesQuery.of(serviceId, date, serviceDuration));
+            }
+        }
+        return new GetBatchAvailableTimeRangesQuery(queries);
+    }
+
+    public BatchListAvailableTimeRangesResponse batchListAvailableTimeRangesResponse(
+            GetBatchAvailableTimeRangesQuery query,
+            List<AvailableTimeRanges> availableTimeRanges,
+            boolean compact
+    ) {
+        BatchListAvailableTimeRangesResponse.Builder builder = BatchListAvailableTimeRangesResponse.newBuilder();
+        for (int i = 0; i < availableTimeRanges.size(); i++) {
+            GetAvailableTimeRangesQuery single = query.queries().get(i);
+            builder.addAvailabilities(serviceDateAvailability(
+                    single.bookingPartitionKey(),
+                    single.serviceDuration(),
+                    availableTimeRanges.get(i),
+                    compact
+            ));
+        }
+        return builder.build();
+    }
+
+    public ServiceDateAvailability serviceDateAvailability(
+            BookingPartitionKey key,
+            int serviceDuration,
+            AvailableTimeRanges availableTimeRanges,
+            boolean compact
+    ) {
+        ServiceDateAvailability.Builder availability = ServiceDateAvailability.newBuilder()
+                .setServiceDuration(serviceDuration);
+        if (compact) {
+            availability
+                    .setServiceUuid(grpcUuid(key.serviceId()))
+                    .setEpochDay(epochDay(key.date()));
+            for (int i = 0; i < availableTimeRanges.size(); i++) {
+                availability.addTimeRangeBounds(availableTimeRanges.start(i)).addTimeRangeBounds(availableTimeRanges.end(i));
+            }
+        } else {
+            availability
+                    .setServiceId(key.serviceId().toString())
+                    .setDate(grpcDate(key.date()))
+                    .addAllTimeRanges(grpcTimeRanges(availableTimeRanges));
+        }
+        return availability.build();
+    }
+
+    public GetDateRangeAvailableTimeRangesQuery getDateRangeAvailableTimeRangesQuery(StreamAvailableTimeRangesRequest request) {
+        return new GetDateRangeAvailableTimeRangesQuery(
+                request.hasServiceUuid() ? uuid(request.getServiceUuid()) : uuid(request.getServiceId()),
+                request.hasFromEpochDay() ? localDate(request.getFromEpochDay()) : localDate(request.getFromDate()),
+                request.hasToEpochDay() ? localDate(request.getToEpochDay()) : localDate(request.getToDate()),
+                request.getServiceDuration()
+        );
     }
 
     public GetUserBookingQuery getUserBookingQuery(GetUserBookingTimeRangeRequest request) {
         return GetUserBookingQuery.of(
-                uuid(request.getServiceId()),
-                localDate(request.getDate()),
-                uuid(request.getUserId()),
-                uuid(request.getBookingId())
+                request.hasServiceUuid() ? uuid(request.getServiceUuid()) : uuid(request.getServiceId()),
+                request.hasEpochDay() ? localDate(request.getEpochDay()) : localDate(request.getDate()),
+                request.hasUserUuid() ? uuid(request.getUserUuid()) : uuid(request.getUserId()),
+                request.hasBookingUuid() ? uuid(request.getBookingUuid()) : uuid(request.getBookingId())
         );
     }
 
@@ -58,34 +161,59 @@ public class GrpcMapper {
     }
 
     public GetUserBookingsQuery GetUserBookingsQuery(ListUserBookingsRequest request) {
+        UUID userId = request.hasUserUuid() ? uuid(request.getUserUuid()) : uuid(request.getUserId());
+        if (!request.getCursor().isEmpty()) {
+            UserBookingsCursor cursor = cursorCodec.decode(userId, request.getCursor());
+            return new GetNextUserBookingsQuery(userId, cursor.serviceId(), cursor.date(), cursor.bookingId(), request.getLimit());
+        }
         if (!request.getCursorServiceId().isEmpty() && request.hasCursorDate() && !request.getCursorBookingId().isEmpty()) {
             return new GetNextUserBookingsQuery(
-                    uuid(request.getUserId()),
+                    userId,
                     uuid(request.getCursorServiceId()),
                     localDate(request.getCursorDate()),
                     uuid(request.getCursorBookingId()),
                     request.getLimit()
             );
         }
-        return new GetFirstUserBookingsQuery(uuid(request.getUserId()), request.getLimit());
+        return new GetFirstUserBookingsQuery(userId, request.getLimit());
+    }
+
+    public StreamUserBookingsQuery streamUserBookingsQuery(StreamUserBookingsRequest request) {
+        return new StreamUserBookingsQuery(request.hasUserUuid() ? uuid(request.getUserUuid()) : uuid(request.getUserId()));
     }
 
-    public ListUserBookingsResponse listUserBookingsResponse(List<UserBooking> userBookings) {
-        return ListUserBookingsResponse.newBuilder()
+    public ListUserBookingsResponse listUserBookingsResponse(
+            GetUserBookingsQuery query,
+            List<UserBooking> userBookings,
+            boolean compact
+    ) {
+        ListUserBookingsResponse.Builder builder = ListUserBookingsResponse.newBuilder()
                 .addAllUserBookings(userBookings.stream()
-                        .map(this::grpcUserBooking)
+                        .map(userBooking -> grpcUserBooking(userBooking, compact))
                         .toList()
-                )
-                .build();
+                );
+        // a full page may be followed by more bookings, a short one is the last
+        if (!userBookings.isEmpty() && userBookings.size() >= query.limit()) {
+            UserBooking last = userBookings.getLast();
+            UserBookingsCursor cursor = new UserBookingsCursor(last.serviceId(), last.date(), last.bookingId());
+            builder.setNextCursor(cursorCodec.encode(query.userId(), cursor));
+        }
+        return builder.build();
     }
 
-    private com.github.matsik.query.booking.grpc.UserBooking grpcUserBooking(UserBooking userBooking) {
-        return com.github.matsik.query.booking.grpc.UserBooking.newBuilder()
-                .setServiceId(userBooking.serviceId().toString())
-                .setDate(grpcDate(userBooking.date()))
-                .setBookingId(userBooking.bookingId().toString())
+    public com.github.matsik.query.booking.grpc.UserBooking grpcUserBooking(UserBooking userBooking, boolean compact) {
+        com.github.matsik.query.booking.grpc.UserBooking.Builder builder = com.github.matsik.query.booking.grpc.UserBooking.newBuilder()
                 .setStart(userBooking.timeRange().start().minuteOfDay())
-                .setEnd(userBooking.timeRange().end().minuteOfDay())
-                .build();
+                .setEnd(userBooking.timeRange().end().minuteOfDay());
+        if (compact) {
+            builder.setServiceUuid(grpcUuid(userBooking.serviceId()))
+                    .setEpochDay(epochDay(userBooking.date()))
+                    .setBookingUuid(grpcUuid(userBooking.bookingId()));
+        } else {
+            builder.setServiceId(userBooking.serviceId().toString())
+                    .setDate(grpcDate(userBooking.date()))
+                    .setBookingId(userBooking.bookingId().toString());
+        }
+        return builder.build();
     }
 }
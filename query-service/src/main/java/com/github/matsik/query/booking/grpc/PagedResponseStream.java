@@ -0,0 +1,95 @@
+package com.github.matsik.query.booking.grpc;
+
+import com.github.matsik.query.booking.repository.PagedResults;
+import io.grpc.stub.ServerCallStreamObserver;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Sends database pages to a server stream only while the client is ready to receive. A page is fetched once the
+ * previous one has been sent, so a slow client holds at most a single page in memory.
+ */
+class PagedResponseStream<T, R> {
+
+    private final ServerCallStreamObserver<R> responseObserver;
+    private final Function<T, R> mapper;
+    private final QueryServiceGrpcExceptionHandler exceptionHandler;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    private PagedResults<T> page;
+    private boolean fetching = true;
+    private boolean closed;
+
+    PagedResponseStream(
+            ServerCallStreamObserver<R> responseObserver,
+            Function<T, R> mapper,
+            QueryServiceGrpcExceptionHandler exceptionHandler
+    ) {
+        this.responseObserver = responseObserver;
+        this.mapper = mapper;
+        this.exceptionHandler = exceptionHandler;
+    }
+
+    /**
+     * Has to be called before the handler returns, the handlers of the call can only be set until then.
+     *
+     * @return completes once the stream is closed, either way
+     */
+    CompletionStage<Void> start(CompletionStage<PagedResults<T>> firstPage) {
+        responseObserver.setOnCancelHandler(this::cancelled);
+        responseObserver.setOnReadyHandler(this::drain);
+        firstPage.whenComplete(this::received);
+        return completion;
+    }
+
+    private synchronized void received(PagedResults<T> page, Throwable ex) {
+        fetching = false;
+        if (closed) {
+            return;
+        }
+        if (ex != null) {
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            closed = true;
+            responseObserver.onError(exceptionHandler.handleException(cause));
+            completion.completeExceptionally(cause);
+            return;
+        }
+        this.page = page;
+        drain();
+    }
+
+    private synchronized void drain() {
+        if (closed || fetching || page == null) {
+            return;
+        }
+        try {
+            while (page.hasNext() && responseObserver.isReady()) {
+                responseObserver.onNext(mapper.apply(page.next()));
+            }
+        } catch (RuntimeException ex) {
+            received(null, ex);
+            return;
+        }
+        if (page.hasNext()) {
+            // resumed by the ready handler
+            return;
+        }
+        if (page.hasMorePages()) {
+            fetching = true;
+            page.fetchNextPage().whenComplete(this::received);
+            return;
+        }
+        closed = true;
+        responseObserver.onCompleted();
+        completion.complete(null);
+    }
+
+    private synchronized void cancelled() {
+        closed = true;
+        completion.complete(null);
+    }
+
+}
@@ -1,11 +1,15 @@
 package com.github.matsik.query.booking.grpc;
 
-import com.github.matsik.dto.TimeRange;
+import com.github.matsik.dto.BookingPartitionKey;
 import com.github.matsik.query.booking.query.GetAvailableTimeRangesQuery;
+import com.github.matsik.query.booking.query.GetBatchAvailableTimeRangesQuery;
+import com.github.matsik.query.booking.query.GetDateRangeAvailableTimeRangesQuery;
 import com.github.matsik.query.booking.query.GetUserBookingQuery;
 import com.github.matsik.query.booking.query.GetUserBookingsQuery;
 import com.github.matsik.query.booking.repository.projection.UserBooking;
+import com.github.matsik.query.booking.service.AvailableTimeRanges;
 import com.github.matsik.query.booking.service.BookingService;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import io.opentelemetry.api.metrics.DoubleHistogram;
 import io.opentelemetry.api.metrics.LongCounter;
@@ -13,15 +17,23 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.grpc.server.service.GrpcService;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
-import static com.github.matsik.query.metrics.MetricsRecorder.recordMetrics;
+import static com.github.matsik.query.metrics.MetricsRecorder.recordAsyncMetrics;
 
+/**
+ * Handlers return right after starting the query, the response is sent from the callback of the Cassandra driver.
+ */
 @GrpcService
 @RequiredArgsConstructor
 public class QueryServiceGrpcImpl extends QueryServiceGrpc.QueryServiceImplBase {
 
     private final BookingService bookingService;
     private final GrpcMapper grpcMapper;
+    private final QueryServiceGrpcExceptionHandler exceptionHandler;
 
     private final LongCounter requestCounter;
     private final DoubleHistogram requestHistogram;
@@ -30,14 +42,75 @@ public class QueryServiceGrpcImpl extends QueryServiceGrpc.QueryServiceImplBase
             ListAvailableTimeRangesRequest request,
             StreamObserver<ListAvailableTimeRangesResponse> responseObserver
     ) {
-        recordMetrics(requestCounter, requestHistogram, () -> {
+        recordAsyncMetrics(requestCounter, requestHistogram, () -> {
             GetAvailableTimeRangesQuery query = grpcMapper.getAvailableTimeRangesQuery(request);
 
-            List<TimeRange> availableTimeRanges = bookingService.getAvailableTimeRanges(query);
+            return bookingService.getAvailableTimeRanges(query)
+                    .thenApply(versionedAvailableTimeRanges -> grpcMapper.listAvailableTimeRangesResponse(versionedAvailableTimeRanges, request.getCompactResponse()));
+        }, "list_available_time_ranges").whenComplete(respond(responseObserver, Function.identity()));
+    }
 
-            responseObserver.onNext(grpcMapper.listAvailableTimeRangesResponse(availableTimeRanges));
-            responseObserver.onCompleted();
-        }, "list_available_time_ranges");
+    @Override
+    public void batchListAvailableTimeRanges(
+            BatchListAvailableTimeRangesRequest request,
+            StreamObserver<BatchListAvailableTimeRangesResponse> responseObserver
+    ) {
+        recordAsyncMetrics(requestCounter, requestHistogram, () -> {
+            GetBatchAvailableTimeRangesQuery query = grpcMapper.getBatchAvailableTimeRangesQuery(request);
+
+            return bookingService.getAvailableTimeRanges(query)
+                    .thenApply(availableTimeRanges -> grpcMapper.batchListAvailableTimeRangesResponse(query, availableTimeRanges, request.getCompactResponse()));
+        }, "batch_list_available_time_ranges").whenComplete(respond(responseObserver, Function.identity()));
+    }
+
+    /**
+     * A day is sent once it and all the days before it are computed. There are at most
+     * {@link GetDateRangeAvailableTimeRangesQuery#MAX_DAYS} small messages, so they are not held back until the client
+     * is ready.
+     */
+    @Override
+    public void streamAvailableTimeRanges(
+            StreamAvailableTimeRangesRequest request,
+            StreamObserver<ServiceDateAvailability> responseObserver
+    ) {
+        var serverCallStreamObserver = (ServerCallStreamObserver<ServiceDateAvailability>) responseObserver;
+
+        recordAsyncMetrics(requestCounter, requestHistogram, () -> {
+            GetDateRangeAvailableTimeRangesQuery query = grpcMapper.getDateRangeAvailableTimeRangesQuery(request);
+            List<CompletableFuture<AvailableTimeRanges>> days = bookingService.getAvailableTimeRanges(query);
+            serverCallStreamObserver.setOnCancelHandler(() -> cancel(days));
+
+            List<BookingPartitionKey> keys = query.bookingPartitionKeys();
+            CompletableFuture<Void> sent = CompletableFuture.completedFuture(null);
+            for (int i = 0; i < keys.size(); i++) {
+                BookingPartitionKey key = keys.get(i);
+                sent = sent.thenCombine(days.get(i), (_, availableTimeRanges) -> {
+                    serverCallStreamObserver.onNext(grpcMapper.serviceDateAvailability(
+                            key, query.serviceDuration(), availableTimeRanges, request.getCompactResponse()
+                    ));
+                    return null;
+                });
+            }
+            return sent.whenComplete((_, ex) -> {
+                if (ex != null) {
+                    cancel(days);
+                }
+            });
+        }, "stream_available_time_ranges").whenComplete((_, ex) -> {
+            if (serverCallStreamObserver.isCancelled()) {
+                return;
+            }
+            if (ex != null) {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                serverCallStreamObserver.onError(exceptionHandler.handleException(cause));
+                return;
+            }
+            serverCallStreamObserver.onCompleted();
+        });
+    }
+
+    private static void cancel(List<? extends CompletableFuture<?>> futures) {
+        futures.forEach(future -> future.cancel(false));
     }
 
     @Override
@@ -45,14 +118,11 @@ public class QueryServiceGrpcImpl extends QueryServiceGrpc.QueryServiceImplBase
             GetUserBookingTimeRangeRequest request,
             StreamObserver<GetUserBookingTimeRangeResponse> responseObserver
     ) {
-        recordMetrics(requestCounter, requestHistogram, () -> {
+        recordAsyncMetrics(requestCounter, requestHistogram, () -> {
             GetUserBookingQuery query = grpcMapper.getUserBookingQuery(request);
 
-            TimeRange userBookingTimeRange = bookingService.getUserBookingTimeRange(query);
-
-            responseObserver.onNext(grpcMapper.getUserBookingTimeRangeResponse(userBookingTimeRange));
-            responseObserver.onCompleted();
-        }, "get_user_booking_time_range");
+            return bookingService.getUserBookingTimeRange(query);
+        }, "get_user_booking_time_range").whenComplete(respond(responseObserver, grpcMapper::getUserBookingTimeRangeResponse));
     }
 
     @Override
@@ -60,13 +130,48 @@ public class QueryServiceGrpcImpl extends QueryServiceGrpc.QueryServiceImplBase
             ListUserBookingsRequest request,
             StreamObserver<ListUserBookingsResponse> responseObserver
     ) {
-        recordMetrics(requestCounter, requestHistogram, () -> {
+        recordAsyncMetrics(requestCounter, requestHistogram, () -> {
             GetUserBookingsQuery query = grpcMapper.GetUserBookingsQuery(request);
 
-            List<UserBooking> userBookings = bookingService.getUserBookings(query);
+            return bookingService.getUserBookings(query)
+                    .thenApply(userBookings -> grpcMapper.listUserBookingsResponse(query, userBookings, request.getCompactResponse()));
+        }, "list_user_bookings").whenComplete(respond(responseObserver, Function.identity()));
+    }
+
+    @Override
+    public void streamUserBookings(
+            StreamUserBookingsRequest request,
+            StreamObserver<com.github.matsik.query.booking.grpc.UserBooking> responseObserver
+    ) {
+        var serverCallStreamObserver = (ServerCallStreamObserver<com.github.matsik.query.booking.grpc.UserBooking>) responseObserver;
+        PagedResponseStream<UserBooking, com.github.matsik.query.booking.grpc.UserBooking> stream =
+                new PagedResponseStream<>(
+                        serverCallStreamObserver,
+                        userBooking -> grpcMapper.grpcUserBooking(userBooking, request.getCompactResponse()),
+                        exceptionHandler
+                );
+
+        // a failed mapping has to reach the stream as well, it is started before the handler returns either way
+        recordAsyncMetrics(requestCounter, requestHistogram, () -> stream.start(
+                CompletableFuture.completedFuture(request)
+                        .thenApply(grpcMapper::streamUserBookingsQuery)
+                        .thenCompose(bookingService::streamUserBookings)
+        ), "stream_user_bookings");
+    }
 
-            responseObserver.onNext(grpcMapper.listUserBookingsResponse(userBookings));
-            responseObserver.onCompleted();
-        }, "list_user_bookings");
+    private <T, R> BiConsumer<T, Throwable> respond(StreamObserver<R> responseObserver, Function<T, R> mapper) {
+        return (result, ex) -> {
+            if (ex != null) {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                responseObserver.onError(exceptionHandler.handleException(cause));
+                return;
+            }
+            try {
+                responseObserver.onNext(mapper.apply(result));
+                responseObserver.onCompleted();
+            } catch (RuntimeException mappingEx) {
+                responseObserver.onError(exceptionHandler.handleException(mappingEx));
+            }
+        };
     }
 }
@@ -1,13 +1,22 @@
 package com.github.matsik.query.booking.query;
 
 import com.github.matsik.dto.BookingPartitionKey;
+import com.github.matsik.query.booking.repository.projection.Occupancy;
 
 import java.time.LocalDate;
 import java.util.UUID;
 
-public record GetAvailableTimeRangesQuery(BookingPartitionKey bookingPartitionKey, int serviceDuration) {
+/**
+ * @param knownVersion version of the service-date the client already has the time ranges of, or
+ *                     {@link Occupancy#UNKNOWN_VERSION}
+ */
+public record GetAvailableTimeRangesQuery(BookingPartitionKey bookingPartitionKey, int serviceDuration, long knownVersion) {
     public static GetAvailableTimeRangesQuery of(UUID serviceId, LocalDate date, int serviceDuration) {
+        return of(serviceId, date, serviceDuration, Occupancy.UNKNOWN_VERSION);
+    }
+
+    public static GetAvailableTimeRangesQuery of(UUID serviceId, LocalDate date, int serviceDuration, long knownVersion) {
         BookingPartitionKey key = BookingPartitionKey.of(serviceId, date);
-        return new GetAvailableTimeRangesQuery(key, serviceDuration);
+        return new GetAvailableTimeRangesQuery(key, serviceDuration, knownVersion);
     }
 }
@@ -0,0 +1,16 @@
+package com.github.matsik.query.booking.query;
+
+import java.util.List;
+
+public record GetBatchAvailableTimeRangesQuery(List<GetAvailableTimeRangesQuery> queries) {
+
+    public static final int MAX_QUERIES = 500;
+
+    public GetBatchAvailableTimeRangesQuery {
+        if (queries.size() > MAX_QUERIES) {
+            throw new IllegalArgumentException(
+                    String.format("A batch can have at most %d service-date durations, got %d", MAX_QUERIES, queries.size())
+            );
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.matsik.query.booking.query;
+
+import com.github.matsik.dto.BookingPartitionKey;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * @param from first day of the range
+ * @param to   last day of the range
+ */
+public record GetDateRangeAvailableTimeRangesQuery(UUID serviceId, LocalDate from, LocalDate to, int serviceDuration) {
+
+    public static final int MAX_DAYS = 92;
+
+    public GetDateRangeAvailableTimeRangesQuery {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException(String.format("The range starts after it ends: %s - %s", from, to));
+        }
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        if (days > MAX_DAYS) {
+            throw new IllegalArgumentException(
+                    String.format("A range can have at most %d days, got %d", MAX_DAYS, days)
+            );
+        }
+    }
+
+    public List<BookingPartitionKey> bookingPartitionKeys() {
+        return from.datesUntil(to.plusDays(1))
+                .map(date -> BookingPartitionKey.of(serviceId, date))
+                .toList();
+    }
+}
@@ -1,4 +1,11 @@
 package com.github.matsik.query.booking.query;
 
+import java.util.UUID;
+
 public sealed interface GetUserBookingsQuery permits GetFirstUserBookingsQuery, GetNextUserBookingsQuery {
+
+    UUID userId();
+
+    int limit();
+
 }
@@ -0,0 +1,6 @@
+package com.github.matsik.query.booking.query;
+
+import java.util.UUID;
+
+public record StreamUserBookingsQuery(UUID userId) {
+}
@@ -0,0 +1,40 @@
+package com.github.matsik.query.booking.repository;
+
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Maps async result sets without blocking, further pages are fetched from the callback of the previous one.
+ */
+public class AsyncResults {
+
+    public static <T> CompletionStage<Optional<T>> one(CompletionStage<AsyncResultSet> resultSet, Function<Row, T> mapper) {
+        return resultSet.thenApply(result -> Optional.ofNullable(result.one()).map(mapper));
+    }
+
+    public static <T> CompletionStage<List<T>> all(CompletionStage<AsyncResultSet> resultSet, Function<Row, T> mapper) {
+        return resultSet.thenCompose(result -> collect(result, mapper, new ArrayList<>()));
+    }
+
+    public static <T> CompletionStage<PagedResults<T>> paged(CompletionStage<AsyncResultSet> resultSet, Function<Row, T> mapper) {
+        return resultSet.thenApply(result -> new PagedResults<>(result, mapper));
+    }
+
+    private static <T> CompletionStage<List<T>> collect(AsyncResultSet resultSet, Function<Row, T> mapper, List<T> collected) {
+        for (Row row : resultSet.currentPage()) {
+            collected.add(mapper.apply(row));
+        }
+        if (resultSet.hasMorePages()) {
+            return resultSet.fetchNextPage().thenCompose(next -> collect(next, mapper, collected));
+        }
+        return CompletableFuture.completedFuture(collected);
+    }
+
+}
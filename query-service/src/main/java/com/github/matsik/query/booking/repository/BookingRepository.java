@@ -1,17 +1,18 @@
 package com.github.matsik.query.booking.repository;
 
-import com.datastax.oss.driver.api.core.cql.ResultSet;
-import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
 import com.datastax.oss.driver.api.mapper.annotations.Dao;
 import com.datastax.oss.driver.api.mapper.annotations.Query;
 import com.datastax.oss.driver.api.mapper.annotations.StatementAttributes;
 import com.github.matsik.dto.TimeRange;
+import com.github.matsik.query.booking.repository.projection.Occupancy;
 import com.github.matsik.query.booking.repository.projection.UserBooking;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletionStage;
 
 @Dao
 public interface BookingRepository {
@@ -25,12 +26,10 @@ public interface BookingRepository {
               AND booking_id = :bookingId
             """)
     @StatementAttributes(consistencyLevel = "QUORUM")
-    Row _getUserBookingTimeRange(UUID userId, UUID serviceId, LocalDate date, UUID bookingId);
+    CompletionStage<AsyncResultSet> _getUserBookingTimeRange(UUID userId, UUID serviceId, LocalDate date, UUID bookingId);
 
-    default Optional<TimeRange> getUserBookingTimeRange(UUID userId, UUID serviceId, LocalDate date, UUID bookingId) {
-        Row row = _getUserBookingTimeRange(userId, serviceId, date, bookingId);
-        return Optional.ofNullable(row)
-                .map(TimeRange::of);
+    default CompletionStage<Optional<TimeRange>> getUserBookingTimeRange(UUID userId, UUID serviceId, LocalDate date, UUID bookingId) {
+        return AsyncResults.one(_getUserBookingTimeRange(userId, serviceId, date, bookingId), TimeRange::of);
     }
 
     @Query("""
@@ -40,14 +39,26 @@ public interface BookingRepository {
               AND date = :date
             """)
     @StatementAttributes(consistencyLevel = "QUORUM")
-    ResultSet _getBookedTimeRanges(UUID serviceId, LocalDate date);
-
-    default List<TimeRange> getBookedTimeRanges(UUID serviceId, LocalDate date) {
-        return _getBookedTimeRanges(serviceId, date)
-                .map(TimeRange::of)
-                .all()
-                .stream()
-                .toList();
+    CompletionStage<AsyncResultSet> _getBookedTimeRanges(UUID serviceId, LocalDate date);
+
+    default CompletionStage<List<TimeRange>> getBookedTimeRanges(UUID serviceId, LocalDate date) {
+        return AsyncResults.all(_getBookedTimeRanges(serviceId, date), TimeRange::of);
+    }
+
+    @Query("""
+            SELECT minutes, version
+            FROM service_day_occupancy
+            WHERE service_id = :serviceId
+              AND date = :date
+            """)
+    @StatementAttributes(consistencyLevel = "QUORUM")
+    CompletionStage<AsyncResultSet> _getOccupancy(UUID serviceId, LocalDate date);
+
+    /**
+     * @return the occupancy summary of the service-date, empty if it was not written since the summary was introduced
+     */
+    default CompletionStage<Optional<Occupancy>> getOccupancy(UUID serviceId, LocalDate date) {
+        return AsyncResults.one(_getOccupancy(serviceId, date), Occupancy::of);
     }
 
     @Query("""
@@ -57,28 +68,21 @@ public interface BookingRepository {
             LIMIT :size
             """)
     @StatementAttributes(consistencyLevel = "QUORUM")
-    ResultSet _getFirstUserBookings(UUID userId, int size);
-
-    default List<UserBooking> getFirstUserBookings(UUID userId, int limit) {
-        ResultSet resultSet = _getFirstUserBookings(userId, limit);
-        return resultSet
-                .map(UserBooking::of)
-                .all()
-                .stream()
-                .toList();
+    CompletionStage<AsyncResultSet> _getFirstUserBookings(UUID userId, int size);
+
+    default CompletionStage<List<UserBooking>> getFirstUserBookings(UUID userId, int limit) {
+        return AsyncResults.all(_getFirstUserBookings(userId, limit), UserBooking::of);
     }
 
     @Query("""
             SELECT service_id, date, booking_id, start, end
             FROM bookings_by_user
             WHERE user_id = :userId
-                AND service_id = :cursorServiceId
-                AND date = :cursorDate
-                AND booking_id > :cursorBookingId
+                AND (service_id, date, booking_id) > (:cursorServiceId, :cursorDate, :cursorBookingId)
             LIMIT :size
             """)
     @StatementAttributes(consistencyLevel = "QUORUM")
-    ResultSet _getNextUserBookings(
+    CompletionStage<AsyncResultSet> _getNextUserBookings(
             UUID userId,
             UUID cursorServiceId,
             LocalDate cursorDate,
@@ -86,19 +90,26 @@ public interface BookingRepository {
             int size
     );
 
-    default List<UserBooking> getNextUserBookings(
+    default CompletionStage<List<UserBooking>> getNextUserBookings(
             UUID userId,
             UUID cursorServiceId,
             LocalDate cursorDate,
             UUID cursorBookingId,
             int limit
     ) {
-        ResultSet resultSet = _getNextUserBookings(userId, cursorServiceId, cursorDate, cursorBookingId, limit);
-        return resultSet
-                .map(UserBooking::of)
-                .all()
-                .stream()
-                .toList();
+        return AsyncResults.all(_getNextUserBookings(userId, cursorServiceId, cursorDate, cursorBookingId, limit), UserBooking::of);
+    }
+
+    @Query("""
+            SELECT service_id, date, booking_id, start, end
+            FROM bookings_by_user
+            WHERE user_id = :userId
+            """)
+    @StatementAttributes(consistencyLevel = "QUORUM", pageSize = 500)
+    CompletionStage<AsyncResultSet> _streamUserBookings(UUID userId);
+
+    default CompletionStage<PagedResults<UserBooking>> streamUserBookings(UUID userId) {
+        return AsyncResults.paged(_streamUserBookings(userId), UserBooking::of);
     }
 
 }
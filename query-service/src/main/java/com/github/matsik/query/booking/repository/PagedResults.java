@@ -0,0 +1,41 @@
+package com.github.matsik.query.booking.repository;
+
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+
+import java.util.Iterator;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * A single page of an async result set, only one page is held in memory at a time.
+ */
+public class PagedResults<T> {
+
+    private final AsyncResultSet resultSet;
+    private final Function<Row, T> mapper;
+    private final Iterator<Row> rows;
+
+    PagedResults(AsyncResultSet resultSet, Function<Row, T> mapper) {
+        this.resultSet = resultSet;
+        this.mapper = mapper;
+        this.rows = resultSet.currentPage().iterator();
+    }
+
+    public boolean hasNext() {
+        return rows.hasNext();
+    }
+
+    public T next() {
+        return mapper.apply(rows.next());
+    }
+
+    public boolean hasMorePages() {
+        return resultSet.hasMorePages();
+    }
+
+    public CompletionStage<PagedResults<T>> fetchNextPage() {
+        return resultSet.fetchNextPage().thenApply(next -> new PagedResults<>(next, mapper));
+    }
+
+}
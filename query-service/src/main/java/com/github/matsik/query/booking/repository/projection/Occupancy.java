@@ -0,0 +1,22 @@
+package com.github.matsik.query.booking.repository.projection;
+
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.github.matsik.dto.MinuteBitmap;
+
+/**
+ * @param version epoch millis of the last change of the service-date, {@link #UNKNOWN_VERSION} if it was not written
+ *                since the occupancy summary was introduced
+ */
+public record Occupancy(MinuteBitmap minutes, long version) {
+
+    public static final long UNKNOWN_VERSION = 0L;
+
+    public static Occupancy of(Row row) {
+        return new Occupancy(MinuteBitmap.of(row.getByteBuffer("minutes")), row.getLong("version"));
+    }
+
+    public static Occupancy unversioned(MinuteBitmap minutes) {
+        return new Occupancy(minutes, UNKNOWN_VERSION);
+    }
+
+}
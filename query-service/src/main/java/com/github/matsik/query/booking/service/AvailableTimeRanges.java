@@ -0,0 +1,41 @@
+package com.github.matsik.query.booking.service;
+
+import com.github.matsik.dto.TimeRange;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Available time ranges in ascending order, kept as {@code start, end} minute pairs of a single array.
+ */
+public final class AvailableTimeRanges {
+
+    private final int[] bounds;
+    private final int size;
+
+    AvailableTimeRanges(int[] bounds, int size) {
+        this.bounds = bounds;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int start(int index) {
+        return bounds[index << 1];
+    }
+
+    public int end(int index) {
+        return bounds[(index << 1) + 1];
+    }
+
+    public List<TimeRange> toTimeRanges() {
+        List<TimeRange> timeRanges = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            timeRanges.add(TimeRange.of(start(i), end(i)));
+        }
+        return timeRanges;
+    }
+
+}
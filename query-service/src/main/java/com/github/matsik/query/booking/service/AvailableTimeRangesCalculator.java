@@ -1,15 +1,11 @@
 package com.github.matsik.query.booking.service;
 
-import com.github.matsik.dto.MinuteOfDay;
-import com.github.matsik.dto.TimeRange;
+import com.github.matsik.dto.MinuteBitmap;
 import io.opentelemetry.api.trace.SpanKind;
 import io.opentelemetry.instrumentation.annotations.WithSpan;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
-import java.util.ArrayList;
-import java.util.List;
-
 @Component
 @RequiredArgsConstructor
 public class AvailableTimeRangesCalculator {
@@ -23,36 +19,35 @@ public class AvailableTimeRangesCalculator {
 
     private static final int SERVICE_TIME_SLICE = 30;
 
+    /**
+     * A time range is available if no minute is occupied within {@link #OFFSET} minutes of it. Instead of checking every
+     * candidate, the free runs of the bitmap are walked and the candidates fitting into each of them are emitted.
+     */
     @WithSpan(kind = SpanKind.SERVER)
-    public List<TimeRange> getAvailableTimeRanges(List<TimeRange> unavailableTimeRanges, int serviceDuration) {
-        List<TimeRange> availableTimeRanges = new ArrayList<>();
-        for (int start = START; start <= END - serviceDuration; start += SKIP) {
-            MinuteOfDay startMinuteOfDay = MinuteOfDay.of(start);
-            MinuteOfDay endMinuteOfDay = MinuteOfDay.of(start + serviceDuration);
-            TimeRange timeRange = TimeRange.of(startMinuteOfDay, endMinuteOfDay);
-
-            boolean isAvailable = true;
-            for (TimeRange unavailableTimeRange : unavailableTimeRanges) {
-                if (isOverlapWithOffsets(timeRange, unavailableTimeRange)) {
-                    isAvailable = false;
-                    break;
-                }
-            }
-
-            if (isAvailable) {
-                availableTimeRanges.add(timeRange);
+    public AvailableTimeRanges getAvailableTimeRanges(MinuteBitmap occupiedMinutes, int serviceDuration) {
+        int[] bounds = new int[2 * maxCandidates(serviceDuration)];
+        int size = 0;
+
+        int freeStart = occupiedMinutes.nextFree(START);
+        while (freeStart < END) {
+            int freeEnd = occupiedMinutes.nextOccupied(freeStart);
+
+            // the offset is not required at the day boundaries
+            int firstStart = freeStart == START ? START : freeStart + OFFSET;
+            int lastStart = freeEnd == END ? END - serviceDuration : freeEnd - OFFSET - serviceDuration;
+
+            for (int start = Math.ceilDiv(firstStart - START, SKIP) * SKIP + START; start <= lastStart; start += SKIP) {
+                bounds[size << 1] = start;
+                bounds[(size << 1) + 1] = start + serviceDuration;
+                size++;
             }
+            freeStart = occupiedMinutes.nextFree(freeEnd);
         }
-        return availableTimeRanges;
+        return new AvailableTimeRanges(bounds, size);
     }
 
-    private boolean isOverlapWithOffsets(TimeRange timeRangeOne, TimeRange timeRangeTwo) {
-        int start = Math.max(START, timeRangeTwo.start().minuteOfDay() - OFFSET);
-        int end = Math.min(END, timeRangeTwo.end().minuteOfDay() + OFFSET);
-
-        TimeRange offsetTimeRange = TimeRange.of(start, end);
-
-        return timeRangeOne.isOverlap(offsetTimeRange);
+    private static int maxCandidates(int serviceDuration) {
+        return Math.max(0, (END - START - serviceDuration) / SKIP + 1);
     }
 
     public int getSystemServiceDuration(int rawServiceDuration) {
@@ -1,15 +1,24 @@
 package com.github.matsik.query.booking.service;
 
 import com.github.matsik.dto.BookingPartitionKey;
+import com.github.matsik.dto.MinuteBitmap;
 import com.github.matsik.dto.TimeRange;
+import com.github.matsik.query.booking.cache.AvailabilityCache;
 import com.github.matsik.query.booking.query.GetAvailableTimeRangesQuery;
+import com.github.matsik.query.booking.query.GetBatchAvailableTimeRangesQuery;
+import com.github.matsik.query.booking.query.GetDateRangeAvailableTimeRangesQuery;
 import com.github.matsik.query.booking.query.GetFirstUserBookingsQuery;
 import com.github.matsik.query.booking.query.GetNextUserBookingsQuery;
 import com.github.matsik.query.booking.query.GetUserBookingQuery;
 import com.github.matsik.query.booking.query.GetUserBookingsQuery;
+import com.github.matsik.query.booking.query.StreamUserBookingsQuery;
 import com.github.matsik.query.booking.repository.BookingRepository;
+import com.github.matsik.query.booking.repository.PagedResults;
+import com.github.matsik.query.booking.repository.projection.Occupancy;
 import com.github.matsik.query.booking.repository.projection.UserBooking;
 import com.github.matsik.query.booking.service.exception.UserBookingNotFoundException;
+import com.github.matsik.query.concurrent.BoundedFanOut;
+import com.github.matsik.query.config.range.DateRangeProperties;
 import io.opentelemetry.api.common.AttributeKey;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.api.trace.SpanKind;
@@ -17,7 +26,11 @@ import io.opentelemetry.instrumentation.annotations.WithSpan;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 @Service
 @RequiredArgsConstructor
@@ -25,18 +38,87 @@ public class BookingService {
 
     private final BookingRepository repository;
     private final AvailableTimeRangesCalculator availableTimeRangesCalculator;
+    private final AvailabilityCache availabilityCache;
+    private final DateRangeProperties dateRangeProperties;
 
+    /**
+     * Skips computing the time ranges if the version the client knows is still current.
+     */
     @WithSpan(kind = SpanKind.SERVER)
-    public List<TimeRange> getAvailableTimeRanges(GetAvailableTimeRangesQuery query) {
+    public CompletionStage<VersionedAvailableTimeRanges> getAvailableTimeRanges(GetAvailableTimeRangesQuery query) {
         Span span = Span.current();
         setSpanAttributes(span, query);
 
         BookingPartitionKey key = query.bookingPartitionKey();
-        List<TimeRange> unavailableTimeRanges = repository.getBookedTimeRanges(key.serviceId(), key.date());
+        int serviceDuration = availableTimeRangesCalculator.getSystemServiceDuration(query.serviceDuration());
+
+        return availabilityCache.get(key, () -> getOccupancy(key))
+                .thenApply(occupancy -> {
+                    if (occupancy.version() != Occupancy.UNKNOWN_VERSION && occupancy.version() == query.knownVersion()) {
+                        return new VersionedAvailableTimeRanges(occupancy.version(), null);
+                    }
+                    AvailableTimeRanges availableTimeRanges =
+                            availableTimeRangesCalculator.getAvailableTimeRanges(occupancy.minutes(), serviceDuration);
+                    return new VersionedAvailableTimeRanges(occupancy.version(), availableTimeRanges);
+                });
+    }
+
+    /**
+     * Reads the distinct service-dates of the batch concurrently, each of them once for all of its durations.
+     */
+    @WithSpan(kind = SpanKind.SERVER)
+    public CompletionStage<List<AvailableTimeRanges>> getAvailableTimeRanges(GetBatchAvailableTimeRangesQuery query) {
+        Span span = Span.current();
+        span.setAttribute(AttributeKey.longKey("get_batch_available_time_ranges_query.size"), query.queries().size());
+
+        Map<BookingPartitionKey, CompletableFuture<Occupancy>> occupancies = new HashMap<>();
+        for (GetAvailableTimeRangesQuery single : query.queries()) {
+            occupancies.computeIfAbsent(single.bookingPartitionKey(), key ->
+                    availabilityCache.get(key, () -> getOccupancy(key)).toCompletableFuture()
+            );
+        }
+
+        return CompletableFuture.allOf(occupancies.values().toArray(CompletableFuture[]::new))
+                .thenApply(_ -> query.queries().stream()
+                        .map(single -> availableTimeRangesCalculator.getAvailableTimeRanges(
+                                occupancies.get(single.bookingPartitionKey()).join().minutes(),
+                                availableTimeRangesCalculator.getSystemServiceDuration(single.serviceDuration())
+                        ))
+                        .toList());
+    }
+
+    /**
+     * Reads at most {@link DateRangeProperties#parallelism()} days at the same time, a day is computed as soon as it
+     * has been read.
+     *
+     * @return a future per day of the range, in order, cancelling them stops the reads that have not started yet
+     */
+    @WithSpan(kind = SpanKind.SERVER)
+    public List<CompletableFuture<AvailableTimeRanges>> getAvailableTimeRanges(GetDateRangeAvailableTimeRangesQuery query) {
+        Span span = Span.current();
+        setSpanAttributes(span, query);
 
         int serviceDuration = availableTimeRangesCalculator.getSystemServiceDuration(query.serviceDuration());
 
-        return availableTimeRangesCalculator.getAvailableTimeRanges(unavailableTimeRanges, serviceDuration);
+        return BoundedFanOut.fanOut(query.bookingPartitionKeys(), dateRangeProperties.parallelism(), key ->
+                availabilityCache.get(key, () -> getOccupancy(key))
+                        .thenApply(occupancy -> availableTimeRangesCalculator.getAvailableTimeRanges(occupancy.minutes(), serviceDuration))
+        );
+    }
+
+    private void setSpanAttributes(Span span, GetDateRangeAvailableTimeRangesQuery query) {
+        span.setAttribute(AttributeKey.stringKey("get_date_range_available_time_ranges_query.service_id"), query.serviceId().toString());
+        span.setAttribute(AttributeKey.stringKey("get_date_range_available_time_ranges_query.from"), query.from().toString());
+        span.setAttribute(AttributeKey.stringKey("get_date_range_available_time_ranges_query.to"), query.to().toString());
+        span.setAttribute(AttributeKey.longKey("get_date_range_available_time_ranges_query.service_duration"), query.serviceDuration());
+    }
+
+    private CompletionStage<Occupancy> getOccupancy(BookingPartitionKey key) {
+        return repository.getOccupancy(key.serviceId(), key.date())
+                .thenCompose(occupancy -> occupancy
+                        .<CompletionStage<Occupancy>>map(CompletableFuture::completedFuture)
+                        .orElseGet(() -> repository.getBookedTimeRanges(key.serviceId(), key.date())
+                                .thenApply(bookedTimeRanges -> Occupancy.unversioned(MinuteBitmap.of(bookedTimeRanges)))));
     }
 
     private void setSpanAttributes(Span span, GetAvailableTimeRangesQuery query) {
@@ -45,17 +127,18 @@ public class BookingService {
         span.setAttribute(AttributeKey.stringKey("get_available_time_ranges_query.booking_partition_key.service_id"), bookingPartitionKey.serviceId().toString());
         span.setAttribute(AttributeKey.stringKey("get_available_time_ranges_query.booking_partition_key.date"), bookingPartitionKey.date().toString());
         span.setAttribute(AttributeKey.longKey("get_available_time_ranges_query.service_duration"), query.serviceDuration());
+        span.setAttribute(AttributeKey.longKey("get_available_time_ranges_query.known_version"), query.knownVersion());
     }
 
     @WithSpan(kind = SpanKind.SERVER)
-    public TimeRange getUserBookingTimeRange(GetUserBookingQuery query) {
+    public CompletionStage<TimeRange> getUserBookingTimeRange(GetUserBookingQuery query) {
         Span span = Span.current();
         setSpanAttributes(span, query);
 
         BookingPartitionKey key = query.bookingPartitionKey();
 
         return repository.getUserBookingTimeRange(query.userId(), key.serviceId(), key.date(), query.bookingId())
-                .orElseThrow(() -> new UserBookingNotFoundException(query));
+                .thenApply(timeRange -> timeRange.orElseThrow(() -> new UserBookingNotFoundException(query)));
     }
 
     private void setSpanAttributes(Span span, GetUserBookingQuery query) {
@@ -67,7 +150,7 @@ public class BookingService {
         span.setAttribute(AttributeKey.stringKey("get_user_booking_query.booking_id"), query.bookingId().toString());
     }
 
-    public List<UserBooking> getUserBookings(GetUserBookingsQuery query) {
+    public CompletionStage<List<UserBooking>> getUserBookings(GetUserBookingsQuery query) {
         return switch (query) {
             case GetFirstUserBookingsQuery first -> getFirstUserBookings(first);
             case GetNextUserBookingsQuery next -> getNextUserBookings(next);
@@ -75,7 +158,7 @@ public class BookingService {
     }
 
     @WithSpan(kind = SpanKind.SERVER)
-    private List<UserBooking> getFirstUserBookings(GetFirstUserBookingsQuery query) {
+    private CompletionStage<List<UserBooking>> getFirstUserBookings(GetFirstUserBookingsQuery query) {
         Span span = Span.current();
         setSpanAttributes(span, query);
 
@@ -88,7 +171,7 @@ public class BookingService {
     }
 
     @WithSpan(kind = SpanKind.SERVER)
-    private List<UserBooking> getNextUserBookings(GetNextUserBookingsQuery query) {
+    private CompletionStage<List<UserBooking>> getNextUserBookings(GetNextUserBookingsQuery query) {
         Span span = Span.current();
         setSpanAttributes(span, query);
 
@@ -108,4 +191,12 @@ public class BookingService {
         span.setAttribute(AttributeKey.stringKey("get_next_user_bookings_query.cursor_booking_id"), query.cursorBookingId().toString());
         span.setAttribute(AttributeKey.longKey("get_next_user_bookings_query.limit"), query.limit());
     }
+
+    @WithSpan(kind = SpanKind.SERVER)
+    public CompletionStage<PagedResults<UserBooking>> streamUserBookings(StreamUserBookingsQuery query) {
+        Span span = Span.current();
+        span.setAttribute(AttributeKey.stringKey("stream_user_bookings_query.user_id"), query.userId().toString());
+
+        return repository.streamUserBookings(query.userId());
+    }
 }
@@ -0,0 +1,16 @@
+package com.github.matsik.query.booking.service;
+
+import com.github.matsik.query.booking.repository.projection.Occupancy;
+
+/**
+ * @param version             version of the service-date the time ranges are current for, see {@link Occupancy}
+ * @param availableTimeRanges {@code null} if the version the client already has is still current, the time ranges are
+ *                            then not computed
+ */
+public record VersionedAvailableTimeRanges(long version, AvailableTimeRanges availableTimeRanges) {
+
+    public boolean isNotModified() {
+        return availableTimeRanges == null;
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.github.matsik.query.concurrent;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Starts an async operation for every element with at most {@code parallelism} of them in flight, the next one starts
+ * as soon as any of them completes. Results are in the order of the elements, whatever order they complete in.
+ */
+public class BoundedFanOut {
+
+    /**
+     * @return a future per element, cancelling one skips its operation if it has not started yet
+     */
+    public static <T, R> List<CompletableFuture<R>> fanOut(
+            List<T> elements,
+            int parallelism,
+            Function<T, CompletionStage<R>> operation
+    ) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(String.format("Parallelism must be positive, got %d", parallelism));
+        }
+        List<CompletableFuture<R>> results = Stream.generate(CompletableFuture<R>::new)
+                .limit(elements.size())
+                .toList();
+        AtomicInteger next = new AtomicInteger();
+        for (int i = 0; i < Math.min(parallelism, elements.size()); i++) {
+            startNext(elements, operation, results, next);
+        }
+        return results;
+    }
+
+    private static <T, R> void startNext(
+            List<T> elements,
+            Function<T, CompletionStage<R>> operation,
+            List<CompletableFuture<R>> results,
+            AtomicInteger next
+    ) {
+        int index = next.getAndIncrement();
+        while (index < elements.size() && results.get(index).isDone()) {
+            index = next.getAndIncrement();
+        }
+        if (index >= elements.size()) {
+            return;
+        }
+
+        CompletableFuture<R> result = results.get(index);
+        CompletionStage<R> stage;
+        try {
+            stage = operation.apply(elements.get(index));
+        } catch (RuntimeException ex) {
+            stage = CompletableFuture.failedFuture(ex);
+        }
+        stage.whenComplete((value, ex) -> {
+            if (ex != null) {
+                result.completeExceptionally(ex);
+            } else {
+                result.complete(value);
+            }
+            startNext(elements, operation, results, next);
+        });
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.github.matsik.query.config.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * @param maxSize      estimated heap taken by the cached service-dates
+ * @param timeToLive   staleness ceiling of a cached service-date, also covering missed invalidations
+ * @param settleWindow how long after a command its service-date is only cached briefly, as the command may still be
+ *                     processed by the Command Service
+ */
+@ConfigurationProperties("cache")
+public record AvailabilityCacheProperties(DataSize maxSize, Duration timeToLive, Duration settleWindow) {
+}
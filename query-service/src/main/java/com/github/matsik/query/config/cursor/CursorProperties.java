@@ -0,0 +1,10 @@
+package com.github.matsik.query.config.cursor;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @param secret key signing the paging cursors, has to be the same for every instance
+ */
+@ConfigurationProperties("cursor")
+public record CursorProperties(String secret) {
+}
@@ -0,0 +1,30 @@
+package com.github.matsik.query.config.grpc;
+
+import io.grpc.ServerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.grpc.server.ServerBuilderCustomizer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class GrpcServerConfiguration {
+
+    /**
+     * Handlers do not block, so a few threads serve any number of concurrent calls.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService grpcServerExecutor(GrpcServerProperties grpcServerProperties) {
+        return Executors.newFixedThreadPool(
+                grpcServerProperties.executorThreads(),
+                Thread.ofPlatform().name("grpc-server-", 0).factory()
+        );
+    }
+
+    @Bean
+    public <T extends ServerBuilder<T>> ServerBuilderCustomizer<T> grpcServerExecutorCustomizer(ExecutorService grpcServerExecutor) {
+        return serverBuilder -> serverBuilder.executor(grpcServerExecutor);
+    }
+
+}
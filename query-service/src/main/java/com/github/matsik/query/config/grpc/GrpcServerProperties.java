@@ -0,0 +1,7 @@
+package com.github.matsik.query.config.grpc;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties("grpc")
+public record GrpcServerProperties(int executorThreads) {
+}
@@ -0,0 +1,55 @@
+package com.github.matsik.query.config.kafka;
+
+import com.github.matsik.dto.BookingPartitionKey;
+import com.github.matsik.kafka.mapping.BookingPartitionKeyDeserializer;
+import com.github.matsik.query.booking.cache.AvailabilityCacheInvalidator;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.KafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+
+import java.util.Map;
+import java.util.UUID;
+
+@Configuration
+public class KafkaClientConfiguration {
+
+    public static final String BOOKINGS_TOPIC_NAME = "bookings";
+    public static final String RETRY_TOPIC_PREFIX = BOOKINGS_TOPIC_NAME + "-retry-";
+    /**
+     * The bookings topic and the retry topics of the Command Service, the dead-letter topic is never processed.
+     */
+    public static final String COMMAND_TOPICS_PATTERN = BOOKINGS_TOPIC_NAME + "|" + RETRY_TOPIC_PREFIX + "\\d+";
+
+    @Bean
+    public ConsumerFactory<BookingPartitionKey, byte[]> invalidationConsumerFactory(KafkaClientProperties kafkaClientProperties) {
+        // every instance caches on its own, so every instance needs all the commands in a group of its own
+        Map<String, Object> props = Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaClientProperties.bootstrapServers(),
+                ConsumerConfig.GROUP_ID_CONFIG, kafkaClientProperties.groupId() + "-" + UUID.randomUUID(),
+                ConsumerConfig.CLIENT_ID_CONFIG, kafkaClientProperties.clientId(),
+                ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false,
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest"
+        );
+        return new DefaultKafkaConsumerFactory<>(props, new BookingPartitionKeyDeserializer(), new ByteArrayDeserializer());
+    }
+
+    @Bean
+    public KafkaListenerContainerFactory<ConcurrentMessageListenerContainer<BookingPartitionKey, byte[]>> invalidationListenerContainerFactory(
+            ConsumerFactory<BookingPartitionKey, byte[]> invalidationConsumerFactory,
+            AvailabilityCacheInvalidator availabilityCacheInvalidator
+    ) {
+        ConcurrentKafkaListenerContainerFactory<BookingPartitionKey, byte[]> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(invalidationConsumerFactory);
+        factory.getContainerProperties().setConsumerRebalanceListener(availabilityCacheInvalidator);
+        factory.setBatchListener(true);
+
+        return factory;
+    }
+
+}
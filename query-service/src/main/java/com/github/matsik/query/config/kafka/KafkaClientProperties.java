@@ -0,0 +1,14 @@
+package com.github.matsik.query.config.kafka;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * @param retryDelays delays of the retry tiers of the Command Service, a command read from a retry topic is processed
+ *                    only once the delay of its tier has passed
+ */
+@ConfigurationProperties("kafka")
+public record KafkaClientProperties(String clientId, String groupId, String bootstrapServers, List<Duration> retryDelays) {
+}
@@ -37,4 +37,20 @@ public class OtelConfiguration {
                 .build();
     }
 
+    @Bean
+    public LongCounter cacheRequestCounter(Meter meter) {
+        return meter.counterBuilder("query.service.availability.cache.requests")
+                .setDescription("Availability cache lookups, by their hit or miss result")
+                .setUnit("requests")
+                .build();
+    }
+
+    @Bean
+    public LongCounter cacheEvictionCounter(Meter meter) {
+        return meter.counterBuilder("query.service.availability.cache.evictions")
+                .setDescription("Service-dates evicted from the availability cache, by their cause")
+                .setUnit("entries")
+                .build();
+    }
+
 }
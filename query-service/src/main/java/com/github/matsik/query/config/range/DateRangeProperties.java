@@ -0,0 +1,10 @@
+package com.github.matsik.query.config.range;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @param parallelism how many days of a date range are read at the same time
+ */
+@ConfigurationProperties("range")
+public record DateRangeProperties(int parallelism) {
+}
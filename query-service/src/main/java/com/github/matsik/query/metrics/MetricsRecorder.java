@@ -5,6 +5,10 @@ import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.metrics.DoubleHistogram;
 import io.opentelemetry.api.metrics.LongCounter;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
 public class MetricsRecorder {
 
     public static void recordMetrics(LongCounter counter, DoubleHistogram histogram, Runnable operation, String operationName) {
@@ -20,4 +24,32 @@ public class MetricsRecorder {
         histogram.record(duration / 1_000_000.0, attrs);
     }
 
+    /**
+     * Records the metrics once the returned stage completes, instead of around the call that starts it.
+     */
+    public static <T> CompletionStage<T> recordAsyncMetrics(
+            LongCounter counter,
+            DoubleHistogram histogram,
+            Supplier<CompletionStage<T>> operation,
+            String operationName
+    ) {
+        long startTime = System.nanoTime();
+        CompletionStage<T> stage;
+        try {
+            stage = operation.get();
+        } catch (RuntimeException ex) {
+            stage = CompletableFuture.failedFuture(ex);
+        }
+        return stage.whenComplete((_, _) -> {
+            long duration = System.nanoTime() - startTime;
+
+            Attributes attrs = Attributes.of(
+                    AttributeKey.stringKey("operation"), operationName
+            );
+
+            counter.add(1L, attrs);
+            histogram.record(duration / 1_000_000.0, attrs);
+        });
+    }
+
 }
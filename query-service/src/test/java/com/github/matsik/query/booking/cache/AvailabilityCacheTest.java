@@ -0,0 +1,143 @@
+package com.github.matsik.query.booking.cache;
+
+import com.github.matsik.dto.BookingPartitionKey;
+import com.github.matsik.dto.MinuteBitmap;
+import com.github.matsik.query.booking.repository.projection.Occupancy;
+import com.github.matsik.query.config.cache.AvailabilityCacheProperties;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.metrics.LongCounter;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AvailabilityCacheTest {
+
+    private static final BookingPartitionKey KEY = key(1);
+    private static final LongCounter COUNTER = OpenTelemetry.noop().getMeter("test").counterBuilder("test").build();
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void shouldLoadAgainOnlyAfterInvalidationOrExpiry() {
+        // given
+        AvailabilityCache cache = cache(DataSize.ofMegabytes(1));
+        get(cache, KEY);
+
+        // when
+        get(cache, KEY);
+        now.addAndGet(Duration.ofSeconds(5).toNanos());
+        cache.invalidate(KEY);
+        now.incrementAndGet();
+        get(cache, KEY);
+        get(cache, KEY);
+        now.addAndGet(Duration.ofSeconds(2).toNanos());
+        get(cache, KEY);
+        get(cache, KEY);
+        now.addAndGet(Duration.ofSeconds(30).toNanos());
+        get(cache, KEY);
+
+        // then
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void shouldNotCacheLoadRacingInvalidation() {
+        // given
+        AvailabilityCache cache = cache(DataSize.ofMegabytes(1));
+        CompletableFuture<Occupancy> pending = new CompletableFuture<>();
+        cache.get(KEY, () -> pending);
+
+        // when
+        now.incrementAndGet();
+        cache.invalidate(KEY);
+        pending.complete(Occupancy.unversioned(new MinuteBitmap()));
+        get(cache, KEY);
+
+        // then
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void shouldCacheUntilPendingRetriedCommandHasSettled() {
+        // given
+        AvailabilityCache cache = cache(DataSize.ofMegabytes(1));
+        cache.invalidate(KEY, Duration.ofSeconds(10));
+        now.incrementAndGet();
+        get(cache, KEY);
+
+        // when
+        now.addAndGet(Duration.ofSeconds(5).toNanos());
+        get(cache, KEY);
+        int loadsBeforeSettled = loads.get();
+        now.addAndGet(Duration.ofSeconds(7).toNanos());
+        get(cache, KEY);
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        get(cache, KEY);
+
+        // then
+        assertEquals(1, loadsBeforeSettled);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedOverMaxSize() {
+        // given
+        AvailabilityCache cache = cache(DataSize.ofBytes(2L * AvailabilityCache.ENTRY_WEIGHT));
+        List.of(key(1), key(2), key(1), key(3)).forEach(key -> get(cache, key));
+
+        // when
+        get(cache, key(1));
+        get(cache, key(2));
+
+        // then
+        assertEquals(2, cache.size());
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void shouldPruneSettledInvalidationsBehindPendingRetriedCommand() {
+        // given
+        AvailabilityCache cache = cache(DataSize.ofMegabytes(1));
+        cache.invalidate(KEY, Duration.ofHours(1));
+
+        // when
+        for (int day = 2; day <= 10 * AvailabilityCache.MIN_SWEEP_SIZE; day++) {
+            now.addAndGet(Duration.ofSeconds(3).toNanos());
+            cache.invalidate(key(day));
+        }
+
+        // then
+        assertTrue(cache.invalidationCount() < AvailabilityCache.MIN_SWEEP_SIZE);
+    }
+
+    private AvailabilityCache cache(DataSize maxSize) {
+        AvailabilityCacheProperties properties = new AvailabilityCacheProperties(maxSize, Duration.ofSeconds(30), Duration.ofSeconds(2));
+        return new AvailabilityCache(properties, now::get, COUNTER, COUNTER);
+    }
+
+    private void get(AvailabilityCache cache, BookingPartitionKey key) {
+        cache.get(key, this::load).toCompletableFuture().join();
+    }
+
+    private CompletionStage<Occupancy> load() {
+        loads.incrementAndGet();
+        return CompletableFuture.completedFuture(Occupancy.unversioned(new MinuteBitmap()));
+    }
+
+    private static BookingPartitionKey key(int day) {
+        return BookingPartitionKey.of(new UUID(0, 1), LocalDate.of(2025, 1, 1).plusDays(day - 1));
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.github.matsik.query.booking.cursor;
+
+import com.github.matsik.query.config.cursor.CursorProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserBookingsCursorCodecTest {
+
+    private static final UUID USER_ID = new UUID(0, 1);
+    private static final UserBookingsCursor CURSOR = new UserBookingsCursor(new UUID(0, 2), LocalDate.of(2025, 1, 1), new UUID(0, 3));
+
+    private final UserBookingsCursorCodec codec = new UserBookingsCursorCodec(new CursorProperties("secret"));
+
+    @Test
+    void shouldDecodeEncodedCursor() {
+        // when
+        UserBookingsCursor result = codec.decode(USER_ID, codec.encode(USER_ID, CURSOR));
+
+        // then
+        assertEquals(CURSOR, result);
+    }
+
+    @Test
+    void shouldRejectCursorOfAnotherUser() {
+        // given
+        String encoded = codec.encode(USER_ID, CURSOR);
+
+        // expect
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(new UUID(0, 4), encoded));
+    }
+
+    @Test
+    void shouldRejectTamperedCursor() {
+        // given
+        char[] encoded = codec.encode(USER_ID, CURSOR).toCharArray();
+        encoded[5] = encoded[5] == 'A' ? 'B' : 'A';
+
+        // expect
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(USER_ID, new String(encoded)));
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(USER_ID, "not a cursor"));
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.github.matsik.query.booking.grpc;
+
+import com.github.matsik.dto.MinuteBitmap;
+import com.github.matsik.dto.TimeRange;
+import com.github.matsik.query.booking.cursor.UserBookingsCursorCodec;
+import com.github.matsik.query.booking.query.GetAvailableTimeRangesQuery;
+import com.github.matsik.query.booking.repository.projection.UserBooking;
+import com.github.matsik.query.booking.service.AvailableTimeRanges;
+import com.github.matsik.query.booking.service.AvailableTimeRangesCalculator;
+import com.github.matsik.query.booking.service.VersionedAvailableTimeRanges;
+import com.github.matsik.query.config.cursor.CursorProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static com.github.matsik.query.grpc.GrpcMapper.epochDay;
+import static com.github.matsik.query.grpc.GrpcMapper.grpcDate;
+import static com.github.matsik.query.grpc.GrpcMapper.grpcUuid;
+import static com.github.matsik.query.grpc.GrpcMapper.localDate;
+import static com.github.matsik.query.grpc.GrpcMapper.uuid;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GrpcMapperTest {
+
+    private static final UUID SERVICE_ID = UUID.randomUUID();
+    private static final LocalDate DATE = LocalDate.of(2025, 1, 1);
+
+    private final GrpcMapper mapper = new GrpcMapper(new UserBookingsCursorCodec(new CursorProperties("secret")));
+
+    @Test
+    void shouldReadEitherEncodingOfRequest() {
+        // given
+        ListAvailableTimeRangesRequest legacy = ListAvailableTimeRangesRequest.newBuilder()
+                .setServiceId(SERVICE_ID.toString())
+                .setDate(grpcDate(DATE))
+                .setServiceDuration(60)
+                .build();
+        ListAvailableTimeRangesRequest compact = ListAvailableTimeRangesRequest.newBuilder()
+                .setServiceUuid(grpcUuid(SERVICE_ID))
+                .setEpochDay(epochDay(DATE))
+                .setServiceDuration(60)
+                .build();
+
+        // when
+        GetAvailableTimeRangesQuery fromLegacy = mapper.getAvailableTimeRangesQuery(legacy);
+        GetAvailableTimeRangesQuery fromCompact = mapper.getAvailableTimeRangesQuery(compact);
+
+        // then
+        assertEquals(GetAvailableTimeRangesQuery.of(SERVICE_ID, DATE, 60), fromLegacy);
+        assertEquals(fromLegacy, fromCompact);
+    }
+
+    @Test
+    void shouldWriteCompactResponseOnlyWhenAskedFor() {
+        // given
+        MinuteBitmap occupiedMinutes = MinuteBitmap.of(List.of(TimeRange.of(60, 600)));
+        AvailableTimeRanges availableTimeRanges = new AvailableTimeRangesCalculator().getAvailableTimeRanges(occupiedMinutes, 60);
+        VersionedAvailableTimeRanges versionedAvailableTimeRanges = new VersionedAvailableTimeRanges(1L, availableTimeRanges);
+        UserBooking userBooking = new UserBooking(SERVICE_ID, DATE, UUID.randomUUID(), TimeRange.of(60, 120));
+
+        // when
+        ListAvailableTimeRangesResponse legacy = mapper.listAvailableTimeRangesResponse(versionedAvailableTimeRanges, false);
+        ListAvailableTimeRangesResponse compact = mapper.listAvailableTimeRangesResponse(versionedAvailableTimeRanges, true);
+        com.github.matsik.query.booking.grpc.UserBooking legacyUserBooking = mapper.grpcUserBooking(userBooking, false);
+        com.github.matsik.query.booking.grpc.UserBooking compactUserBooking = mapper.grpcUserBooking(userBooking, true);
+
+        // then
+        assertEquals(0, legacy.getTimeRangeBoundsCount());
+        assertEquals(2 * legacy.getTimeRangesCount(), compact.getTimeRangeBoundsCount());
+        for (int i = 0; i < legacy.getTimeRangesCount(); i++) {
+            assertEquals(legacy.getTimeRanges(i).getStart(), compact.getTimeRangeBounds(2 * i));
+            assertEquals(legacy.getTimeRanges(i).getEnd(), compact.getTimeRangeBounds(2 * i + 1));
+        }
+        assertTrue(compact.getSerializedSize() < legacy.getSerializedSize());
+
+        assertEquals(userBooking.serviceId(), uuid(compactUserBooking.getServiceUuid()));
+        assertEquals(userBooking.date(), localDate(compactUserBooking.getEpochDay()));
+        assertEquals(userBooking.bookingId(), uuid(compactUserBooking.getBookingUuid()));
+        assertTrue(compactUserBooking.getServiceId().isEmpty());
+        assertTrue(compactUserBooking.getSerializedSize() < legacyUserBooking.getSerializedSize());
+    }
+
+}
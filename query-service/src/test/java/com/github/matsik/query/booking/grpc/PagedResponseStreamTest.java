@@ -0,0 +1,133 @@
+package com.github.matsik.query.booking.grpc;
+
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.github.matsik.query.booking.repository.AsyncResults;
+import io.grpc.stub.ServerCallStreamObserver;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PagedResponseStreamTest {
+
+    @Test
+    void shouldSendOnlyWhileClientIsReadyAndFetchNextPageOnceSent() {
+        // given
+        CompletableFuture<AsyncResultSet> secondPage = new CompletableFuture<>();
+        AsyncResultSet first = resultSet(List.of(row(1), row(2), row(3)), secondPage);
+        AsyncResultSet second = resultSet(List.of(row(4)), null);
+
+        TestObserver observer = new TestObserver(2);
+        PagedResponseStream<Integer, Integer> stream =
+                new PagedResponseStream<>(observer, Integer::valueOf, new QueryServiceGrpcExceptionHandler());
+
+        // when
+        CompletionStage<Void> completion = stream.start(AsyncResults.paged(CompletableFuture.completedFuture(first), row -> row.getInt("n")));
+
+        // then
+        assertEquals(List.of(1, 2), observer.sent);
+        assertFalse(secondPage.isDone());
+
+        observer.ready(10);
+        assertEquals(List.of(1, 2, 3), observer.sent);
+        assertFalse(observer.completed);
+
+        secondPage.complete(second);
+        assertEquals(List.of(1, 2, 3, 4), observer.sent);
+        assertTrue(observer.completed);
+        assertTrue(completion.toCompletableFuture().isDone());
+    }
+
+    private static AsyncResultSet resultSet(List<Row> rows, CompletableFuture<AsyncResultSet> nextPage) {
+        AsyncResultSet resultSet = mock(AsyncResultSet.class);
+        when(resultSet.currentPage()).thenReturn(rows);
+        when(resultSet.hasMorePages()).thenReturn(nextPage != null);
+        if (nextPage != null) {
+            when(resultSet.fetchNextPage()).thenReturn(nextPage);
+        }
+        return resultSet;
+    }
+
+    private static Row row(int n) {
+        Row row = mock(Row.class);
+        when(row.getInt("n")).thenReturn(n);
+        return row;
+    }
+
+    private static class TestObserver extends ServerCallStreamObserver<Integer> {
+
+        private final List<Integer> sent = new ArrayList<>();
+        private int credit;
+        private boolean completed;
+        private Runnable onReadyHandler;
+
+        TestObserver(int credit) {
+            this.credit = credit;
+        }
+
+        void ready(int credit) {
+            this.credit = credit;
+            onReadyHandler.run();
+        }
+
+        @Override
+        public boolean isReady() {
+            return credit > 0;
+        }
+
+        @Override
+        public void onNext(Integer value) {
+            credit--;
+            sent.add(value);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+        }
+
+        @Override
+        public void onCompleted() {
+            completed = true;
+        }
+
+        @Override
+        public void setOnReadyHandler(Runnable onReadyHandler) {
+            this.onReadyHandler = onReadyHandler;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public void setOnCancelHandler(Runnable onCancelHandler) {
+        }
+
+        @Override
+        public void setCompression(String compression) {
+        }
+
+        @Override
+        public void disableAutoInboundFlowControl() {
+        }
+
+        @Override
+        public void request(int count) {
+        }
+
+        @Override
+        public void setMessageCompression(boolean enable) {
+        }
+    }
+
+}
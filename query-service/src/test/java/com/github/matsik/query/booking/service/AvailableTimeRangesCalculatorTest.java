@@ -0,0 +1,76 @@
+package com.github.matsik.query.booking.service;
+
+import com.github.matsik.dto.MinuteBitmap;
+import com.github.matsik.dto.TimeRange;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AvailableTimeRangesCalculatorTest {
+
+    private static final int END = MinuteBitmap.MINUTES_PER_DAY;
+
+    private final AvailableTimeRangesCalculator calculator = new AvailableTimeRangesCalculator();
+
+    @Test
+    void shouldMatchCheckingEveryCandidateAgainstEveryBooking() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            // given
+            List<TimeRange> bookings = randomBookings(random);
+            int serviceDuration = calculator.getSystemServiceDuration(1 + random.nextInt(END));
+
+            // when
+            List<TimeRange> result = calculator.getAvailableTimeRanges(MinuteBitmap.of(bookings), serviceDuration)
+                    .toTimeRanges();
+
+            // then
+            assertEquals(everyCandidateAgainstEveryBooking(bookings, serviceDuration), result,
+                    () -> String.format("bookings %s, service duration %d", format(bookings), serviceDuration));
+        }
+    }
+
+    private static List<TimeRange> randomBookings(Random random) {
+        List<TimeRange> bookings = new ArrayList<>();
+        int count = random.nextInt(12);
+        for (int i = 0; i < count; i++) {
+            // bookings written before the occupancy index are not guaranteed to be disjoint
+            int start = random.nextBoolean() ? random.nextInt(END) : random.nextInt(END / 15) * 15;
+            int end = Math.min(END, start + 1 + random.nextInt(180));
+            bookings.add(TimeRange.of(start, end));
+        }
+        return bookings;
+    }
+
+    /**
+     * The algorithm the calculator replaced.
+     */
+    private static List<TimeRange> everyCandidateAgainstEveryBooking(List<TimeRange> bookings, int serviceDuration) {
+        List<TimeRange> available = new ArrayList<>();
+        for (int start = 0; start <= END - serviceDuration; start += 15) {
+            TimeRange candidate = TimeRange.of(start, start + serviceDuration);
+            boolean isAvailable = bookings.stream()
+                    .map(booking -> TimeRange.of(
+                            Math.max(0, booking.start().minuteOfDay() - 15),
+                            Math.min(END, booking.end().minuteOfDay() + 15)
+                    ))
+                    .noneMatch(candidate::isOverlap);
+            if (isAvailable) {
+                available.add(candidate);
+            }
+        }
+        return available;
+    }
+
+    private static String format(List<TimeRange> timeRanges) {
+        return timeRanges.stream()
+                .map(timeRange -> timeRange.start().minuteOfDay() + "-" + timeRange.end().minuteOfDay())
+                .toList()
+                .toString();
+    }
+
+}
@@ -7,18 +7,25 @@ import com.datastax.oss.driver.api.core.cql.BoundStatement;
 import com.github.matsik.cassandra.entity.BookingByServiceAndDate;
 import com.github.matsik.cassandra.entity.BookingByUser;
 import com.github.matsik.dto.BookingPartitionKey;
+import com.github.matsik.dto.MinuteBitmap;
 import com.github.matsik.dto.TimeRange;
 import com.github.matsik.query.booking.TestDataGenerator;
+import com.github.matsik.query.booking.cache.AvailabilityCache;
 import com.github.matsik.query.booking.query.GetAvailableTimeRangesQuery;
+import com.github.matsik.query.booking.query.GetBatchAvailableTimeRangesQuery;
+import com.github.matsik.query.booking.query.GetDateRangeAvailableTimeRangesQuery;
 import com.github.matsik.query.booking.query.GetFirstUserBookingsQuery;
 import com.github.matsik.query.booking.query.GetNextUserBookingsQuery;
 import com.github.matsik.query.booking.query.GetUserBookingQuery;
 import com.github.matsik.query.booking.query.GetUserBookingsQuery;
 import com.github.matsik.query.booking.repository.projection.UserBooking;
 import com.github.matsik.query.booking.service.exception.UserBookingNotFoundException;
+import com.github.matsik.query.config.cache.AvailabilityCacheProperties;
 import com.github.matsik.query.config.cassandra.client.CassandraClientConfiguration;
 import com.github.matsik.query.config.cassandra.client.CassandraClientProperties;
 import com.github.matsik.query.config.cassandra.mapper.booking.BookingMapperConfiguration;
+import com.github.matsik.query.config.otel.OtelConfiguration;
+import com.github.matsik.query.config.range.DateRangeProperties;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -44,16 +51,23 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(classes = {
         BookingServiceTest.TestCassandraConfig.class,
         CassandraClientConfiguration.class,
         BookingMapperConfiguration.class,
+        OtelConfiguration.class,
         AvailableTimeRangesCalculator.class,
+        AvailabilityCache.class,
         BookingService.class
 })
 @Testcontainers
@@ -67,10 +81,14 @@ class BookingServiceTest {
         registry.add("cassandra.contactPoints", () -> String.format("%s:%d", CASSANDRA_CONTAINER.getHost(), CASSANDRA_CONTAINER.getFirstMappedPort()));
         registry.add("cassandra.keyspaceName", () -> "booking_system");
         registry.add("cassandra.localDatacenter", CASSANDRA_CONTAINER::getLocalDatacenter);
+        registry.add("cache.maxSize", () -> "1MB");
+        registry.add("cache.timeToLive", () -> "30s");
+        registry.add("cache.settleWindow", () -> "2s");
+        registry.add("range.parallelism", () -> "2");
     }
 
     @Configuration
-    @EnableConfigurationProperties(CassandraClientProperties.class)
+    @EnableConfigurationProperties({CassandraClientProperties.class, AvailabilityCacheProperties.class, DateRangeProperties.class})
     public static class TestCassandraConfig {
     }
 
@@ -80,6 +98,9 @@ class BookingServiceTest {
     @Autowired
     private BookingService service;
 
+    @Autowired
+    private AvailabilityCache availabilityCache;
+
     @BeforeAll
     static void setup() throws IOException {
         execMigration();
@@ -88,6 +109,7 @@ class BookingServiceTest {
     @AfterEach
     void tearDown() {
         clearBookingsTable();
+        availabilityCache.invalidateAll();
     }
 
     @ParameterizedTest(name = "{0}")
@@ -102,9 +124,88 @@ class BookingServiceTest {
         preTestState.forEach(this::persistBooking);
 
         // when
-        List<TimeRange> result = service.getAvailableTimeRanges(query);
+        List<TimeRange> result = service.getAvailableTimeRanges(query).toCompletableFuture().join().availableTimeRanges().toTimeRanges();
+
+        // then
+        assertEquals(expected, result);
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("provideGetAvailableTimeRangesTestCases")
+    void getAvailableTimeRangesFromOccupancySummaryTest(
+            String name,
+            List<Booking> preTestState,
+            GetAvailableTimeRangesQuery query,
+            List<TimeRange> expected
+    ) {
+        // given
+        persistOccupancySummary(query.bookingPartitionKey(), preTestState);
+
+        // when
+        List<TimeRange> result = service.getAvailableTimeRanges(query).toCompletableFuture().join().availableTimeRanges().toTimeRanges();
+
+        // then
+        assertEquals(expected, result);
+    }
+
+    @Test
+    void shouldSkipAvailableTimeRangesOfKnownVersion() {
+        // given
+        BookingPartitionKey key = aBookingPartitionKey();
+        persistOccupancySummary(key, List.of(booking(0, 60)));
+
+        // when
+        VersionedAvailableTimeRanges current = service.getAvailableTimeRanges(
+                GetAvailableTimeRangesQuery.of(key.serviceId(), key.date(), 60, 1L)
+        ).toCompletableFuture().join();
+        VersionedAvailableTimeRanges outdated = service.getAvailableTimeRanges(
+                GetAvailableTimeRangesQuery.of(key.serviceId(), key.date(), 60, 2L)
+        ).toCompletableFuture().join();
+
+        // then
+        assertTrue(current.isNotModified());
+        assertEquals(1L, current.version());
+        assertFalse(outdated.isNotModified());
+        assertEquals(1L, outdated.version());
+    }
+
+    @Test
+    void getBatchAvailableTimeRangesTest() {
+        // given
+        Stream.of(
+                booking(0, 660),
+                booking(810, 1335)
+        ).forEach(this::persistBooking);
+
+        BookingPartitionKey emptyKey = BookingPartitionKey.of(TestDataGenerator.numberToUUID(2), TestDataGenerator.numberToLocalDate(1));
+        GetBatchAvailableTimeRangesQuery query = new GetBatchAvailableTimeRangesQuery(List.of(
+                getAvailableTimeRangesQuery(100),
+                GetAvailableTimeRangesQuery.of(emptyKey.serviceId(), emptyKey.date(), 60),
+                getAvailableTimeRangesQuery(45)
+        ));
+
+        // when
+        List<List<TimeRange>> result = service.getAvailableTimeRanges(query).toCompletableFuture().join().stream()
+                .map(AvailableTimeRanges::toTimeRanges)
+                .toList();
 
         // then
+        List<List<TimeRange>> expected = List.of(
+                List.of(
+                        TimeRange.of(675, 795)
+                ),
+                timeRangesForEmptyDay(60),
+                List.of(
+                        TimeRange.of(675, 735),
+                        TimeRange.of(690, 750),
+                        TimeRange.of(705, 765),
+                        TimeRange.of(720, 780),
+                        TimeRange.of(735, 795),
+                        TimeRange.of(1350, 1410),
+                        TimeRange.of(1365, 1425),
+                        TimeRange.of(1380, 1440)
+                )
+        );
         assertEquals(expected, result);
     }
 
@@ -184,6 +285,28 @@ class BookingServiceTest {
         return timeRanges;
     }
 
+    @Test
+    void shouldReturnAvailableTimeRangesOfEveryDayOfDateRangeInOrder() {
+        // given
+        persistBooking(booking(0, 660));
+
+        BookingPartitionKey key = aBookingPartitionKey();
+        GetDateRangeAvailableTimeRangesQuery query =
+                new GetDateRangeAvailableTimeRangesQuery(key.serviceId(), key.date(), key.date().plusDays(2), 60);
+
+        // when
+        List<List<TimeRange>> result = service.getAvailableTimeRanges(query).stream()
+                .map(CompletableFuture::join)
+                .map(AvailableTimeRanges::toTimeRanges)
+                .toList();
+
+        // then
+        assertEquals(3, result.size());
+        assertEquals(TimeRange.of(675, 735), result.getFirst().getFirst());
+        assertEquals(timeRangesForEmptyDay(60), result.get(1));
+        assertEquals(timeRangesForEmptyDay(60), result.get(2));
+    }
+
     @Test
     void shouldReturnUserBookingTimeRange() {
         // given
@@ -195,7 +318,7 @@ class BookingServiceTest {
 
         // when
         GetUserBookingQuery query = new GetUserBookingQuery(aBookingPartitionKey(), aUserId(), bookingId);
-        TimeRange result = service.getUserBookingTimeRange(query);
+        TimeRange result = service.getUserBookingTimeRange(query).toCompletableFuture().join();
 
         // then
         TimeRange expected = TimeRange.of(60, 120);
@@ -214,7 +337,11 @@ class BookingServiceTest {
         UUID bookingId = TestDataGenerator.numberToUUID(3);
         GetUserBookingQuery query = new GetUserBookingQuery(aBookingPartitionKey(), aUserId(), bookingId);
 
-        assertThrows(UserBookingNotFoundException.class, () -> service.getUserBookingTimeRange(query));
+        CompletionException ex = assertThrows(
+                CompletionException.class,
+                () -> service.getUserBookingTimeRange(query).toCompletableFuture().join()
+        );
+        assertInstanceOf(UserBookingNotFoundException.class, ex.getCause());
     }
 
     @ParameterizedTest(name = "{0}")
@@ -228,7 +355,7 @@ class BookingServiceTest {
         bookings().forEach(this::persistBooking);
 
         // when
-        List<UserBooking> result = service.getUserBookings(query);
+        List<UserBooking> result = service.getUserBookings(query).toCompletableFuture().join();
 
         // then
         assertEquals(expected, result);
@@ -277,6 +404,28 @@ class BookingServiceTest {
         );
     }
 
+    @Test
+    void shouldContinueUserBookingsOnNextServiceDate() {
+        // given
+        BookingPartitionKey key = aBookingPartitionKey();
+        LocalDate nextDate = key.date().plusDays(1);
+        Stream.of(
+                booking(TestDataGenerator.numberToUUID(1), aUserId(), 0, 60),
+                booking(TestDataGenerator.numberToUUID(2), aUserId(), 120, 250),
+                newBooking(key.serviceId(), nextDate, TestDataGenerator.numberToUUID(1), aUserId(), 400, 500)
+        ).forEach(this::persistBooking);
+
+        // when
+        GetUserBookingsQuery query = getNextUserBookingQuery(aUserId(), TestDataGenerator.numberToUUID(2), 2);
+        List<UserBooking> result = service.getUserBookings(query).toCompletableFuture().join();
+
+        // then
+        List<UserBooking> expected = List.of(
+                new UserBooking(key.serviceId(), nextDate, TestDataGenerator.numberToUUID(1), TimeRange.of(400, 500))
+        );
+        assertEquals(expected, result);
+    }
+
     private static List<Booking> bookings() {
         return List.of(
                 booking(TestDataGenerator.numberToUUID(1), aUserId(), 0, 60),
@@ -357,6 +506,19 @@ class BookingServiceTest {
     private void clearBookingsTable() {
         cqlSession.execute("TRUNCATE booking_system.bookings_by_service_and_date");
         cqlSession.execute("TRUNCATE booking_system.bookings_by_user");
+        cqlSession.execute("TRUNCATE booking_system.service_day_occupancy");
+    }
+
+    private void persistOccupancySummary(BookingPartitionKey key, List<Booking> bookings) {
+        MinuteBitmap minutes = MinuteBitmap.of(bookings.stream()
+                .map(Booking::bookingByServiceAndDate)
+                .map(booking -> TimeRange.of(booking.start(), booking.end()))
+                .toList());
+
+        cqlSession.execute(
+                "INSERT INTO booking_system.service_day_occupancy (service_id, date, minutes, version) VALUES (?, ?, ?, ?)",
+                key.serviceId(), key.date(), minutes.toByteBuffer(), 1L
+        );
     }
 
     private void persistBooking(Booking booking) {
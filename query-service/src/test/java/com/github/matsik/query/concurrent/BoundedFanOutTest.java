@@ -0,0 +1,62 @@
+package com.github.matsik.query.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedFanOutTest {
+
+    @Test
+    void shouldKeepAtMostParallelismInFlightAndResultsInOrder() {
+        // given
+        List<CompletableFuture<String>> started = new ArrayList<>();
+
+        // when
+        List<CompletableFuture<String>> results = BoundedFanOut.fanOut(List.of(1, 2, 3, 4), 2, element -> {
+            CompletableFuture<String> operation = new CompletableFuture<>();
+            started.add(operation);
+            return operation;
+        });
+
+        // then
+        assertEquals(2, started.size());
+
+        started.get(1).complete("2");
+        assertEquals(3, started.size());
+        assertTrue(results.get(1).isDone());
+        assertFalse(results.get(0).isDone());
+
+        started.get(0).complete("1");
+        started.get(2).complete("3");
+        started.get(3).complete("4");
+        assertEquals(4, started.size());
+        assertEquals(List.of("1", "2", "3", "4"), results.stream().map(CompletableFuture::join).toList());
+    }
+
+    @Test
+    void shouldNotStartCancelledElements() {
+        // given
+        List<Integer> started = new ArrayList<>();
+        List<CompletableFuture<Integer>> operations = new ArrayList<>();
+        List<CompletableFuture<Integer>> results = BoundedFanOut.fanOut(List.of(1, 2, 3), 1, element -> {
+            started.add(element);
+            CompletableFuture<Integer> operation = new CompletableFuture<>();
+            operations.add(operation);
+            return operation;
+        });
+
+        // when
+        results.forEach(result -> result.cancel(false));
+        operations.getFirst().complete(1);
+
+        // then
+        assertEquals(List.of(1), started);
+    }
+
+}